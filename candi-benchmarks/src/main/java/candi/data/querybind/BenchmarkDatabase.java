@@ -0,0 +1,138 @@
+package candi.data.querybind;
+
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.cfg.Configuration;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Embedded H2 database with {@link #ROWS} generated products, shared by all
+ * benchmarks of a fork.
+ *
+ * Rows are generated in SQL, so seeding a million takes seconds rather than
+ * minutes. The values are deterministic in the row id:
+ * <ul>
+ *   <li>name: "Product &lt;id&gt; &lt;word&gt;", one of {@link #WORDS}</li>
+ *   <li>brand: "Brand &lt;id % 200&gt;"</li>
+ *   <li>category: "category-&lt;id % 20&gt;"</li>
+ *   <li>status: ARCHIVED for every tenth row, ACTIVE otherwise</li>
+ *   <li>price: 0.00 to 999.99, scattered</li>
+ *   <li>created_at: 37 seconds apart from 2020-01-01</li>
+ * </ul>
+ * Set -Dquerybind.rows to use another size.
+ */
+final class BenchmarkDatabase {
+
+    static final int ROWS = Integer.getInteger("querybind.rows", 1_000_000);
+
+    static final String[] WORDS = {"alpha", "bravo", "charlie", "delta", "echo", "foxtrot", "golf", "hotel",
+            "india", "juliett", "kilo", "lima", "mike", "november", "oscar", "papa", "quebec", "romeo",
+            "sierra", "tango"};
+
+    private static BenchmarkDatabase instance;
+
+    private final HikariDataSource dataSource;
+    private final EntityManagerFactory entityManagerFactory;
+    private final EntityManager entityManager;
+    private final PlatformTransactionManager transactionManager;
+
+    private BenchmarkDatabase() {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:h2:mem:querybind-benchmarks;DB_CLOSE_DELAY=-1");
+        dataSource.setUsername("sa");
+        dataSource.setMaximumPoolSize(16);
+
+        Configuration configuration = new Configuration().addAnnotatedClass(Product.class);
+        configuration.getProperties().put("hibernate.connection.datasource", dataSource);
+        configuration.setProperty("hibernate.hbm2ddl.auto", "create");
+        entityManagerFactory = configuration.buildSessionFactory();
+        entityManager = SharedEntityManagerCreator.createSharedEntityManager(entityManagerFactory);
+        transactionManager = new JpaTransactionManager(entityManagerFactory);
+        seed();
+    }
+
+    /**
+     * The database of this fork, created and seeded on first use.
+     */
+    static synchronized BenchmarkDatabase get() {
+        if (instance == null) {
+            instance = new BenchmarkDatabase();
+        }
+        return instance;
+    }
+
+    private void seed() {
+        StringBuilder words = new StringBuilder();
+        for (String word : WORDS) {
+            words.append(words.isEmpty() ? "" : ", ").append('\'').append(word).append('\'');
+        }
+        String insert = "INSERT INTO product (id, name, brand, category, status, price, created_at) "
+                + "SELECT X, 'Product ' || X || ' ' || ARRAY[" + words + "][MOD(X, " + WORDS.length + ") + 1], "
+                + "'Brand ' || MOD(X, 200), 'category-' || MOD(X, 20), "
+                + "CASE WHEN MOD(X, 10) = 0 THEN 'ARCHIVED' ELSE 'ACTIVE' END, "
+                + "MOD(X * 7919, 100000) / 100.0, "
+                + "DATEADD('SECOND', X * 37, TIMESTAMP '2020-01-01 00:00:00') "
+                + "FROM SYSTEM_RANGE(1, ?)";
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(insert)) {
+            statement.setInt(1, ROWS);
+            statement.executeUpdate();
+            try (Statement analyze = connection.createStatement()) {
+                analyze.execute("ANALYZE");
+            }
+            if (!connection.getAutoCommit()) {
+                connection.commit();
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not seed the benchmark database", e);
+        }
+    }
+
+    EntityManagerFactory entityManagerFactory() {
+        return entityManagerFactory;
+    }
+
+    /**
+     * The shared, transaction-bound EntityManager, as an application injects it.
+     */
+    EntityManager entityManager() {
+        return entityManager;
+    }
+
+    PlatformTransactionManager transactionManager() {
+        return transactionManager;
+    }
+
+    /**
+     * A QueryBindService as auto-configured, but without result cache, so every
+     * execution reaches the database.
+     */
+    QueryBindService newService() {
+        return new QueryBindService(entityManager, transactionManager);
+    }
+
+    /**
+     * Make a GET request with the given parameter name/value pairs the current
+     * request of this thread, as DispatcherServlet would.
+     */
+    static MockHttpServletRequest bindRequest(String... parameters) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/products");
+        for (int i = 0; i < parameters.length; i += 2) {
+            request.addParameter(parameters[i], parameters[i + 1]);
+        }
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request, new MockHttpServletResponse()));
+        return request;
+    }
+}
@@ -0,0 +1,115 @@
+package candi.data.querybind;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CPU cost of turning a request into a query, without running it: reading the
+ * URL parameters into a BoundQuery, compiling a FilterPlan, and building the
+ * equivalent Criteria query by hand (the work QueryBind's per-shape criteria
+ * cache saves on every request after the first).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Thread)
+public class BindingBenchmark {
+
+    private QueryBindService service;
+    private FilterPlan plan;
+    private MockHttpServletRequest request;
+    private EntityManager entityManager;
+
+    @Setup
+    public void setUp() {
+        BenchmarkDatabase database = BenchmarkDatabase.get();
+        service = database.newService();
+        plan = service.planFor(ProductPages.Exact.class, "");
+        request = BenchmarkDatabase.bindRequest("category", "category-7", "status", "ACTIVE", "minPrice", "250",
+                "created", "2020-03-01T00:00,2020-06-01T00:00", "name", "Product 12",
+                "sort", "price", "direction", "desc", "page", "3");
+        entityManager = BenchmarkDatabase.get().entityManagerFactory().createEntityManager();
+    }
+
+    @TearDown
+    public void tearDown() {
+        entityManager.close();
+        service.destroy();
+    }
+
+    /**
+     * URL parameters to a BoundQuery: paging, sort and five converted filters.
+     */
+    @Benchmark
+    public BoundQuery bindParameters() {
+        return service.bind(plan, request);
+    }
+
+    /**
+     * Annotations and metamodel to a FilterPlan, which happens once per page class.
+     */
+    @Benchmark
+    public FilterPlan compilePlan() {
+        return FilterPlan.compile(ProductPages.Exact.class, "", entityManager.getMetamodel());
+    }
+
+    /**
+     * The same page query written by hand with CriteriaBuilder, up to the
+     * TypedQuery with its parameters bound.
+     */
+    @Benchmark
+    public TypedQuery<Tuple> buildCriteriaQuery() {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Product> root = query.from(Product.class);
+        List<Selection<?>> selections = new ArrayList<>();
+        for (String column : ProductPages.COLUMNS) {
+            selections.add(root.get(column));
+        }
+        List<Predicate> predicates = new ArrayList<>();
+        predicates.add(cb.equal(root.get("category"), cb.parameter(String.class, "category")));
+        predicates.add(cb.equal(root.get("status"), cb.parameter(Product.Status.class, "status")));
+        predicates.add(cb.greaterThan(root.get("price"), cb.parameter(BigDecimal.class, "minPrice")));
+        predicates.add(cb.between(root.get("createdAt"), cb.parameter(LocalDateTime.class, "from"),
+                cb.parameter(LocalDateTime.class, "to")));
+        predicates.add(cb.like(root.get("name"), cb.parameter(String.class, "name"), '\\'));
+        query.multiselect(selections)
+                .where(predicates.toArray(new Predicate[0]))
+                .orderBy(cb.desc(root.get("price")));
+        return entityManager.createQuery(query)
+                .setParameter("category", "category-7")
+                .setParameter("status", Product.Status.ACTIVE)
+                .setParameter("minPrice", new BigDecimal("250"))
+                .setParameter("from", LocalDateTime.parse("2020-03-01T00:00"))
+                .setParameter("to", LocalDateTime.parse("2020-06-01T00:00"))
+                .setParameter("name", "Product 12%")
+                .setFirstResult(60)
+                .setMaxResults(20);
+    }
+}
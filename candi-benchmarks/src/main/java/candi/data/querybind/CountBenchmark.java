@@ -0,0 +1,120 @@
+package candi.data.querybind;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Count versus data query for a broad filter: status ACTIVE matches 90% of the
+ * rows, so counting reads the whole index while the first page stops after 20
+ * rows. The count strategies show what QueryBind can avoid.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Thread)
+public class CountBenchmark {
+
+    private EntityManager entityManager;
+    private TransactionTemplate readOnlyTransaction;
+    private QueryBindService service;
+
+    @Setup
+    public void setUp() {
+        BenchmarkDatabase database = BenchmarkDatabase.get();
+        entityManager = database.entityManager();
+        readOnlyTransaction = new TransactionTemplate(database.transactionManager());
+        readOnlyTransaction.setReadOnly(true);
+        service = database.newService();
+        BenchmarkDatabase.bindRequest("status", "ACTIVE");
+    }
+
+    @TearDown
+    public void tearDown() {
+        service.destroy();
+    }
+
+    /**
+     * SELECT COUNT(*) alone.
+     */
+    @Benchmark
+    public Long countQuery() {
+        return readOnlyTransaction.execute(status -> {
+            CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+            CriteriaQuery<Long> count = cb.createQuery(Long.class);
+            Root<Product> root = count.from(Product.class);
+            count.select(cb.count(root)).where(cb.equal(root.get("status"), Product.Status.ACTIVE));
+            return entityManager.createQuery(count).getSingleResult();
+        });
+    }
+
+    /**
+     * The first page alone.
+     */
+    @Benchmark
+    public List<Tuple> dataQuery() {
+        return readOnlyTransaction.execute(status -> {
+            CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+            CriteriaQuery<Tuple> query = cb.createTupleQuery();
+            Root<Product> root = query.from(Product.class);
+            List<Selection<?>> selections = new ArrayList<>();
+            for (String column : ProductPages.COLUMNS) {
+                selections.add(root.get(column));
+            }
+            query.multiselect(selections)
+                    .where(cb.equal(root.get("status"), Product.Status.ACTIVE))
+                    .orderBy(cb.asc(root.get("id")));
+            return entityManager.createQuery(query).setMaxResults(20).getResultList();
+        });
+    }
+
+    @Benchmark
+    public Object exact() {
+        return service.execute(ProductPages.Exact.class);
+    }
+
+    /**
+     * countStrategy = CAPPED, counting at most 1000 rows.
+     */
+    @Benchmark
+    public Object capped() {
+        return service.execute(ProductPages.Capped.class);
+    }
+
+    /**
+     * countStrategy = NONE.
+     */
+    @Benchmark
+    public Object uncounted() {
+        return service.execute(ProductPages.Uncounted.class);
+    }
+
+    /**
+     * Exact count and data query on two connections at once.
+     */
+    @Benchmark
+    public Object parallel() {
+        return service.execute(ProductPages.Parallel.class);
+    }
+}
@@ -0,0 +1,71 @@
+package candi.data.querybind;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Page n of 20 products by id, uncounted, with OFFSET against KEYSET
+ * pagination. OFFSET makes the database skip every row before the page;
+ * KEYSET seeks to it through the primary key. Page 49999 is the last of 1M rows.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Thread)
+public class DeepPageBenchmark {
+
+    private static final int PAGE_SIZE = 20;
+
+    @Param({"0", "100", "1000", "10000", "49999"})
+    public int page;
+
+    private QueryBindService service;
+    private MockHttpServletRequest offsetRequest;
+    private MockHttpServletRequest keysetRequest;
+
+    @Setup
+    public void setUp() {
+        service = BenchmarkDatabase.get().newService();
+        offsetRequest = BenchmarkDatabase.bindRequest("page", String.valueOf(page));
+        // Ids run from 1 without gaps, so page n starts after id n * 20
+        String lastId = String.valueOf((long) page * PAGE_SIZE);
+        keysetRequest = page == 0
+                ? BenchmarkDatabase.bindRequest()
+                : BenchmarkDatabase.bindRequest("cursor",
+                        new KeysetCursor(true, "id", "asc", lastId, lastId).encode());
+    }
+
+    @TearDown
+    public void tearDown() {
+        service.destroy();
+    }
+
+    @Benchmark
+    public Object offset() {
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(offsetRequest));
+        return service.execute(ProductPages.Uncounted.class);
+    }
+
+    @Benchmark
+    public Object keyset() {
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(keysetRequest));
+        return service.execute(ProductPages.Keyset.class);
+    }
+}
@@ -0,0 +1,122 @@
+package candi.data.querybind;
+
+import candi.runtime.CandiHandlerMapping;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What QueryBindService and QueryBindInterceptor add on top of raw JPA for one
+ * page: the first 20 products of a category with status ACTIVE (about 45,000
+ * matches) by id, with an exact count. All three run the same two statements
+ * in one read-only transaction.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Thread)
+public class OverheadBenchmark {
+
+    private static final String PAGE_BEAN = "productPage";
+
+    private EntityManager entityManager;
+    private TransactionTemplate readOnlyTransaction;
+    private QueryBindService service;
+    private QueryBindInterceptor interceptor;
+    private GenericApplicationContext applicationContext;
+    private MockHttpServletRequest request;
+    private CandiHandlerMapping.CandiPageHandler handler;
+
+    @Setup
+    public void setUp() {
+        BenchmarkDatabase database = BenchmarkDatabase.get();
+        entityManager = database.entityManager();
+        readOnlyTransaction = new TransactionTemplate(database.transactionManager());
+        readOnlyTransaction.setReadOnly(true);
+        service = database.newService();
+        applicationContext = new GenericApplicationContext();
+        applicationContext.registerBean(PAGE_BEAN, ProductPages.Exact.class);
+        applicationContext.refresh();
+        interceptor = new QueryBindInterceptor(service, applicationContext);
+        handler = new CandiHandlerMapping.CandiPageHandler(PAGE_BEAN);
+        request = BenchmarkDatabase.bindRequest("category", "category-7", "status", "ACTIVE");
+    }
+
+    @TearDown
+    public void tearDown() {
+        applicationContext.close();
+        service.destroy();
+    }
+
+    /**
+     * The page and the count written by hand with the Criteria API.
+     */
+    @Benchmark
+    public Object rawJpa() {
+        return readOnlyTransaction.execute(status -> {
+            CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+            CriteriaQuery<Tuple> query = cb.createTupleQuery();
+            Root<Product> root = query.from(Product.class);
+            List<Selection<?>> selections = new ArrayList<>();
+            for (String column : ProductPages.COLUMNS) {
+                selections.add(root.get(column));
+            }
+            query.multiselect(selections).where(filters(cb, root)).orderBy(cb.asc(root.get("id")));
+            List<Tuple> rows = entityManager.createQuery(query).setFirstResult(0).setMaxResults(20).getResultList();
+
+            CriteriaQuery<Long> count = cb.createQuery(Long.class);
+            Root<Product> countRoot = count.from(Product.class);
+            count.select(cb.count(countRoot)).where(filters(cb, countRoot));
+            return List.of(rows, entityManager.createQuery(count).getSingleResult());
+        });
+    }
+
+    private static Predicate[] filters(CriteriaBuilder cb, Root<Product> root) {
+        return new Predicate[] {
+                cb.equal(root.get("category"), "category-7"),
+                cb.equal(root.get("status"), Product.Status.ACTIVE)
+        };
+    }
+
+    /**
+     * QueryBindService.execute: parameter binding, cached criteria and the result.
+     */
+    @Benchmark
+    public Object service() {
+        return service.execute(ProductPages.Exact.class);
+    }
+
+    /**
+     * QueryBindInterceptor.preHandle, as for a GET of the page: the service call
+     * plus resolving the page bean and filling its @QueryResult field.
+     */
+    @Benchmark
+    public Object interceptor() throws Exception {
+        return interceptor.preHandle(request, new MockHttpServletResponse(), handler);
+    }
+}
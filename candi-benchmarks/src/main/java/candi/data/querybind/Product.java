@@ -0,0 +1,78 @@
+package candi.data.querybind;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Benchmark entity. Rows are generated by {@link BenchmarkDatabase}; category,
+ * status and created_at are indexed, price and the text columns are not.
+ */
+@Entity
+@Table(name = "product", indexes = {
+        @Index(name = "product_category", columnList = "category"),
+        @Index(name = "product_status", columnList = "status"),
+        @Index(name = "product_created_at", columnList = "created_at")
+})
+public class Product {
+
+    public enum Status { ACTIVE, ARCHIVED }
+
+    @Id
+    private Long id;
+
+    @Filterable(op = FilterOp.STARTS_WITH)
+    private String name;
+
+    @Filterable(op = FilterOp.LIKE)
+    private String brand;
+
+    @Filterable
+    private String category;
+
+    @Filterable
+    @Enumerated(EnumType.STRING)
+    private Status status;
+
+    @Filterable(param = "minPrice", op = FilterOp.GREATER_THAN)
+    private BigDecimal price;
+
+    @Filterable(param = "created", op = FilterOp.BETWEEN)
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getBrand() {
+        return brand;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public BigDecimal getPrice() {
+        return price;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+}
@@ -0,0 +1,55 @@
+package candi.data.querybind;
+
+import candi.runtime.CandiPage;
+
+import java.util.Map;
+
+/**
+ * The @QueryBind pages the benchmarks execute. Apart from the aspect a page
+ * measures, all select the same columns with the same default page size.
+ */
+final class ProductPages {
+
+    /** The columns every page selects, for the hand-written queries. */
+    static final String[] COLUMNS = {"id", "name", "brand", "category", "price", "createdAt"};
+
+    private ProductPages() {
+    }
+
+    /** OFFSET pagination with an exact count. */
+    @QueryBind(entity = Product.class, columns = {"id", "name", "brand", "category", "price", "createdAt"})
+    public static class Exact implements CandiPage {
+        @QueryResult
+        QueryBindResult<Map<String, Object>> products;
+    }
+
+    /** Count stops at countCap rows. */
+    @QueryBind(entity = Product.class, columns = {"id", "name", "brand", "category", "price", "createdAt"},
+            countStrategy = CountStrategy.CAPPED)
+    public static class Capped {}
+
+    /** No count; one extra row tells whether a next page exists. */
+    @QueryBind(entity = Product.class, columns = {"id", "name", "brand", "category", "price", "createdAt"},
+            countStrategy = CountStrategy.NONE)
+    public static class Uncounted {}
+
+    /** Count and data query run concurrently. */
+    @QueryBind(entity = Product.class, columns = {"id", "name", "brand", "category", "price", "createdAt"},
+            parallel = true)
+    public static class Parallel {}
+
+    /** KEYSET pagination without count. */
+    @QueryBind(entity = Product.class, columns = {"id", "name", "brand", "category", "price", "createdAt"},
+            pagination = Pagination.KEYSET, countStrategy = CountStrategy.NONE)
+    public static class Keyset {}
+
+    /** search as LIKE '%term%' across name and brand. */
+    @QueryBind(entity = Product.class, columns = {"id", "name", "brand", "category", "price", "createdAt"},
+            searchFields = {"name", "brand"}, countStrategy = CountStrategy.CAPPED)
+    public static class LikeSearch {}
+
+    /** search through the in-memory SearchIndex across name and brand. */
+    @QueryBind(entity = Product.class, columns = {"id", "name", "brand", "category", "price", "createdAt"},
+            searchFields = {"name", "brand"}, searchMode = SearchMode.INDEX, countStrategy = CountStrategy.CAPPED)
+    public static class IndexSearch {}
+}
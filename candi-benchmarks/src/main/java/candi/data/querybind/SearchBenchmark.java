@@ -0,0 +1,59 @@
+package candi.data.querybind;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The search parameter across name and brand, as LIKE '%term%' against the
+ * in-memory SearchIndex. "123456" matches one product. "tango" matches 5% of
+ * the rows, more than the index hands to the query, so INDEX looks the term
+ * up and then falls back to LIKE.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Thread)
+public class SearchBenchmark {
+
+    @Param({"123456", "tango"})
+    public String term;
+
+    private QueryBindService service;
+
+    @Setup
+    public void setUp() {
+        service = BenchmarkDatabase.get().newService();
+        service.setSearchIndex(new InMemorySearchIndex());
+        service.rebuildSearchIndex(ProductPages.IndexSearch.class);
+        BenchmarkDatabase.bindRequest("search", term);
+    }
+
+    @TearDown
+    public void tearDown() {
+        service.destroy();
+    }
+
+    @Benchmark
+    public Object like() {
+        return service.execute(ProductPages.LikeSearch.class);
+    }
+
+    @Benchmark
+    public Object index() {
+        return service.execute(ProductPages.IndexSearch.class);
+    }
+}
@@ -0,0 +1,115 @@
+package candi.data.querybind;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One active @Filterable filter of a request, with its value already converted.
+ *
+ * The form says which predicate the filter becomes. Form and number of values
+ * make up the filter's part of the query shape; the values themselves are only
+ * ever bound as query parameters. IN lists are padded to the next power of two
+ * (repeating the last value), so lists of 5, 6, 7 or 8 values share one SQL
+ * statement.
+ *
+ * @param filter the compiled @Filterable field
+ * @param form   the predicate to build
+ * @param values converted parameter values, in predicate order
+ */
+record BoundFilter(FilterPlan.FieldFilter filter, Form form, List<Object> values) {
+
+    static final char LIKE_ESCAPE = '\\';
+
+    /**
+     * Bind the raw URL parameter value of a filter.
+     *
+     * @return the bound filter, or null if the value does not form a predicate
+     *         (e.g. BETWEEN without exactly two values)
+     * @throws RuntimeException if a value cannot be converted to the field type
+     */
+    static BoundFilter bind(FilterPlan.FieldFilter filter, String raw) {
+        String value = filter.normalized() ? TextNormalizer.fold(raw) : raw;
+        return switch (filter.op()) {
+            case EQUALS -> {
+                if ("null".equalsIgnoreCase(value)) {
+                    yield new BoundFilter(filter, Form.IS_NULL, List.of());
+                }
+                if ("!null".equalsIgnoreCase(value)) {
+                    yield new BoundFilter(filter, Form.IS_NOT_NULL, List.of());
+                }
+                yield new BoundFilter(filter, Form.EQUAL, List.of(filter.convert(value)));
+            }
+            case LIKE -> new BoundFilter(filter, Form.LIKE, List.of("%" + value.toLowerCase() + "%"));
+            case STARTS_WITH -> new BoundFilter(filter, Form.STARTS_WITH, List.of(escapeLike(value) + "%"));
+            case GREATER_THAN -> new BoundFilter(filter, Form.GREATER_THAN, List.of(filter.convert(value)));
+            case LESS_THAN -> new BoundFilter(filter, Form.LESS_THAN, List.of(filter.convert(value)));
+            case IN -> {
+                List<Object> values = new ArrayList<>();
+                for (String part : value.split(",")) {
+                    values.add(filter.convert(part.trim()));
+                }
+                yield new BoundFilter(filter, Form.IN, padded(values));
+            }
+            case BETWEEN -> {
+                // Value format: "from,to" or use paired params
+                String[] parts = value.split(",");
+                if (parts.length != 2) {
+                    yield null;
+                }
+                yield new BoundFilter(filter, Form.BETWEEN,
+                        List.of(filter.convert(parts[0].trim()), filter.convert(parts[1].trim())));
+            }
+            case IS_NULL -> new BoundFilter(filter, Form.IS_NULL, List.of());
+            case IS_NOT_NULL -> new BoundFilter(filter, Form.IS_NOT_NULL, List.of());
+        };
+    }
+
+    /**
+     * Escape the LIKE wildcards in a value, so a prefix only matches literally.
+     */
+    static String escapeLike(String value) {
+        return value.replace(String.valueOf(LIKE_ESCAPE), String.valueOf(LIKE_ESCAPE) + LIKE_ESCAPE)
+                .replace("%", LIKE_ESCAPE + "%")
+                .replace("_", LIKE_ESCAPE + "_");
+    }
+
+    /**
+     * Pad a list to the next power of two by repeating its last element.
+     */
+    static <V> List<V> padded(List<V> values) {
+        int bucket = bucketSize(values.size());
+        List<V> padded = new ArrayList<>(bucket);
+        padded.addAll(values);
+        while (padded.size() < bucket) {
+            padded.add(values.get(values.size() - 1));
+        }
+        return padded;
+    }
+
+    static int bucketSize(int size) {
+        return size <= 1 ? size : Integer.highestOneBit(size - 1) << 1;
+    }
+
+    /**
+     * Name of the query parameter carrying the value at the given index.
+     */
+    String parameterName(int index) {
+        return "f" + filter.ordinal() + "_" + index;
+    }
+
+    /**
+     * This filter's contribution to the query shape.
+     */
+    Shape shape() {
+        return new Shape(filter.ordinal(), form, values.size());
+    }
+
+    /**
+     * The predicate a bound filter turns into.
+     */
+    enum Form {
+        EQUAL, IS_NULL, IS_NOT_NULL, LIKE, STARTS_WITH, GREATER_THAN, LESS_THAN, IN, BETWEEN
+    }
+
+    record Shape(int filter, Form form, int arity) {}
+}
@@ -0,0 +1,117 @@
+package candi.data.querybind;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The URL parameters of one request, bound against a {@link FilterPlan}.
+ *
+ * Everything QueryBindService reads from the HTTP request is captured here, so
+ * query execution no longer needs the request itself.
+ *
+ * @param plan          the compiled plan of the page class
+ * @param page          requested page number (0-based, OFFSET pagination only)
+ * @param size          page size, clamped to 1..maxPageSize
+ * @param sort          sort field
+ * @param direction     sort direction ("asc" or "desc")
+ * @param search        search term, or null
+ * @param cursor        keyset cursor token, or null
+ * @param searchIds     ids the SearchIndex matched for the search term (padded like
+ *                      an IN list), or null to match the term with LIKE
+ * @param filters       the active @Filterable filters with converted values
+ * @param activeFilters active parameter names and values, as exposed on QueryBindResult
+ * @param user          who the request belongs to for @QueryBind(prefetch = true), or null
+ */
+record BoundQuery(FilterPlan plan, int page, int size, String sort, String direction, String search,
+                  String cursor, List<Object> searchIds, List<BoundFilter> filters,
+                  Map<String, String> activeFilters, String user) {
+
+    static final String SEARCH_PARAMETER = "search";
+
+    boolean hasSearch() {
+        return search != null && !search.isBlank();
+    }
+
+    boolean descending() {
+        return "desc".equalsIgnoreCase(direction);
+    }
+
+    /**
+     * The structure of the WHERE clause: whether and how a search applies, and each active
+     * filter's form and value count. Requests with equal shapes differ only in
+     * parameter values and share one compiled query.
+     */
+    List<Object> shape() {
+        List<Object> shape = new ArrayList<>(filters.size() + 1);
+        shape.add(searchIds != null ? "ids:" + searchIds.size() : hasSearch());
+        for (BoundFilter filter : filters) {
+            shape.add(filter.shape());
+        }
+        return shape;
+    }
+
+    static String searchIdParameter(int index) {
+        return "searchId" + index;
+    }
+
+    /**
+     * Values of all query parameters the WHERE clause may declare, by name.
+     */
+    Map<String, Object> parameters() {
+        Map<String, Object> parameters = new HashMap<>();
+        if (searchIds != null) {
+            for (int i = 0; i < searchIds.size(); i++) {
+                parameters.put(searchIdParameter(i), searchIds.get(i));
+            }
+        } else if (hasSearch()) {
+            parameters.put(SEARCH_PARAMETER, "%" + search.toLowerCase() + "%");
+        }
+        for (BoundFilter filter : filters) {
+            List<Object> values = filter.values();
+            for (int i = 0; i < values.size(); i++) {
+                parameters.put(filter.parameterName(i), values.get(i));
+            }
+        }
+        return parameters;
+    }
+
+    /**
+     * This query with a different set of active filters, e.g. without the filters
+     * on a facet's own field.
+     */
+    BoundQuery withFilters(List<BoundFilter> filters) {
+        return new BoundQuery(plan, page, size, sort, direction, search, cursor, searchIds, filters, activeFilters,
+                user);
+    }
+
+    /**
+     * This query for the page after its result: the next page number, or with
+     * keyset pagination the result's next cursor.
+     */
+    BoundQuery next(String nextCursor) {
+        boolean keyset = plan.config().pagination() == Pagination.KEYSET;
+        return new BoundQuery(plan, keyset ? page : page + 1, size, sort, direction, search,
+                keyset ? nextCursor : cursor, searchIds, filters, activeFilters, user);
+    }
+
+    /**
+     * Active filters sorted by parameter name, so equivalent requests compare
+     * equal regardless of parameter order. Values are kept verbatim because they
+     * are bound verbatim.
+     */
+    Map<String, String> normalizedFilters() {
+        return new TreeMap<>(activeFilters);
+    }
+
+    /**
+     * Canonical key of this request for result caching.
+     */
+    QueryCacheKey cacheKey() {
+        boolean keyset = plan.config().pagination() == Pagination.KEYSET;
+        return new QueryCacheKey(plan.pageClass(), plan.config().name(), plan.entityClass(), normalizedFilters(),
+                sort, direction.toLowerCase(), keyset ? 0 : page, size, keyset ? cursor : null);
+    }
+}
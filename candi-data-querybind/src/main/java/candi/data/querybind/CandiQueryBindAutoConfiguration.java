@@ -1,39 +1,276 @@
 package candi.data.querybind;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.binder.MeterBinder;
 import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.beans.BeanInstantiationException;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
 import org.springframework.boot.autoconfigure.AutoConfiguration;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.DataSourceBuilder;
 import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationListener;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.util.ClassUtils;
 import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
 /**
  * Spring Boot auto-configuration for Candi QueryBind.
  * Activated when an EntityManager is present (JPA is configured).
  *
  * Creates:
+ * - QueryResultCache (in-memory result cache, unless the app defines its own)
+ * - SearchIndex (in-memory full-text index, unless the app defines its own)
  * - QueryBindService (executes JPA Criteria queries from URL params)
- * - QueryBindInterceptor (auto-populates @QueryResult fields)
+ * - QueryBindInterceptor (auto-populates @QueryResult fields, serves JSON pages)
+ * - MicrometerQueryBindMetrics (QueryBind meters, when Micrometer is on the classpath)
+ * - QueryBindRoutingDataSource around the "dataSource" bean, when candi.querybind.replica.url is set
+ * - a Hibernate StatementInspector that captures SQL for the slow query log, when it is on
+ * - a startup listener that builds the search index for searchMode = INDEX pages
+ * - a startup listener that reports bindings without a declared index to filter or sort by
  */
 @AutoConfiguration
 @ConditionalOnBean(EntityManager.class)
+@EnableConfigurationProperties(QueryBindProperties.class)
 public class CandiQueryBindAutoConfiguration implements WebMvcConfigurer {
 
+    private static final Logger log = LoggerFactory.getLogger(CandiQueryBindAutoConfiguration.class);
+
+    private final QueryBindProperties properties;
     private final ApplicationContext applicationContext;
 
-    public CandiQueryBindAutoConfiguration(ApplicationContext applicationContext) {
+    public CandiQueryBindAutoConfiguration(QueryBindProperties properties, ApplicationContext applicationContext) {
+        this.properties = properties;
         this.applicationContext = applicationContext;
     }
 
     @Bean
-    public QueryBindService queryBindService(EntityManager entityManager) {
-        return new QueryBindService(entityManager);
+    @ConditionalOnMissingBean
+    public QueryResultCache queryResultCache() {
+        return new InMemoryQueryResultCache(properties.getResultCacheMaxEntries());
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public SearchIndex searchIndex() {
+        return new InMemorySearchIndex();
+    }
+
+    @Bean
+    public QueryBindService queryBindService(EntityManager entityManager,
+                                             ObjectProvider<PlatformTransactionManager> transactionManager,
+                                             QueryResultCache queryResultCache,
+                                             SearchIndex searchIndex,
+                                             ObjectProvider<QueryBindMetrics> metrics,
+                                             ObjectProvider<DataSource> dataSource) {
+        QueryBindService service = new QueryBindService(entityManager, transactionManager.getIfUnique());
+        service.setResultCache(queryResultCache);
+        service.setSearchIndex(searchIndex);
+        metrics.ifAvailable(service::setMetrics);
+        service.setSlowQueryThreshold(properties.getSlowQueryThreshold());
+        if (dataSource.getIfUnique() instanceof QueryBindRoutingDataSource) {
+            service.setReplicaReads(true);
+            service.setPrimaryAfterWrite(properties.getReplica().getPrimaryAfterWrite());
+        }
+        return service;
+    }
+
+    /**
+     * Wraps the "dataSource" bean in a QueryBindRoutingDataSource whose replica is
+     * a pool built from candi.querybind.replica.*.
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "candi.querybind.replica", name = "url")
+    static BeanPostProcessor queryBindReplicaDataSource(Environment environment) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!"dataSource".equals(beanName) || !(bean instanceof DataSource primary)
+                        || bean instanceof QueryBindRoutingDataSource) {
+                    return bean;
+                }
+                QueryBindProperties.Replica replica = Binder.get(environment)
+                        .bind("candi.querybind.replica", QueryBindProperties.Replica.class)
+                        .orElseGet(QueryBindProperties.Replica::new);
+                DataSource replicaDataSource = DataSourceBuilder.create()
+                        .url(replica.getUrl())
+                        .username(replica.getUsername())
+                        .password(replica.getPassword())
+                        .build();
+                log.info("QueryBind: reading from replica {}", replica.getUrl());
+                return new QueryBindRoutingDataSource(primary, replicaDataSource);
+            }
+        };
+    }
+
+    /**
+     * Publishes QueryBind meters (e.g. querybind.executions) when Micrometer is present.
+     */
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(MeterBinder.class)
+    static class MetricsConfiguration {
+
+        @Bean
+        MicrometerQueryBindMetrics queryBindMetrics() {
+            return new MicrometerQueryBindMetrics();
+        }
+    }
+
+    /**
+     * Registers the StatementInspector that gives the slow query log its SQL when
+     * candi.querybind.slow-query-threshold is above zero. An inspector the
+     * application configured (instance, class or class name) is kept and called
+     * first.
+     */
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(name = "org.hibernate.resource.jdbc.spi.StatementInspector")
+    static class SlowQueryConfiguration {
+
+        static final String STATEMENT_INSPECTOR = "hibernate.session_factory.statement_inspector";
+
+        @Bean
+        HibernatePropertiesCustomizer queryBindSqlCapture(QueryBindProperties properties) {
+            return hibernateProperties -> {
+                Duration threshold = properties.getSlowQueryThreshold();
+                if (threshold == null || threshold.isZero() || threshold.isNegative()) {
+                    return;
+                }
+                Object inspector = hibernateProperties.get(STATEMENT_INSPECTOR);
+                if (inspector instanceof SqlCapture) {
+                    return;
+                }
+                hibernateProperties.put(STATEMENT_INSPECTOR,
+                        inspector == null ? SqlCapture.INSTANCE : new SqlCapture(statementInspector(inspector)));
+            };
+        }
+
+        /**
+         * The inspector a statement_inspector setting names, created the way
+         * Hibernate would: an instance as is, a class or class name through its
+         * no-argument constructor.
+         */
+        private static StatementInspector statementInspector(Object setting) {
+            if (setting instanceof StatementInspector inspector) {
+                return inspector;
+            }
+            try {
+                Class<?> type = setting instanceof Class<?> settingClass
+                        ? settingClass
+                        : ClassUtils.forName(setting.toString().trim(), ClassUtils.getDefaultClassLoader());
+                return (StatementInspector) BeanUtils.instantiateClass(type);
+            } catch (ClassNotFoundException | LinkageError | BeanInstantiationException | ClassCastException e) {
+                throw new QueryBindException("Cannot create the StatementInspector " + setting
+                        + " configured as " + STATEMENT_INSPECTOR, e);
+            }
+        }
+    }
+
+    /**
+     * Builds the search index of every @QueryBind(searchMode = INDEX) page once the
+     * application is ready, on a background thread so startup is not delayed.
+     * Searches use LIKE until the index of their entity is built.
+     */
+    @Bean
+    public ApplicationListener<ApplicationReadyEvent> queryBindSearchIndexInitializer(
+            QueryBindService queryBindService) {
+        return event -> {
+            List<Class<?>> pages = new ArrayList<>();
+            for (Class<?> pageClass : queryBindPages()) {
+                for (QueryBind config : pageClass.getAnnotationsByType(QueryBind.class)) {
+                    if (config.searchMode() == SearchMode.INDEX) {
+                        pages.add(pageClass);
+                        break;
+                    }
+                }
+            }
+            if (pages.isEmpty()) {
+                return;
+            }
+            Thread.ofVirtual().name("querybind-search-index").start(() -> {
+                try {
+                    queryBindService.rebuildSearchIndex(pages.toArray(new Class<?>[0]));
+                } catch (RuntimeException e) {
+                    log.error("QueryBind: building the search index failed", e);
+                }
+            });
+        };
+    }
+
+    /**
+     * Logs, once the application is ready, every binding whose filters, search or
+     * default sort have no index declared on the entity, see IndexAdvisor.
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "candi.querybind", name = "index-advisor", matchIfMissing = true)
+    public ApplicationListener<ApplicationReadyEvent> queryBindIndexAdvisor(QueryBindService queryBindService) {
+        return event -> {
+            for (Class<?> pageClass : queryBindPages()) {
+                for (QueryBind config : pageClass.getAnnotationsByType(QueryBind.class)) {
+                    String binding = pageClass.getSimpleName()
+                            + (config.name().isEmpty() ? "" : "[" + config.name() + "]");
+                    try {
+                        List<String> advice = queryBindService.indexAdvice(pageClass, config.name());
+                        if (!advice.isEmpty()) {
+                            log.warn("QueryBind: {} will scan the {} table: {}", binding,
+                                    config.entity().getSimpleName(), String.join("; ", advice));
+                        }
+                    } catch (RuntimeException e) {
+                        log.warn("QueryBind: could not check the indexes of {}: {}", binding, e.getMessage());
+                    }
+                }
+            }
+        };
+    }
+
+    /**
+     * Page classes of the beans annotated with @QueryBind.
+     */
+    private Set<Class<?>> queryBindPages() {
+        Set<String> beanNames = new LinkedHashSet<>();
+        Collections.addAll(beanNames, applicationContext.getBeanNamesForAnnotation(QueryBind.class));
+        Collections.addAll(beanNames, applicationContext.getBeanNamesForAnnotation(QueryBinds.class));
+        Set<Class<?>> pages = new LinkedHashSet<>();
+        for (String beanName : beanNames) {
+            Class<?> type = applicationContext.getType(beanName);
+            if (type != null) {
+                pages.add(ClassUtils.getUserClass(type));
+            }
+        }
+        return pages;
     }
 
     @Bean
-    public QueryBindInterceptor queryBindInterceptor(QueryBindService queryBindService) {
-        return new QueryBindInterceptor(queryBindService, applicationContext);
+    public QueryBindInterceptor queryBindInterceptor(QueryBindService queryBindService,
+                                                     ObjectProvider<ObjectMapper> objectMapper) {
+        QueryBindInterceptor interceptor = new QueryBindInterceptor(queryBindService, applicationContext);
+        if (properties.isJsonPages()) {
+            objectMapper.ifAvailable(interceptor::setObjectMapper);
+        }
+        return interceptor;
     }
 
     @Override
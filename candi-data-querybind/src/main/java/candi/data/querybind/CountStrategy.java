@@ -0,0 +1,30 @@
+package candi.data.querybind;
+
+/**
+ * How QueryBindService determines the total number of matching rows.
+ */
+public enum CountStrategy {
+
+    /**
+     * Run COUNT(*) under the current filters on every request.
+     */
+    EXACT,
+
+    /**
+     * Run COUNT(*) and reuse the result for @QueryBind.countCacheSeconds
+     * for requests with the same filters and search term.
+     */
+    CACHED,
+
+    /**
+     * Count at most @QueryBind.countCap rows. Larger results are reported as
+     * "N+" (TotalKind.CAPPED).
+     */
+    CAPPED,
+
+    /**
+     * Skip counting. One extra row is fetched to tell whether a next page
+     * exists; the total is reported as unknown (TotalKind.UNKNOWN).
+     */
+    NONE
+}
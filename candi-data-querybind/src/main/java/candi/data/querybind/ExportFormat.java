@@ -0,0 +1,51 @@
+package candi.data.querybind;
+
+/**
+ * File formats for streaming exports of @QueryBind results.
+ */
+public enum ExportFormat {
+
+    /**
+     * Comma-separated values with a header row (RFC 4180 quoting): ?format=csv.
+     * Text that starts like a spreadsheet formula gets a leading apostrophe.
+     */
+    CSV("text/csv", "csv"),
+
+    /**
+     * Newline-delimited JSON, one object per row: ?format=ndjson
+     */
+    NDJSON("application/x-ndjson", "ndjson");
+
+    private final String contentType;
+    private final String extension;
+
+    ExportFormat(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * Resolve the value of the "format" URL parameter.
+     *
+     * @return the matching format, or null if the value names no export format
+     */
+    public static ExportFormat fromParameter(String value) {
+        if (value == null) {
+            return null;
+        }
+        for (ExportFormat format : values()) {
+            if (format.extension.equalsIgnoreCase(value.trim())) {
+                return format;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,185 @@
+package candi.data.querybind;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * Writes exported rows, one at a time, in an {@link ExportFormat}.
+ *
+ * Nothing is buffered beyond the current row, so memory use does not grow with
+ * the number of rows. Values are rendered with toString(), except enums (name)
+ * and, in NDJSON, numbers and booleans (unquoted). In CSV, text that a
+ * spreadsheet would run as a formula is prefixed with an apostrophe.
+ */
+abstract class ExportWriter {
+
+    protected final Writer out;
+    protected final List<String> columns;
+
+    private ExportWriter(Writer out, List<String> columns) {
+        this.out = out;
+        this.columns = columns;
+    }
+
+    static ExportWriter create(ExportFormat format, Writer out, List<String> columns) {
+        return switch (format) {
+            case CSV -> new Csv(out, columns);
+            case NDJSON -> new Ndjson(out, columns);
+        };
+    }
+
+    /**
+     * Write anything that precedes the first row.
+     */
+    abstract void begin();
+
+    /**
+     * Write one row; values are in the order of the columns.
+     */
+    abstract void row(Object[] values);
+
+    void flush() {
+        try {
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    protected void write(String text) {
+        try {
+            out.write(text);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static String text(Object value) {
+        return value instanceof Enum<?> e ? e.name() : String.valueOf(value);
+    }
+
+    private static final class Csv extends ExportWriter {
+
+        Csv(Writer out, List<String> columns) {
+            super(out, columns);
+        }
+
+        @Override
+        void begin() {
+            row(columns.toArray());
+        }
+
+        @Override
+        void row(Object[] values) {
+            StringBuilder line = new StringBuilder();
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    line.append(',');
+                }
+                if (values[i] != null) {
+                    String text = text(values[i]);
+                    appendField(line, values[i] instanceof Number ? text : defused(text));
+                }
+            }
+            line.append("\r\n");
+            write(line.toString());
+        }
+
+        /**
+         * Text starting with =, +, -, @, tab or carriage return is taken for a
+         * formula by Excel and Google Sheets (CSV injection); a leading apostrophe
+         * makes them show it as text. Numbers are left alone, so -5 stays a number.
+         */
+        private static String defused(String value) {
+            if (value.isEmpty()) {
+                return value;
+            }
+            return switch (value.charAt(0)) {
+                case '=', '+', '-', '@', '\t', '\r' -> "'" + value;
+                default -> value;
+            };
+        }
+
+        private static void appendField(StringBuilder line, String value) {
+            boolean quote = value.indexOf(',') >= 0 || value.indexOf('"') >= 0
+                    || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0;
+            if (!quote) {
+                line.append(value);
+                return;
+            }
+            line.append('"').append(value.replace("\"", "\"\"")).append('"');
+        }
+    }
+
+    private static final class Ndjson extends ExportWriter {
+
+        Ndjson(Writer out, List<String> columns) {
+            super(out, columns);
+        }
+
+        @Override
+        void begin() {
+        }
+
+        @Override
+        void row(Object[] values) {
+            StringBuilder line = new StringBuilder("{");
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    line.append(',');
+                }
+                appendJson(line, columns.get(i));
+                line.append(':');
+                appendJson(line, values[i]);
+            }
+            line.append("}\n");
+            write(line.toString());
+        }
+    }
+
+    /**
+     * Append a scalar as a JSON value: null, number, boolean or string.
+     */
+    static void appendJson(StringBuilder json, Object value) {
+        if (value == null) {
+            json.append("null");
+            return;
+        }
+        if (value instanceof Boolean || (value instanceof Number number && isFinite(number))) {
+            json.append(value);
+            return;
+        }
+        String text = text(value);
+        json.append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '"' -> json.append("\\\"");
+                case '\\' -> json.append("\\\\");
+                case '\n' -> json.append("\\n");
+                case '\r' -> json.append("\\r");
+                case '\t' -> json.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+                }
+            }
+        }
+        json.append('"');
+    }
+
+    private static boolean isFinite(Number number) {
+        if (number instanceof Double d) {
+            return Double.isFinite(d);
+        }
+        if (number instanceof Float f) {
+            return Float.isFinite(f);
+        }
+        return true;
+    }
+}
@@ -15,6 +15,13 @@ public enum FilterOp {
      */
     LIKE,
 
+    /**
+     * Prefix match: ?name=jo matches values starting with "jo". Case-sensitive and
+     * without lower(), so a B-tree index on the column can serve it; use it on a
+     * @SearchNormalized column for a case- and accent-insensitive prefix match.
+     */
+    STARTS_WITH,
+
     /**
      * Greater than: ?minPrice=100
      */
@@ -0,0 +1,677 @@
+package candi.data.querybind;
+
+import jakarta.persistence.metamodel.Attribute;
+import jakarta.persistence.metamodel.EntityType;
+import jakarta.persistence.metamodel.ManagedType;
+import jakarta.persistence.metamodel.Metamodel;
+import jakarta.persistence.metamodel.PluralAttribute;
+import jakarta.persistence.metamodel.SingularAttribute;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.RecordComponent;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Immutable, precompiled binding metadata for one @QueryBind of a page class.
+ *
+ * Holds everything QueryBindService needs that does not depend on the current
+ * request: the @Filterable fields keyed by URL parameter name, a value converter
+ * per field type, field paths already split into segments, the entity's id
+ * attribute, the shape of the rows to select and the associations to fetch
+ * with them. A plan is built
+ * once per page class and binding, so handling a request only costs map lookups and
+ * value conversions instead of walking the entity hierarchy with reflection.
+ */
+final class FilterPlan {
+
+    private final Class<?> pageClass;
+    private final QueryBind config;
+    private final String parameterPrefix;
+    private final Class<?> entityClass;
+    private final List<FieldFilter> filters;
+    private final Map<String, FieldFilter> filtersByParam;
+    private final List<String[]> searchPaths;
+    private final String[] defaultSortPath;
+    private final String idName;
+    private final RowShape rowShape;
+    private final List<String> columns;
+    private final List<String[]> columnPaths;
+    private final Constructor<?> projectionConstructor;
+    private final List<String[]> fetchPaths;
+    private final List<Facet> facets;
+    private final List<String> exportColumns;
+    private final List<String[]> exportColumnPaths;
+
+    private FilterPlan(Class<?> pageClass, QueryBind config, List<FieldFilter> filters,
+                       Map<String, FieldFilter> filtersByParam, List<String[]> searchPaths, String idName,
+                       RowShape rowShape, List<String> columns, Constructor<?> projectionConstructor,
+                       List<String> exportColumns) {
+        this.pageClass = pageClass;
+        this.config = config;
+        this.parameterPrefix = parameterPrefix(config);
+        this.entityClass = config.entity();
+        this.filters = filters;
+        this.filtersByParam = filtersByParam;
+        this.searchPaths = searchPaths;
+        this.defaultSortPath = splitPath(config.defaultSort());
+        this.idName = idName;
+        this.rowShape = rowShape;
+        this.columns = columns;
+        List<String[]> paths = new ArrayList<>();
+        for (String column : columns) {
+            paths.add(splitPath(column));
+        }
+        this.columnPaths = Collections.unmodifiableList(paths);
+        this.projectionConstructor = projectionConstructor;
+        List<String[]> fetch = new ArrayList<>();
+        for (String association : config.fetch()) {
+            fetch.add(splitPath(association));
+        }
+        this.fetchPaths = Collections.unmodifiableList(fetch);
+        List<Facet> facetList = new ArrayList<>();
+        for (String name : config.facets()) {
+            FieldFilter byParam = filtersByParam.get(name);
+            String fieldPath = byParam != null ? byParam.fieldName() : name;
+            Set<Integer> ownFilters = new HashSet<>();
+            Set<String> ownParams = new HashSet<>();
+            for (FieldFilter filter : filters) {
+                if (filter.fieldName().equals(fieldPath)) {
+                    ownFilters.add(filter.ordinal());
+                    ownParams.add(filter.paramName());
+                }
+            }
+            facetList.add(new Facet(name, splitPath(fieldPath), Set.copyOf(ownFilters), Set.copyOf(ownParams)));
+        }
+        this.facets = Collections.unmodifiableList(facetList);
+        this.exportColumns = exportColumns;
+        List<String[]> exportPaths = new ArrayList<>();
+        for (String column : exportColumns) {
+            exportPaths.add(splitPath(column));
+        }
+        this.exportColumnPaths = Collections.unmodifiableList(exportPaths);
+    }
+
+    /**
+     * Compile the plan for a binding of a page class annotated with @QueryBind.
+     *
+     * @param binding the @QueryBind name, "" for the unnamed binding
+     */
+    static FilterPlan compile(Class<?> pageClass, String binding, Metamodel metamodel) {
+        QueryBind config = null;
+        for (QueryBind candidate : pageClass.getAnnotationsByType(QueryBind.class)) {
+            if (candidate.name().equals(binding)) {
+                config = candidate;
+            }
+        }
+        if (config == null) {
+            throw new QueryBindException(binding.isEmpty()
+                    ? "Class " + pageClass.getName() + " is not annotated with @QueryBind"
+                    : "Class " + pageClass.getName() + " has no @QueryBind named '" + binding + "'");
+        }
+
+        EntityType<?> entityType;
+        try {
+            entityType = metamodel.entity(config.entity());
+        } catch (IllegalArgumentException e) {
+            throw new QueryBindException("@QueryBind entity " + config.entity().getName()
+                    + " on " + pageClass.getName() + " is not a managed JPA entity", e);
+        }
+        String idName = entityType.hasSingleIdAttribute()
+                ? entityType.getId(entityType.getIdType().getJavaType()).getName()
+                : null;
+
+        List<FieldFilter> filters = new ArrayList<>();
+        Map<String, FieldFilter> filtersByParam = new LinkedHashMap<>();
+        Class<?> current = config.entity();
+
+        while (current != null && current != Object.class) {
+            for (Field field : current.getDeclaredFields()) {
+                Filterable annotation = field.getAnnotation(Filterable.class);
+                if (annotation != null) {
+                    String paramName = annotation.param().isEmpty()
+                            ? field.getName()
+                            : annotation.param();
+                    FieldFilter filter = new FieldFilter(filters.size(), field.getName(), paramName,
+                            splitPath(field.getName()), field.getType(), annotation.op(),
+                            field.isAnnotationPresent(SearchNormalized.class), converterFor(field.getType()));
+                    filters.add(filter);
+                    filtersByParam.putIfAbsent(paramName, filter);
+                }
+            }
+            current = current.getSuperclass();
+        }
+
+        List<String[]> searchPaths = new ArrayList<>();
+        for (String searchField : config.searchFields()) {
+            searchPaths.add(splitPath(searchField));
+        }
+
+        RowShape rowShape;
+        List<String> columns = List.of(config.columns());
+        Constructor<?> projectionConstructor = null;
+        if (config.projection() != void.class) {
+            rowShape = RowShape.PROJECTION;
+            Class<?> projection = config.projection();
+            if (columns.isEmpty()) {
+                if (!projection.isRecord()) {
+                    throw new QueryBindException("@QueryBind projection " + projection.getName()
+                            + " on " + pageClass.getName() + " must be a record or list its constructor columns");
+                }
+                List<String> componentNames = new ArrayList<>();
+                for (RecordComponent component : projection.getRecordComponents()) {
+                    componentNames.add(component.getName());
+                }
+                columns = List.copyOf(componentNames);
+            }
+            projectionConstructor = findConstructor(projection, columns.size(), pageClass);
+        } else {
+            rowShape = columns.isEmpty() ? RowShape.ENTITY : RowShape.COLUMNS;
+        }
+
+        if (config.json() && rowShape == RowShape.ENTITY) {
+            throw new QueryBindException("@QueryBind json on " + pageClass.getName()
+                    + " requires a projection or columns; entities are never serialized");
+        }
+
+        if (config.indexedOnly()) {
+            for (FieldFilter filter : filters) {
+                if (filter.op() == FilterOp.LIKE) {
+                    throw new QueryBindException("@QueryBind indexedOnly on " + pageClass.getName()
+                            + " refuses the LIKE filter on " + config.entity().getSimpleName() + "."
+                            + filter.fieldName() + "; use STARTS_WITH or a @SearchNormalized column");
+                }
+            }
+            if (config.searchFields().length > 0 && config.searchMode() == SearchMode.LIKE) {
+                throw new QueryBindException("@QueryBind indexedOnly on " + pageClass.getName()
+                        + " requires searchMode INDEX for its searchFields");
+            }
+        }
+
+        if (config.searchMode() == SearchMode.INDEX && idName == null) {
+            throw new QueryBindException("@QueryBind searchMode INDEX on " + pageClass.getName()
+                    + " requires a single @Id attribute on " + config.entity().getName());
+        }
+
+        if (config.source() == QuerySource.IN_MEMORY) {
+            if (config.pagination() != Pagination.OFFSET) {
+                throw new QueryBindException("@QueryBind source IN_MEMORY on " + pageClass.getName()
+                        + " requires OFFSET pagination");
+            }
+            if (idName == null) {
+                throw new QueryBindException("@QueryBind source IN_MEMORY on " + pageClass.getName()
+                        + " requires a single @Id attribute on " + config.entity().getName());
+            }
+            if (rowShape == RowShape.ENTITY) {
+                throw new QueryBindException("@QueryBind source IN_MEMORY on " + pageClass.getName()
+                        + " requires a projection or columns; its rows are shared by every request");
+            }
+        }
+
+        if (config.prefetch() && config.lazy()) {
+            throw new QueryBindException("@QueryBind prefetch on " + pageClass.getName()
+                    + " cannot be combined with lazy");
+        }
+
+        if (config.pagination() == Pagination.KEYSET) {
+            // Cursors carry the boundary row's sort key and id as text, so both must convert back
+            Class<?> idType = idName != null ? entityType.getIdType().getJavaType() : null;
+            if (idType != null && !convertible(idType)) {
+                throw new QueryBindException("@QueryBind KEYSET pagination on " + pageClass.getName()
+                        + " does not support the id type " + idType.getName());
+            }
+            Class<?> sortType = attributeType(metamodel, config.entity(), splitPath(config.defaultSort()));
+            if (sortType != null && !convertible(sortType)) {
+                throw new QueryBindException("@QueryBind KEYSET pagination on " + pageClass.getName()
+                        + " cannot sort by " + config.defaultSort() + " of type " + sortType.getName());
+            }
+        }
+
+        if (config.fetch().length > 0) {
+            if (rowShape != RowShape.ENTITY) {
+                throw new QueryBindException("@QueryBind fetch on " + pageClass.getName()
+                        + " cannot be combined with projection or columns");
+            }
+            if (idName == null) {
+                throw new QueryBindException("@QueryBind fetch on " + pageClass.getName()
+                        + " requires a single @Id attribute on " + config.entity().getName());
+            }
+        }
+
+        List<String> exportColumns = columns.isEmpty() ? basicAttributes(entityType) : columns;
+
+        return new FilterPlan(pageClass, config, Collections.unmodifiableList(filters),
+                Collections.unmodifiableMap(filtersByParam), Collections.unmodifiableList(searchPaths), idName,
+                rowShape, columns, projectionConstructor, exportColumns);
+    }
+
+    /**
+     * Names of the entity's basic (non-association, non-embedded) attributes in
+     * field declaration order, superclass first.
+     */
+    private static List<String> basicAttributes(EntityType<?> entityType) {
+        List<String> basic = new ArrayList<>();
+        for (SingularAttribute<?, ?> attribute : entityType.getSingularAttributes()) {
+            if (attribute.getPersistentAttributeType() == Attribute.PersistentAttributeType.BASIC) {
+                basic.add(attribute.getName());
+            }
+        }
+        List<Class<?>> hierarchy = new ArrayList<>();
+        for (Class<?> type = entityType.getJavaType(); type != null && type != Object.class;
+             type = type.getSuperclass()) {
+            hierarchy.add(0, type);
+        }
+        List<String> ordered = new ArrayList<>();
+        for (Class<?> type : hierarchy) {
+            for (Field field : type.getDeclaredFields()) {
+                if (basic.remove(field.getName())) {
+                    ordered.add(field.getName());
+                }
+            }
+        }
+        // Attributes without a matching field (property access) go last
+        ordered.addAll(basic);
+        return List.copyOf(ordered);
+    }
+
+    /**
+     * Java type of the attribute at the end of a path, or null if the path does
+     * not resolve.
+     */
+    private static Class<?> attributeType(Metamodel metamodel, Class<?> entityClass, String[] path) {
+        try {
+            ManagedType<?> type = metamodel.managedType(entityClass);
+            Class<?> javaType = entityClass;
+            for (String segment : path) {
+                Attribute<?, ?> attribute = type.getAttribute(segment);
+                javaType = attribute instanceof PluralAttribute<?, ?, ?> plural
+                        ? plural.getElementType().getJavaType()
+                        : attribute.getJavaType();
+                if (attribute.getPersistentAttributeType() != Attribute.PersistentAttributeType.BASIC) {
+                    type = metamodel.managedType(javaType);
+                }
+            }
+            return javaType;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static Constructor<?> findConstructor(Class<?> projection, int arity, Class<?> pageClass) {
+        Constructor<?> found = null;
+        for (Constructor<?> constructor : projection.getDeclaredConstructors()) {
+            if (constructor.getParameterCount() == arity) {
+                if (found != null) {
+                    throw new QueryBindException("@QueryBind projection " + projection.getName() + " on "
+                            + pageClass.getName() + " has more than one constructor taking " + arity + " arguments");
+                }
+                found = constructor;
+            }
+        }
+        if (found == null) {
+            throw new QueryBindException("@QueryBind projection " + projection.getName() + " on "
+                    + pageClass.getName() + " has no constructor taking " + arity + " arguments");
+        }
+        found.setAccessible(true);
+        return found;
+    }
+
+    Class<?> pageClass() {
+        return pageClass;
+    }
+
+    QueryBind config() {
+        return config;
+    }
+
+    /**
+     * The URL parameter carrying a QueryBind parameter for this binding, e.g.
+     * "orders.page" for "page" on the binding named "orders".
+     */
+    String parameter(String name) {
+        return parameterPrefix + name;
+    }
+
+    static String parameterPrefix(QueryBind config) {
+        return config.name().isEmpty() ? "" : config.name() + ".";
+    }
+
+    Class<?> entityClass() {
+        return entityClass;
+    }
+
+    /**
+     * All @Filterable fields of the entity, in declaration order (subclass first).
+     */
+    List<FieldFilter> filters() {
+        return filters;
+    }
+
+    /**
+     * The filter bound to the given URL parameter name, or null if none.
+     */
+    FieldFilter filter(String paramName) {
+        return filtersByParam.get(paramName);
+    }
+
+    /**
+     * @QueryBind.searchFields as given.
+     */
+    List<String> searchFieldNames() {
+        return List.of(config.searchFields());
+    }
+
+    /**
+     * Pre-split paths of @QueryBind.searchFields.
+     */
+    List<String[]> searchPaths() {
+        return searchPaths;
+    }
+
+    /**
+     * Name of the entity's single @Id attribute, or null for composite ids.
+     */
+    String idName() {
+        return idName;
+    }
+
+    /**
+     * What each result row is: the entity, a projection instance, or a column map.
+     */
+    RowShape rowShape() {
+        return rowShape;
+    }
+
+    /**
+     * Selected attribute paths for PROJECTION (constructor arguments, in order)
+     * and COLUMNS rows; empty for ENTITY rows.
+     */
+    List<String> columns() {
+        return columns;
+    }
+
+    /**
+     * Pre-split paths of {@link #columns()}.
+     */
+    List<String[]> columnPaths() {
+        return columnPaths;
+    }
+
+    /**
+     * Pre-split paths of @QueryBind.fetch; empty when associations load lazily.
+     */
+    List<String[]> fetchPaths() {
+        return fetchPaths;
+    }
+
+    /**
+     * Compiled @QueryBind.facets, in declaration order.
+     */
+    List<Facet> facets() {
+        return facets;
+    }
+
+    /**
+     * Columns written by exports: columns() when set, otherwise the entity's basic
+     * attributes.
+     */
+    List<String> exportColumns() {
+        return exportColumns;
+    }
+
+    /**
+     * Pre-split paths of {@link #exportColumns()}.
+     */
+    List<String[]> exportColumnPaths() {
+        return exportColumnPaths;
+    }
+
+    /**
+     * Whether the page is selected as ids first and its entities loaded in a
+     * second query together with the fetched associations.
+     */
+    boolean twoPhase() {
+        return !fetchPaths.isEmpty();
+    }
+
+    /**
+     * Create a projection row from its selected column values.
+     */
+    Object newProjection(Object[] arguments) {
+        try {
+            return projectionConstructor.newInstance(arguments);
+        } catch (InstantiationException | IllegalAccessException | IllegalArgumentException e) {
+            throw new QueryBindException("Cannot create " + config.projection().getName()
+                    + " from columns " + columns, e);
+        } catch (InvocationTargetException e) {
+            throw new QueryBindException("Constructor of " + config.projection().getName() + " failed",
+                    e.getCause());
+        }
+    }
+
+    /**
+     * Path segments for a sort field, reusing the pre-split default sort when possible.
+     */
+    String[] sortPath(String sort) {
+        return sort.equals(config.defaultSort()) ? defaultSortPath : splitPath(sort);
+    }
+
+    static String[] splitPath(String fieldPath) {
+        return fieldPath.split("\\.");
+    }
+
+    /**
+     * Resolve the converter from a raw URL parameter value to the given field type.
+     * Types without a converter get the raw String.
+     */
+    static Function<String, Object> converterFor(Class<?> targetType) {
+        Function<String, Object> converter = knownConverter(targetType);
+        return converter != null ? converter : value -> value;
+    }
+
+    /**
+     * Whether values of the given type convert from text, rather than being
+     * passed on as the raw String.
+     */
+    static boolean convertible(Class<?> targetType) {
+        return knownConverter(targetType) != null;
+    }
+
+    private static Function<String, Object> knownConverter(Class<?> targetType) {
+        if (targetType == String.class) {
+            return value -> value;
+        }
+        if (targetType == Integer.class || targetType == int.class) {
+            return Integer::parseInt;
+        }
+        if (targetType == Long.class || targetType == long.class) {
+            return Long::parseLong;
+        }
+        if (targetType == Double.class || targetType == double.class) {
+            return Double::parseDouble;
+        }
+        if (targetType == Float.class || targetType == float.class) {
+            return Float::parseFloat;
+        }
+        if (targetType == Short.class || targetType == short.class) {
+            return Short::parseShort;
+        }
+        if (targetType == Byte.class || targetType == byte.class) {
+            return Byte::parseByte;
+        }
+        if (targetType == Character.class || targetType == char.class) {
+            return value -> {
+                if (value.length() != 1) {
+                    throw new IllegalArgumentException("Not a single character: '" + value + "'");
+                }
+                return value.charAt(0);
+            };
+        }
+        if (targetType == Boolean.class || targetType == boolean.class) {
+            return Boolean::parseBoolean;
+        }
+        if (targetType == BigDecimal.class) {
+            return BigDecimal::new;
+        }
+        if (targetType == BigInteger.class) {
+            return BigInteger::new;
+        }
+        if (targetType == LocalDate.class) {
+            return LocalDate::parse;
+        }
+        if (targetType == LocalDateTime.class) {
+            return LocalDateTime::parse;
+        }
+        if (targetType == LocalTime.class) {
+            return LocalTime::parse;
+        }
+        if (targetType == Instant.class) {
+            return Instant::parse;
+        }
+        if (targetType == OffsetDateTime.class) {
+            return OffsetDateTime::parse;
+        }
+        if (targetType == ZonedDateTime.class) {
+            return ZonedDateTime::parse;
+        }
+        if (targetType == Timestamp.class) {
+            return value -> Timestamp.from(Instant.parse(value));
+        }
+        if (targetType == java.sql.Date.class) {
+            return java.sql.Date::valueOf;
+        }
+        if (targetType == Time.class) {
+            return Time::valueOf;
+        }
+        if (targetType == Date.class) {
+            return FilterPlan::parseDate;
+        }
+        if (targetType == UUID.class) {
+            return UUID::fromString;
+        }
+        if (targetType.isEnum()) {
+            return enumConverter(targetType);
+        }
+        return null;
+    }
+
+    /**
+     * Text of a value that {@link #converterFor} turns back into an equal value of
+     * the same type, e.g. for keyset cursors.
+     */
+    static String valueString(Object value) {
+        if (value instanceof Enum<?> e) {
+            return e.name();
+        }
+        if (value instanceof Timestamp timestamp) {
+            return timestamp.toInstant().toString();
+        }
+        if (value instanceof java.sql.Date || value instanceof Time) {
+            return value.toString();
+        }
+        if (value instanceof Date date) {
+            return date.toInstant().toString();
+        }
+        return String.valueOf(value);
+    }
+
+    /**
+     * A java.util.Date from an ISO instant, or from the date or time text of the
+     * java.sql.Date and java.sql.Time values Hibernate returns for
+     * {@code @Temporal(DATE)} and {@code @Temporal(TIME)} attributes.
+     */
+    private static Date parseDate(String value) {
+        if (value.indexOf('T') >= 0) {
+            return Date.from(Instant.parse(value));
+        }
+        return value.indexOf(':') >= 0 ? Time.valueOf(value) : java.sql.Date.valueOf(value);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Function<String, Object> enumConverter(Class<?> targetType) {
+        Class<Enum> enumType = (Class<Enum>) targetType;
+        return value -> Enum.valueOf(enumType, value.toUpperCase());
+    }
+
+    /**
+     * The kind of row a @QueryBind query returns.
+     */
+    enum RowShape {
+        /** Managed entity instances (the default). */
+        ENTITY,
+        /** Instances of @QueryBind.projection constructed from the selected columns. */
+        PROJECTION,
+        /** One Map of column path to value per row, for @QueryBind.columns alone. */
+        COLUMNS
+    }
+
+    /**
+     * A compiled facet: the field to group by and the filters on that same field,
+     * which are left out when counting it.
+     *
+     * @param name         the facet as declared, used as key in QueryBindResult.getFacets()
+     * @param path         attribute path to group by
+     * @param ownFilters   ordinals of the filters on the facet's field
+     * @param ownParams    URL parameter names of those filters
+     */
+    record Facet(String name, String[] path, Set<Integer> ownFilters, Set<String> ownParams) {}
+
+    /**
+     * Describe a query shape ({@link BoundQuery#shape()}) by parameter names and
+     * predicate forms: "search" for a LIKE search, "search:index" for a search
+     * answered by the SearchIndex, then "param:form" per active filter, with the
+     * padded value count after "in". For example "search:index,status:equal,ids:in4",
+     * or "none" without search and filters. Never contains parameter values, so it
+     * is safe for metric tags and logs.
+     */
+    String describeShape(List<Object> shape) {
+        StringBuilder description = new StringBuilder();
+        for (Object part : shape) {
+            String name = switch (part) {
+                case Boolean search -> search ? "search" : null;
+                case String ids -> "search:index";
+                case BoundFilter.Shape filter -> filters.get(filter.filter()).paramName() + ":"
+                        + filter.form().name().toLowerCase()
+                        + (filter.form() == BoundFilter.Form.IN ? String.valueOf(filter.arity()) : "");
+                default -> String.valueOf(part);
+            };
+            if (name != null) {
+                description.append(description.isEmpty() ? "" : ",").append(name);
+            }
+        }
+        return description.isEmpty() ? "none" : description.toString();
+    }
+
+    /**
+     * A precompiled @Filterable field. The ordinal is its position in
+     * {@link #filters()} and names its query parameters. normalized is set for
+     * @SearchNormalized fields, whose values are folded before comparing.
+     */
+    record FieldFilter(int ordinal, String fieldName, String paramName, String[] path, Class<?> fieldType,
+                       FilterOp op, boolean normalized, Function<String, Object> converter) {
+
+        Object convert(String value) {
+            return converter.apply(value);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package candi.data.querybind;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Default {@link QueryResultCache}: a bounded in-process map with per-entry TTL
+ * and least-recently-used eviction.
+ */
+public class InMemoryQueryResultCache implements QueryResultCache {
+
+    private final TtlCache<QueryCacheKey, QueryBindResult<?>> entries;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public InMemoryQueryResultCache(int maxEntries) {
+        this.entries = new TtlCache<>(maxEntries);
+    }
+
+    @Override
+    public QueryBindResult<?> get(QueryCacheKey key) {
+        QueryBindResult<?> result = entries.get(key);
+        if (result != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return result;
+    }
+
+    @Override
+    public void put(QueryCacheKey key, QueryBindResult<?> result, Duration ttl) {
+        entries.put(key, result, ttl.toMillis());
+    }
+
+    @Override
+    public void invalidate(Class<?> entityType) {
+        entries.removeIf(key -> key.entity().isAssignableFrom(entityType));
+    }
+
+    @Override
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    @Override
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * Number of entries currently held, including expired ones not yet evicted.
+     */
+    public int size() {
+        return entries.size();
+    }
+}
@@ -0,0 +1,252 @@
+package candi.data.querybind;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * Default {@link SearchIndex}: an inverted index held in memory, one per entity type.
+ *
+ * Field values are split into words, lowercased and stripped of accents, and each
+ * word points to the ids of the entities containing it. Words are kept sorted, so
+ * a search word matches every indexed word it is a prefix of with one range scan.
+ * Memory grows with the number of distinct (field, word, id) triples.
+ *
+ * A rebuild loads into a new index while searches use the old one. Documents put
+ * or removed meanwhile go to the old index and are also logged, then replayed onto
+ * the new one right before it replaces the old, so they win over the possibly
+ * older rows the rebuild read.
+ */
+public class InMemorySearchIndex implements SearchIndex {
+
+    private static final char FIELD_SEPARATOR = '\u0000';
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private final Map<Class<?>, TypeIndex> indexes = new ConcurrentHashMap<>();
+    /** Rebuilds in progress per entity type; guarded by changeLock, like every swap of indexes. */
+    private final Map<Class<?>, List<Rebuild>> rebuilds = new HashMap<>();
+    private final Object changeLock = new Object();
+
+    @Override
+    public Loader rebuild(Class<?> entityType) {
+        Rebuild rebuild = new Rebuild(entityType);
+        synchronized (changeLock) {
+            rebuilds.computeIfAbsent(entityType, type -> new ArrayList<>()).add(rebuild);
+        }
+        return rebuild;
+    }
+
+    @Override
+    public void put(Class<?> entityType, Object id, Map<String, String> fields) {
+        change(entityType, new Change(id, new HashMap<>(fields)));
+    }
+
+    @Override
+    public void remove(Class<?> entityType, Object id) {
+        change(entityType, new Change(id, null));
+    }
+
+    private void change(Class<?> entityType, Change change) {
+        synchronized (changeLock) {
+            TypeIndex index = indexes.get(entityType);
+            if (index != null) {
+                change.applyTo(index);
+            }
+            for (Rebuild rebuild : rebuilds.getOrDefault(entityType, List.of())) {
+                rebuild.changes.add(change);
+            }
+        }
+    }
+
+    @Override
+    public Set<Object> search(Class<?> entityType, Collection<String> fields, String term, int maxResults) {
+        TypeIndex index = indexes.get(entityType);
+        List<String> words = words(term);
+        if (index == null || words.isEmpty()) {
+            return null;
+        }
+        Set<Object> ids = index.search(fields, words);
+        return ids.size() > maxResults ? null : ids;
+    }
+
+    /**
+     * Number of documents indexed for an entity type.
+     */
+    public int size(Class<?> entityType) {
+        TypeIndex index = indexes.get(entityType);
+        return index == null ? 0 : index.size();
+    }
+
+    /**
+     * Split text into lowercase, accent-free words.
+     */
+    static List<String> words(String text) {
+        List<String> words = new ArrayList<>();
+        if (text == null) {
+            return words;
+        }
+        for (String word : NON_WORD.split(TextNormalizer.fold(text))) {
+            if (!word.isEmpty()) {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+
+    private final class Rebuild implements Loader {
+
+        private final Class<?> entityType;
+        private final TypeIndex fresh = new TypeIndex();
+        private final List<Change> changes = new ArrayList<>();
+
+        Rebuild(Class<?> entityType) {
+            this.entityType = entityType;
+        }
+
+        @Override
+        public void add(Object id, Map<String, String> fields) {
+            fresh.put(id, fields);
+        }
+
+        @Override
+        public void commit() {
+            synchronized (changeLock) {
+                for (Change change : changes) {
+                    change.applyTo(fresh);
+                }
+                indexes.put(entityType, fresh);
+                finish();
+            }
+        }
+
+        @Override
+        public void abort() {
+            synchronized (changeLock) {
+                finish();
+            }
+        }
+
+        private void finish() {
+            List<Rebuild> running = rebuilds.get(entityType);
+            if (running != null && running.remove(this) && running.isEmpty()) {
+                rebuilds.remove(entityType);
+            }
+        }
+    }
+
+    /**
+     * A document put (fields set) or removed (fields null).
+     */
+    private record Change(Object id, Map<String, String> fields) {
+
+        void applyTo(TypeIndex index) {
+            if (fields == null) {
+                index.remove(id);
+            } else {
+                index.put(id, fields);
+            }
+        }
+    }
+
+    private static final class TypeIndex {
+
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+        private final NavigableMap<String, Set<Object>> postings = new TreeMap<>();
+        private final Map<Object, Set<String>> keysById = new HashMap<>();
+
+        void put(Object id, Map<String, String> fields) {
+            lock.writeLock().lock();
+            try {
+                removeLocked(id);
+                Set<String> keys = new HashSet<>();
+                fields.forEach((field, value) -> {
+                    for (String word : words(value)) {
+                        keys.add(field + FIELD_SEPARATOR + word);
+                    }
+                });
+                for (String key : keys) {
+                    postings.computeIfAbsent(key, k -> new HashSet<>()).add(id);
+                }
+                keysById.put(id, keys);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void remove(Object id) {
+            lock.writeLock().lock();
+            try {
+                removeLocked(id);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        private void removeLocked(Object id) {
+            Set<String> keys = keysById.remove(id);
+            if (keys == null) {
+                return;
+            }
+            for (String key : keys) {
+                Set<Object> ids = postings.get(key);
+                ids.remove(id);
+                if (ids.isEmpty()) {
+                    postings.remove(key);
+                }
+            }
+        }
+
+        /**
+         * Ids matching every word, each word as a prefix of a word in any field.
+         */
+        Set<Object> search(Collection<String> fields, List<String> words) {
+            lock.readLock().lock();
+            try {
+                Set<Object> result = null;
+                for (String word : words) {
+                    Set<Object> matches = new HashSet<>();
+                    for (String field : fields) {
+                        String from = field + FIELD_SEPARATOR + word;
+                        for (Set<Object> ids : postings.subMap(from, true, from + Character.MAX_VALUE, true).values()) {
+                            if (result == null) {
+                                matches.addAll(ids);
+                            } else {
+                                for (Object id : ids) {
+                                    if (result.contains(id)) {
+                                        matches.add(id);
+                                    }
+                                }
+                            }
+                        }
+                    }
+                    result = matches;
+                    if (result.isEmpty()) {
+                        break;
+                    }
+                }
+                return result;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        int size() {
+            lock.readLock().lock();
+            try {
+                return keysById.size();
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+    }
+}
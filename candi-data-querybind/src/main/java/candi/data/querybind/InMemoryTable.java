@@ -0,0 +1,616 @@
+package candi.data.querybind;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * All rows of a @QueryBind(source = IN_MEMORY) binding, held column by column.
+ *
+ * Each attribute path the binding can filter, search, sort or facet on is one
+ * column. Integral columns are stored as long[] and floating point columns as
+ * double[], with a BitSet of null rows; anything else as Object[]. Two indexes
+ * are built per column on first use: a hash of value to rows for EQUALS and IN,
+ * and the non-null rows sorted by value for range filters, STARTS_WITH and
+ * sorting. A request becomes a BitSet of matching rows, one AND per filter, and
+ * the page is read from the sort order of the sort column.
+ *
+ * Semantics follow the SQL the database path generates, including that
+ * comparisons never match null values. Nulls sort last in ascending order and
+ * first in descending order. Strings compare by UTF-16 code units rather than a
+ * database collation. Instances are immutable apart from the lazily built
+ * indexes and safe for concurrent use.
+ */
+final class InMemoryTable {
+
+    private final List<Object> rows;
+    private final Map<String, Column> columns;
+    private final Column idColumn;
+    private final List<String[]> searchColumns;
+
+    /**
+     * @param rows   result rows in content shape (projection or map), in id order
+     * @param values the values of each column path, row-aligned with rows
+     * @param idPath the column holding the entity id
+     */
+    InMemoryTable(FilterPlan plan, List<Object> rows, Map<String, Object[]> values, String idPath) {
+        this.rows = rows;
+        Map<String, Column> built = new HashMap<>();
+        values.forEach((path, columnValues) -> built.put(path, Column.of(columnValues)));
+        this.columns = built;
+        this.idColumn = built.get(idPath);
+        List<String[]> search = new ArrayList<>();
+        for (String field : plan.searchFieldNames()) {
+            Object[] fieldValues = values.get(field);
+            String[] lowered = new String[fieldValues.length];
+            for (int row = 0; row < fieldValues.length; row++) {
+                lowered[row] = fieldValues[row] == null ? null : fieldValues[row].toString().toLowerCase();
+            }
+            search.add(lowered);
+        }
+        this.searchColumns = search;
+    }
+
+    /**
+     * Attribute paths an IN_MEMORY binding needs as columns: the id, every
+     * @Filterable field, the search fields, the facets, the default sort and
+     * every column a request may sort on (the selected columns, otherwise the
+     * entity's basic attributes).
+     */
+    static List<String> columnPaths(FilterPlan plan) {
+        Set<String> paths = new LinkedHashSet<>();
+        paths.add(plan.idName());
+        for (FilterPlan.FieldFilter filter : plan.filters()) {
+            paths.add(filter.fieldName());
+        }
+        paths.addAll(plan.searchFieldNames());
+        for (FilterPlan.Facet facet : plan.facets()) {
+            paths.add(String.join(".", facet.path()));
+        }
+        paths.add(plan.config().defaultSort());
+        paths.addAll(plan.exportColumns());
+        return List.copyOf(paths);
+    }
+
+    int size() {
+        return rows.size();
+    }
+
+    /**
+     * The rows matching the search and the filters of a request.
+     *
+     * @param skipFilters ordinals of filters to leave out, e.g. a facet's own filters
+     */
+    BitSet match(BoundQuery bound, Set<Integer> skipFilters) {
+        BitSet matched = new BitSet(rows.size());
+        matched.set(0, rows.size());
+        if (bound.searchIds() != null) {
+            BitSet found = new BitSet(rows.size());
+            for (Object id : bound.searchIds()) {
+                idColumn.addEqual(id, found);
+            }
+            matched.and(found);
+        } else if (bound.hasSearch()) {
+            Predicate<String> term = likeMatcher("%" + bound.search().toLowerCase() + "%");
+            BitSet found = new BitSet(rows.size());
+            for (String[] column : searchColumns) {
+                for (int row = 0; row < column.length; row++) {
+                    if (column[row] != null && term.test(column[row])) {
+                        found.set(row);
+                    }
+                }
+            }
+            matched.and(found);
+        }
+        for (BoundFilter filter : bound.filters()) {
+            if (matched.isEmpty()) {
+                break;
+            }
+            if (!skipFilters.contains(filter.filter().ordinal())) {
+                matched.and(matching(filter));
+            }
+        }
+        return matched;
+    }
+
+    private BitSet matching(BoundFilter filter) {
+        Column column = columns.get(filter.filter().fieldName());
+        List<Object> values = filter.values();
+        BitSet found = new BitSet(rows.size());
+        switch (filter.form()) {
+            case EQUAL -> column.addEqual(values.get(0), found);
+            case IN -> {
+                for (Object value : values) {
+                    column.addEqual(value, found);
+                }
+            }
+            case IS_NULL -> found.or(column.nulls);
+            case IS_NOT_NULL -> {
+                found.set(0, rows.size());
+                found.andNot(column.nulls);
+            }
+            case GREATER_THAN -> column.addRange(column.upperBound(values.get(0)), column.sorted().length, found);
+            case LESS_THAN -> column.addRange(0, column.lowerBound(values.get(0)), found);
+            case BETWEEN -> column.addRange(column.lowerBound(values.get(0)), column.upperBound(values.get(1)), found);
+            case STARTS_WITH -> {
+                String prefix = likeText((String) values.get(0));
+                if (column.textual()) {
+                    column.addRange(column.lowerBound(prefix), column.lowerBound(prefix + Character.MAX_VALUE),
+                            found);
+                } else {
+                    for (int row = 0; row < rows.size(); row++) {
+                        Object value = column.value(row);
+                        if (value != null && value.toString().startsWith(prefix)) {
+                            found.set(row);
+                        }
+                    }
+                }
+            }
+            case LIKE -> {
+                Predicate<String> pattern = likeMatcher((String) values.get(0));
+                for (int row = 0; row < rows.size(); row++) {
+                    Object value = column.value(row);
+                    if (value != null && pattern.test(value.toString().toLowerCase(Locale.ROOT))) {
+                        found.set(row);
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * A LIKE pattern of the form %text% as a test on strings. Wildcards the user
+     * typed inside the text keep their SQL meaning, as they do in the database:
+     * % matches any run of characters, _ any one character, and a backslash
+     * escapes the next character, as in PostgreSQL and MySQL.
+     */
+    static Predicate<String> likeMatcher(String pattern) {
+        String text = pattern.substring(1, pattern.length() - 1);
+        if (text.indexOf('%') < 0 && text.indexOf('_') < 0 && text.indexOf(BoundFilter.LIKE_ESCAPE) < 0) {
+            return value -> value.contains(text);
+        }
+        StringBuilder regex = new StringBuilder(pattern.length() + 16);
+        StringBuilder literal = new StringBuilder();
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if (c == BoundFilter.LIKE_ESCAPE && i + 1 < pattern.length()) {
+                literal.append(pattern.charAt(++i));
+            } else if (c == '%' || c == '_') {
+                if (!literal.isEmpty()) {
+                    regex.append(Pattern.quote(literal.toString()));
+                    literal.setLength(0);
+                }
+                regex.append(c == '%' ? ".*" : ".");
+            } else {
+                literal.append(c);
+            }
+        }
+        if (!literal.isEmpty()) {
+            regex.append(Pattern.quote(literal.toString()));
+        }
+        return Pattern.compile(regex.toString(), Pattern.DOTALL).asMatchPredicate();
+    }
+
+    /**
+     * The literal prefix of a STARTS_WITH pattern: without the trailing % and
+     * with BoundFilter's escapes removed.
+     */
+    private static String likeText(String pattern) {
+        StringBuilder text = new StringBuilder(pattern.length());
+        for (int i = 0; i < pattern.length() - 1; i++) {
+            char c = pattern.charAt(i);
+            if (c == BoundFilter.LIKE_ESCAPE && i + 1 < pattern.length() - 1) {
+                c = pattern.charAt(++i);
+            }
+            text.append(c);
+        }
+        return text.toString();
+    }
+
+    /**
+     * One page of the matched rows in sort order. An unknown sort column keeps
+     * id order, like the database path leaves an invalid sort out.
+     */
+    List<Object> page(BitSet matched, String sort, boolean descending, int offset, int limit) {
+        Column column = columns.get(sort);
+        int count = matched.cardinality();
+        List<Object> page = new ArrayList<>(Math.max(0, Math.min(limit, count - offset)));
+        if (offset >= count) {
+            return page;
+        }
+        if (column == null) {
+            int skipped = 0;
+            for (int row = descending ? matched.length() - 1 : matched.nextSetBit(0);
+                 row >= 0 && page.size() < limit;
+                 row = descending ? matched.previousSetBit(row - 1) : matched.nextSetBit(row + 1)) {
+                if (skipped++ >= offset) {
+                    page.add(rows.get(row));
+                }
+            }
+            return page;
+        }
+        if ((long) count * 16 < rows.size()) {
+            // Few matches: sort just those by their rank in the column order
+            int[] rank = column.rank();
+            long[] keys = new long[count];
+            int i = 0;
+            for (int row = matched.nextSetBit(0); row >= 0; row = matched.nextSetBit(row + 1)) {
+                keys[i++] = ((long) (descending ? rows.size() - rank[row] : rank[row]) << 32) | row;
+            }
+            Arrays.sort(keys);
+            for (int k = offset; k < count && page.size() < limit; k++) {
+                page.add(rows.get((int) keys[k]));
+            }
+            return page;
+        }
+        int[] order = column.order();
+        int skipped = 0;
+        for (int i = 0; i < order.length && page.size() < limit; i++) {
+            int row = order[descending ? order.length - 1 - i : i];
+            if (matched.get(row) && skipped++ >= offset) {
+                page.add(rows.get(row));
+            }
+        }
+        return page;
+    }
+
+    /**
+     * Number of matched rows per value of a column, null included.
+     */
+    Map<Object, Long> counts(String path, BitSet matched) {
+        Column column = columns.get(path);
+        Map<Object, Long> counts = new HashMap<>();
+        for (int row = matched.nextSetBit(0); row >= 0; row = matched.nextSetBit(row + 1)) {
+            counts.merge(column.value(row), 1L, Long::sum);
+        }
+        return counts;
+    }
+
+    /**
+     * Check that every entity occurs once, i.e. no column path crossed a
+     * to-many association and multiplied the rows.
+     *
+     * @return the first duplicated id, or null
+     */
+    Object duplicateId() {
+        for (Map.Entry<Object, int[]> entry : idColumn.hash().entrySet()) {
+            if (entry.getValue().length > 1) {
+                return entry.getKey();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * One column: the values, the null rows and lazily built indexes.
+     */
+    private abstract static class Column {
+
+        final BitSet nulls;
+        private volatile Map<Object, int[]> hash;
+        private volatile int[] sorted;
+        private volatile int[] order;
+        private volatile int[] rank;
+
+        Column(BitSet nulls) {
+            this.nulls = nulls;
+        }
+
+        static Column of(Object[] values) {
+            BitSet nulls = new BitSet(values.length);
+            Class<?> type = null;
+            for (int row = 0; row < values.length; row++) {
+                if (values[row] == null) {
+                    nulls.set(row);
+                } else if (type == null) {
+                    type = values[row].getClass();
+                } else if (type != values[row].getClass()) {
+                    type = Object.class;
+                }
+            }
+            if (type == Long.class || type == Integer.class || type == Short.class || type == Byte.class) {
+                long[] longs = new long[values.length];
+                for (int row = 0; row < values.length; row++) {
+                    longs[row] = values[row] == null ? 0 : ((Number) values[row]).longValue();
+                }
+                return new LongColumn(longs, nulls, type);
+            }
+            if (type == Double.class || type == Float.class) {
+                double[] doubles = new double[values.length];
+                for (int row = 0; row < values.length; row++) {
+                    doubles[row] = values[row] == null ? 0 : ((Number) values[row]).doubleValue();
+                }
+                return new DoubleColumn(doubles, nulls, type);
+            }
+            return new ObjectColumn(values, nulls, type == String.class);
+        }
+
+        /** The value of a row, boxed as it was loaded; null for null rows. */
+        abstract Object value(int row);
+
+        /** Compare two non-null rows. */
+        abstract int compare(int row, int other);
+
+        /** Compare a non-null row with a filter value. */
+        abstract int compareTo(int row, Object value);
+
+        /** Hash key of a value; values that SQL considers equal have equal keys. */
+        abstract Object key(Object value);
+
+        /** Whether every value is a String, so that prefixes are ranges of {@link #sorted()}. */
+        boolean textual() {
+            return false;
+        }
+
+        final Map<Object, int[]> hash() {
+            Map<Object, int[]> built = hash;
+            if (built == null) {
+                Map<Object, List<Integer>> grouped = new HashMap<>();
+                for (int row = 0; row < rowCount(); row++) {
+                    if (!nulls.get(row)) {
+                        grouped.computeIfAbsent(key(value(row)), k -> new ArrayList<>()).add(row);
+                    }
+                }
+                built = new HashMap<>(grouped.size() * 2);
+                for (Map.Entry<Object, List<Integer>> entry : grouped.entrySet()) {
+                    built.put(entry.getKey(), entry.getValue().stream().mapToInt(Integer::intValue).toArray());
+                }
+                hash = built;
+            }
+            return built;
+        }
+
+        /** Non-null rows sorted by value, ties in row order. */
+        final int[] sorted() {
+            int[] built = sorted;
+            if (built == null) {
+                Integer[] boxed = new Integer[rowCount() - nulls.cardinality()];
+                int i = 0;
+                for (int row = 0; row < rowCount(); row++) {
+                    if (!nulls.get(row)) {
+                        boxed[i++] = row;
+                    }
+                }
+                Arrays.sort(boxed, (a, b) -> {
+                    int compared = compare(a, b);
+                    return compared != 0 ? compared : Integer.compare(a, b);
+                });
+                built = Arrays.stream(boxed).mapToInt(Integer::intValue).toArray();
+                sorted = built;
+            }
+            return built;
+        }
+
+        /** All rows in ascending sort order: the sorted rows, then the nulls. */
+        final int[] order() {
+            int[] built = order;
+            if (built == null) {
+                int[] nonNull = sorted();
+                built = Arrays.copyOf(nonNull, rowCount());
+                int i = nonNull.length;
+                for (int row = nulls.nextSetBit(0); row >= 0 && row < rowCount(); row = nulls.nextSetBit(row + 1)) {
+                    built[i++] = row;
+                }
+                order = built;
+            }
+            return built;
+        }
+
+        /** Position of each row in {@link #order()}. */
+        final int[] rank() {
+            int[] built = rank;
+            if (built == null) {
+                int[] rows = order();
+                built = new int[rows.length];
+                for (int i = 0; i < rows.length; i++) {
+                    built[rows[i]] = i;
+                }
+                rank = built;
+            }
+            return built;
+        }
+
+        abstract int rowCount();
+
+        void addEqual(Object value, BitSet found) {
+            int[] rows = hash().get(key(value));
+            if (rows != null) {
+                for (int row : rows) {
+                    found.set(row);
+                }
+            }
+        }
+
+        /** Add the rows at positions from (inclusive) to to (exclusive) of {@link #sorted()}. */
+        void addRange(int from, int to, BitSet found) {
+            int[] rows = sorted();
+            for (int i = from; i < to; i++) {
+                found.set(rows[i]);
+            }
+        }
+
+        /** First position in {@link #sorted()} whose value is not less than the given one. */
+        int lowerBound(Object value) {
+            int[] rows = sorted();
+            int low = 0;
+            int high = rows.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (compareTo(rows[mid], value) < 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        /** First position in {@link #sorted()} whose value is greater than the given one. */
+        int upperBound(Object value) {
+            int[] rows = sorted();
+            int low = 0;
+            int high = rows.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (compareTo(rows[mid], value) <= 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+
+    private static final class LongColumn extends Column {
+
+        private final long[] values;
+        private final Class<?> type;
+
+        LongColumn(long[] values, BitSet nulls, Class<?> type) {
+            super(nulls);
+            this.values = values;
+            this.type = type;
+        }
+
+        @Override
+        int rowCount() {
+            return values.length;
+        }
+
+        @Override
+        Object value(int row) {
+            if (nulls.get(row)) {
+                return null;
+            }
+            long value = values[row];
+            if (type == Integer.class) {
+                return (int) value;
+            }
+            if (type == Short.class) {
+                return (short) value;
+            }
+            if (type == Byte.class) {
+                return (byte) value;
+            }
+            return value;
+        }
+
+        @Override
+        int compare(int row, int other) {
+            return Long.compare(values[row], values[other]);
+        }
+
+        @Override
+        int compareTo(int row, Object value) {
+            return Long.compare(values[row], ((Number) value).longValue());
+        }
+
+        @Override
+        Object key(Object value) {
+            return value == null ? null : ((Number) value).longValue();
+        }
+    }
+
+    private static final class DoubleColumn extends Column {
+
+        private final double[] values;
+        private final Class<?> type;
+
+        DoubleColumn(double[] values, BitSet nulls, Class<?> type) {
+            super(nulls);
+            this.values = values;
+            this.type = type;
+        }
+
+        @Override
+        int rowCount() {
+            return values.length;
+        }
+
+        @Override
+        Object value(int row) {
+            if (nulls.get(row)) {
+                return null;
+            }
+            return type == Float.class ? (Object) (float) values[row] : (Object) values[row];
+        }
+
+        @Override
+        int compare(int row, int other) {
+            return Double.compare(values[row], values[other]);
+        }
+
+        @Override
+        int compareTo(int row, Object value) {
+            return Double.compare(values[row], ((Number) value).doubleValue());
+        }
+
+        @Override
+        Object key(Object value) {
+            return value == null ? null : ((Number) value).doubleValue();
+        }
+    }
+
+    private static final class ObjectColumn extends Column {
+
+        private final Object[] values;
+        private final boolean textual;
+
+        ObjectColumn(Object[] values, BitSet nulls, boolean textual) {
+            super(nulls);
+            this.values = values;
+            this.textual = textual;
+        }
+
+        @Override
+        int rowCount() {
+            return values.length;
+        }
+
+        @Override
+        boolean textual() {
+            return textual;
+        }
+
+        @Override
+        Object value(int row) {
+            return values[row];
+        }
+
+        @Override
+        int compare(int row, int other) {
+            return compareValues(values[row], values[other]);
+        }
+
+        @Override
+        int compareTo(int row, Object value) {
+            return compareValues(values[row], value);
+        }
+
+        @Override
+        Object key(Object value) {
+            return value instanceof BigDecimal decimal && decimal.signum() != 0
+                    ? decimal.stripTrailingZeros()
+                    : value instanceof BigDecimal ? BigDecimal.ZERO : value;
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private static int compareValues(Object value, Object other) {
+            if (value instanceof Comparable comparable && value.getClass().isInstance(other)) {
+                return comparable.compareTo(other);
+            }
+            return String.valueOf(value).compareTo(String.valueOf(other));
+        }
+    }
+}
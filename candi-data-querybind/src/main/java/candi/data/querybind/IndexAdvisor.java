@@ -0,0 +1,151 @@
+package candi.data.querybind;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.EmbeddedId;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import jakarta.persistence.metamodel.Attribute;
+import jakarta.persistence.metamodel.ManagedType;
+import jakarta.persistence.metamodel.Metamodel;
+import jakarta.persistence.metamodel.PluralAttribute;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Finds the parts of a binding that the database can only answer by scanning
+ * the whole table, judged by the indexes the entities declare.
+ *
+ * A column counts as indexed when it is the id, unique, or the leading column
+ * of an @Table(indexes) or @Table(uniqueConstraints) entry. Column names are
+ * compared without case and underscores, so "createdAt" matches "created_at"
+ * under Spring's default naming strategy. Indexes that only exist in migration
+ * scripts are not seen.
+ */
+final class IndexAdvisor {
+
+    private IndexAdvisor() {
+    }
+
+    /**
+     * Describe each filter, search and default sort of the plan that has no
+     * usable index, or return an empty list if there is none.
+     */
+    static List<String> advise(FilterPlan plan, Metamodel metamodel) {
+        QueryBind config = plan.config();
+        List<String> advice = new ArrayList<>();
+        if (config.source() == QuerySource.IN_MEMORY) {
+            return advice;
+        }
+        for (FilterPlan.FieldFilter filter : plan.filters()) {
+            if (filter.op() == FilterOp.LIKE) {
+                advice.add("filter '" + filter.paramName() + "' matches '%value%', which no index serves;"
+                        + " use STARTS_WITH or a @SearchNormalized column");
+            } else if (!indexed(metamodel, plan.entityClass(), filter.path())) {
+                advice.add("filter '" + filter.paramName() + "' (" + filter.op() + ") has no index on "
+                        + filter.fieldName());
+            }
+        }
+        if (config.searchFields().length > 0 && config.searchMode() == SearchMode.LIKE) {
+            advice.add("searchFields " + plan.searchFieldNames() + " match '%term%', which no index serves;"
+                    + " use searchMode = INDEX");
+        }
+        String defaultSort = config.defaultSort();
+        if (!defaultSort.equals(plan.idName())
+                && !indexed(metamodel, plan.entityClass(), FilterPlan.splitPath(defaultSort))) {
+            advice.add("defaultSort '" + defaultSort + "' has no index, so every page sorts all matching rows");
+        }
+        return advice;
+    }
+
+    /**
+     * Whether the column at the end of an attribute path is indexed in the table
+     * of the entity that owns it.
+     */
+    private static boolean indexed(Metamodel metamodel, Class<?> entityClass, String[] path) {
+        ManagedType<?> type = metamodel.managedType(entityClass);
+        Class<?> tableClass = entityClass;
+        for (int i = 0; i < path.length - 1; i++) {
+            Attribute<?, ?> attribute = type.getAttribute(path[i]);
+            Class<?> next = attribute instanceof PluralAttribute<?, ?, ?> plural
+                    ? plural.getElementType().getJavaType()
+                    : attribute.getJavaType();
+            type = metamodel.managedType(next);
+            if (next.isAnnotationPresent(Entity.class)) {
+                tableClass = next;
+            }
+        }
+        Field field = findField(type.getJavaType(), path[path.length - 1]);
+        if (field == null) {
+            return true;
+        }
+        if (field.isAnnotationPresent(Id.class) || field.isAnnotationPresent(EmbeddedId.class)) {
+            return true;
+        }
+        Column column = field.getAnnotation(Column.class);
+        if (column != null && column.unique()) {
+            return true;
+        }
+        return leadingColumns(tableClass).contains(normalize(columnName(field)));
+    }
+
+    /**
+     * First columns of the indexes and unique constraints declared by an entity
+     * and its mapped superclasses, normalized.
+     */
+    private static Set<String> leadingColumns(Class<?> entityClass) {
+        Set<String> leading = new HashSet<>();
+        for (Class<?> current = entityClass; current != null && current != Object.class;
+             current = current.getSuperclass()) {
+            Table table = current.getAnnotation(Table.class);
+            if (table == null) {
+                continue;
+            }
+            for (Index index : table.indexes()) {
+                String first = index.columnList().split(",")[0].trim().split("\\s+")[0];
+                leading.add(normalize(first));
+            }
+            for (UniqueConstraint constraint : table.uniqueConstraints()) {
+                if (constraint.columnNames().length > 0) {
+                    leading.add(normalize(constraint.columnNames()[0]));
+                }
+            }
+        }
+        return leading;
+    }
+
+    private static String columnName(Field field) {
+        Column column = field.getAnnotation(Column.class);
+        if (column != null && !column.name().isEmpty()) {
+            return column.name();
+        }
+        JoinColumn joinColumn = field.getAnnotation(JoinColumn.class);
+        if (joinColumn != null && !joinColumn.name().isEmpty()) {
+            return joinColumn.name();
+        }
+        return field.getName();
+    }
+
+    private static String normalize(String column) {
+        return column.replace("_", "").replace("\"", "").replace("`", "").toLowerCase(Locale.ROOT);
+    }
+
+    private static Field findField(Class<?> type, String name) {
+        for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+            try {
+                return current.getDeclaredField(name);
+            } catch (NoSuchFieldException e) {
+                // look in the superclass
+            }
+        }
+        return null;
+    }
+}
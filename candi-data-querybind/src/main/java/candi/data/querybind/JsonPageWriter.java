@@ -0,0 +1,80 @@
+package candi.data.querybind;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Map;
+
+/**
+ * Writes one page of a QueryBindResult as a JSON document, for infinite scroll
+ * and other script clients:
+ *
+ * <pre>
+ * {"content":[...],"size":20,"hasNext":true,"hasPrevious":false,
+ *  "nextCursor":"...","previousCursor":null,"totalElements":1234,"totalPages":62,
+ *  "totalKind":"EXACT","sort":"id","direction":"asc","page":0,
+ *  "facets":{"status":[{"value":"OPEN","count":12}]}}
+ * </pre>
+ *
+ * Rows go through the application's ObjectMapper one at a time, straight into the
+ * response; the document is never built in memory. They are projections or column
+ * maps, since FilterPlan refuses @QueryBind(json = true) on entity rows. "page" is left out for keyset
+ * results and "facets" for bindings without facets. Facet values are written as
+ * an array rather than object keys so that their order and null values survive.
+ */
+final class JsonPageWriter {
+
+    static final String CONTENT_TYPE = "application/json";
+
+    private final ObjectWriter writer;
+
+    JsonPageWriter(ObjectMapper objectMapper) {
+        this.writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    void write(QueryBindResult<?> result, OutputStream out) throws IOException {
+        try (JsonGenerator json = writer.createGenerator(out, JsonEncoding.UTF8)) {
+            json.writeStartObject();
+            json.writeArrayFieldStart("content");
+            for (Object row : result.getContent()) {
+                writer.writeValue(json, row);
+            }
+            json.writeEndArray();
+            json.writeNumberField("size", result.getSize());
+            json.writeBooleanField("hasNext", result.hasNext());
+            json.writeBooleanField("hasPrevious", result.hasPrevious());
+            json.writeStringField("nextCursor", result.getNextCursor());
+            json.writeStringField("previousCursor", result.getPreviousCursor());
+            json.writeNumberField("totalElements", result.getTotalElements());
+            json.writeNumberField("totalPages", result.getTotalPages());
+            json.writeStringField("totalKind", result.getTotalKind().name());
+            json.writeStringField("sort", result.getSort());
+            json.writeStringField("direction", result.getDirection());
+            if (!result.isKeyset()) {
+                json.writeNumberField("page", result.getPage());
+            }
+            Map<String, Map<Object, Long>> facets = result.getFacets();
+            if (!facets.isEmpty()) {
+                json.writeObjectFieldStart("facets");
+                for (Map.Entry<String, Map<Object, Long>> facet : facets.entrySet()) {
+                    json.writeArrayFieldStart(facet.getKey());
+                    for (Map.Entry<Object, Long> count : facet.getValue().entrySet()) {
+                        json.writeStartObject();
+                        json.writeFieldName("value");
+                        writer.writeValue(json, count.getKey());
+                        json.writeNumberField("count", count.getValue());
+                        json.writeEndObject();
+                    }
+                    json.writeEndArray();
+                }
+                json.writeEndObject();
+            }
+            json.writeEndObject();
+        }
+    }
+}
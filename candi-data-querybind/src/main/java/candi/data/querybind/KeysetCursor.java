@@ -0,0 +1,51 @@
+package candi.data.querybind;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque position marker for keyset (seek) pagination.
+ *
+ * Encodes the boundary row's sort key and id, the sort it was taken under, and
+ * whether the next request reads forward (after the row) or backward (before it).
+ * The token is URL-safe Base64, so it can be passed back as the "cursor" parameter
+ * unchanged. A cursor taken under a different sort or direction is ignored.
+ */
+record KeysetCursor(boolean forward, String sort, String direction, String sortValue, String idValue) {
+
+    private static final String SEPARATOR = "\u001F";
+
+    /**
+     * Encode this cursor as a URL-safe token.
+     */
+    String encode() {
+        String raw = (forward ? "n" : "p") + SEPARATOR + sort + SEPARATOR + direction
+                + SEPARATOR + sortValue + SEPARATOR + idValue;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decode a token produced by {@link #encode()}.
+     *
+     * @return the cursor, or null if the token is malformed
+     */
+    static KeysetCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split(SEPARATOR, -1);
+            if (parts.length != 5 || !(parts[0].equals("n") || parts[0].equals("p"))) {
+                return null;
+            }
+            return new KeysetCursor(parts[0].equals("n"), parts[1], parts[2], parts[3], parts[4]);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Whether this cursor was taken under the given sort field and direction.
+     */
+    boolean matches(String sort, String direction) {
+        return this.sort.equals(sort) && this.direction.equalsIgnoreCase(direction);
+    }
+}
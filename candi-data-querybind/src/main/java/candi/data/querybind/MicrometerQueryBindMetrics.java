@@ -0,0 +1,88 @@
+package candi.data.querybind;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes QueryBind events as Micrometer meters once Spring Boot binds a
+ * MeterRegistry. Events before that are dropped.
+ *
+ * Meters:
+ *   querybind.executions - executions by page, binding and source
+ *                          (database, cache, coalesced, memory, prefetch)
+ *   querybind.prefetch   - @QueryBind(prefetch = true) pages by page, binding
+ *                          and event (started, hit, miss)
+ *   querybind.query      - database query time by page, binding, query (page,
+ *                          count, ...), filter shape and outcome (success,
+ *                          timeout, error). The shape names the active filters
+ *                          and their operators, never their values.
+ */
+class MicrometerQueryBindMetrics implements QueryBindMetrics, MeterBinder {
+
+    private final Map<CounterKey, Counter> executions = new ConcurrentHashMap<>();
+    private final Map<TimerKey, Timer> queries = new ConcurrentHashMap<>();
+    private final Map<PrefetchKey, Counter> prefetches = new ConcurrentHashMap<>();
+    private volatile MeterRegistry registry;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public void execution(FilterPlan plan, Source source) {
+        MeterRegistry current = registry;
+        if (current == null) {
+            return;
+        }
+        executions.computeIfAbsent(new CounterKey(plan, source), key -> Counter.builder("querybind.executions")
+                .description("QueryBind executions by where their result came from")
+                .tag("page", plan.pageClass().getSimpleName())
+                .tag("binding", plan.config().name())
+                .tag("source", source.name().toLowerCase())
+                .register(current)).increment();
+    }
+
+    @Override
+    public void query(FilterPlan plan, String query, List<Object> shape, Outcome outcome, long nanos) {
+        MeterRegistry current = registry;
+        if (current == null) {
+            return;
+        }
+        queries.computeIfAbsent(new TimerKey(plan, query, shape, outcome), key -> Timer.builder("querybind.query")
+                .description("QueryBind database queries by filter shape")
+                .tag("page", plan.pageClass().getSimpleName())
+                .tag("binding", plan.config().name())
+                .tag("query", query)
+                .tag("shape", plan.describeShape(shape))
+                .tag("outcome", outcome.name().toLowerCase())
+                .register(current)).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void prefetch(FilterPlan plan, Prefetch event) {
+        MeterRegistry current = registry;
+        if (current == null) {
+            return;
+        }
+        prefetches.computeIfAbsent(new PrefetchKey(plan, event), key -> Counter.builder("querybind.prefetch")
+                .description("QueryBind next pages computed ahead, and whether requests found them")
+                .tag("page", plan.pageClass().getSimpleName())
+                .tag("binding", plan.config().name())
+                .tag("event", event.name().toLowerCase())
+                .register(current)).increment();
+    }
+
+    private record CounterKey(FilterPlan plan, Source source) {}
+
+    private record PrefetchKey(FilterPlan plan, Prefetch event) {}
+
+    private record TimerKey(FilterPlan plan, String query, List<Object> shape, Outcome outcome) {}
+}
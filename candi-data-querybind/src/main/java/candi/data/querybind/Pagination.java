@@ -0,0 +1,21 @@
+package candi.data.querybind;
+
+/**
+ * Pagination modes for @QueryBind.
+ */
+public enum Pagination {
+
+    /**
+     * Page number and size: ?page=3&size=20 becomes OFFSET 60 LIMIT 20.
+     * Supports jumping to any page, but deep pages scan every skipped row.
+     */
+    OFFSET,
+
+    /**
+     * Keyset (seek) pagination: ?cursor=... continues after the last row of the
+     * previous slice using WHERE (sort, id) &gt; (?, ?). Every slice costs the same
+     * regardless of depth. The "page" parameter is ignored; navigate with
+     * QueryBindResult.getNextCursor() and getPreviousCursor().
+     */
+    KEYSET
+}
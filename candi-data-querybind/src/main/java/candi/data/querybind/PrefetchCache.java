@@ -0,0 +1,98 @@
+package candi.data.querybind;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pages computed ahead of the request for @QueryBind(prefetch = true), held per user.
+ *
+ * Each user holds at most maxPerUser pages; starting another pushes out that
+ * user's oldest. Users beyond maxUsers are evicted least recently used, and a
+ * page expires ttl after it was started. A page is handed out once: taking it
+ * removes it. Pages started before a change to their entity type are discarded
+ * when taken, so a prefetch racing a write never serves the old rows.
+ */
+final class PrefetchCache {
+
+    private final int maxPerUser;
+    private final long ttlNanos;
+    private final TtlCache<String, Map<QueryCacheKey, Prefetch>> users;
+    private final Map<Class<?>, Long> changedAt = new ConcurrentHashMap<>();
+
+    PrefetchCache(int maxUsers, int maxPerUser, long ttlMillis) {
+        this.maxPerUser = maxPerUser;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.users = new TtlCache<>(maxUsers);
+    }
+
+    /**
+     * Register a page being computed for a user.
+     *
+     * @return false if the user already has that page, which is then left as is
+     */
+    boolean start(String user, QueryCacheKey key, CompletableFuture<QueryBindResult<?>> result) {
+        synchronized (users) {
+            Map<QueryCacheKey, Prefetch> pages = users.get(user);
+            if (pages == null) {
+                pages = new LinkedHashMap<>();
+            }
+            Prefetch existing = pages.get(key);
+            if (existing != null && !expired(existing)) {
+                return false;
+            }
+            pages.remove(key);
+            pages.put(key, new Prefetch(result, System.nanoTime()));
+            Iterator<Prefetch> oldest = pages.values().iterator();
+            while (pages.size() > maxPerUser) {
+                oldest.next();
+                oldest.remove();
+            }
+            users.put(user, pages, TimeUnit.NANOSECONDS.toMillis(ttlNanos));
+            return true;
+        }
+    }
+
+    /**
+     * Remove and return a user's page, which may still be running.
+     *
+     * @return the page, or null if there is none, it expired or its entity changed since it started
+     */
+    CompletableFuture<QueryBindResult<?>> take(String user, QueryCacheKey key) {
+        Prefetch prefetch;
+        synchronized (users) {
+            Map<QueryCacheKey, Prefetch> pages = users.get(user);
+            prefetch = pages != null ? pages.remove(key) : null;
+        }
+        if (prefetch == null || expired(prefetch) || changedSince(key.entity(), prefetch.startedAt())) {
+            return null;
+        }
+        return prefetch.result();
+    }
+
+    /**
+     * Discard every page of the given entity type, or of a supertype of it, that
+     * started before now.
+     */
+    void invalidate(Class<?> entityType) {
+        changedAt.put(entityType, System.nanoTime());
+    }
+
+    private boolean expired(Prefetch prefetch) {
+        return System.nanoTime() - prefetch.startedAt() > ttlNanos;
+    }
+
+    private boolean changedSince(Class<?> entity, long startedAt) {
+        for (Map.Entry<Class<?>, Long> change : changedAt.entrySet()) {
+            if (entity.isAssignableFrom(change.getKey()) && change.getValue() - startedAt >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private record Prefetch(CompletableFuture<QueryBindResult<?>> result, long startedAt) {}
+}
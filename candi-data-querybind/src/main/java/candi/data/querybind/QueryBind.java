@@ -1,6 +1,7 @@
 package candi.data.querybind;
 
 import java.lang.annotation.ElementType;
+import java.lang.annotation.Repeatable;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
@@ -21,9 +22,23 @@ import java.lang.annotation.Target;
  *     {@literal @}QueryResult private QueryBindResult{@literal <}User{@literal >} users;
  * }
  * </pre>
+ *
+ * A page can declare several named bindings, each filling the @QueryResult field
+ * with the matching binding name. Their URL parameters are prefixed with the
+ * name, and they run concurrently:
+ *
+ * <pre>
+ * {@literal @}QueryBind(name = "orders", entity = Order.class, defaultSort = "createdAt")
+ * {@literal @}QueryBind(name = "tickets", entity = Ticket.class)
+ * public class DashboardPage {
+ *     {@literal @}QueryResult(binding = "orders") private QueryBindResult{@literal <}Order{@literal >} orders;
+ *     {@literal @}QueryResult(binding = "tickets") private QueryBindResult{@literal <}Ticket{@literal >} tickets;
+ * }
+ * </pre>
  */
 @Target(ElementType.TYPE)
 @Retention(RetentionPolicy.RUNTIME)
+@Repeatable(QueryBinds.class)
 public @interface QueryBind {
 
     /**
@@ -31,6 +46,14 @@ public @interface QueryBind {
      */
     Class<?> entity();
 
+    /**
+     * Name of this binding, matched by @QueryResult(binding). A named binding reads
+     * its URL parameters with the name as prefix, e.g. "orders.page" and
+     * "orders.status", so bindings on one page do not share parameters.
+     * Default: "" (unprefixed parameters).
+     */
+    String name() default "";
+
     /**
      * Default page size. Default: 20.
      */
@@ -47,6 +70,12 @@ public @interface QueryBind {
      */
     String[] searchFields() default {};
 
+    /**
+     * How the "search" parameter is matched against searchFields. Default: LIKE.
+     * INDEX answers searches from the application's SearchIndex instead of a table scan.
+     */
+    SearchMode searchMode() default SearchMode.LIKE;
+
     /**
      * Default sort field. Default: "id".
      */
@@ -56,4 +85,172 @@ public @interface QueryBind {
      * Default sort direction. Default: "asc".
      */
     String defaultDirection() default "asc";
+
+    /**
+     * Pagination mode. Default: OFFSET.
+     * KEYSET reads the opaque "cursor" URL parameter instead of "page" and requires
+     * an entity with a single @Id attribute and a non-null sort field.
+     */
+    Pagination pagination() default Pagination.OFFSET;
+
+    /**
+     * How the total number of matching rows is determined. Default: EXACT.
+     */
+    CountStrategy countStrategy() default CountStrategy.EXACT;
+
+    /**
+     * Maximum number of rows counted with CountStrategy.CAPPED. The database
+     * scans up to countCap + 1 matching rows, but only the count is returned.
+     * Default: 1000.
+     */
+    int countCap() default 1000;
+
+    /**
+     * How long a count is reused with CountStrategy.CACHED, in seconds. Default: 60.
+     */
+    int countCacheSeconds() default 60;
+
+    /**
+     * Run the count and the data query concurrently on virtual threads, each in its
+     * own read-only transaction. Page latency becomes the slower of the two queries
+     * instead of their sum, at the cost of a second database connection. Default: false.
+     */
+    boolean parallel() default false;
+
+    /**
+     * Upper bound in milliseconds for each query of this binding, applied as the
+     * JDBC statement timeout (rounded up to whole seconds) and, with parallel = true,
+     * as the deadline for the queries together. A count that times out leaves the
+     * total UNKNOWN; any other query fails with QueryBindTimeoutException. A query
+     * shape that times out three times in a row is refused for a minute.
+     * 0 means no limit. Default: 0.
+     */
+    long timeoutMs() default 0;
+
+    /**
+     * Class to return instead of the entity. Only its columns are selected and each
+     * row is passed to its constructor, so results are plain objects that the
+     * persistence context does not manage. For a record, the constructor arguments
+     * are its component names as entity attributes unless columns() lists them.
+     * Default: void.class (select the entity).
+     */
+    Class<?> projection() default void.class;
+
+    /**
+     * Entity attribute paths to select (e.g. {"id", "name", "department.name"}).
+     * With projection(), these are its constructor arguments in order; alone, each
+     * row is a Map from path to value. Default: {} (select the entity).
+     */
+    String[] columns() default {};
+
+    /**
+     * Cache complete results for this many seconds, keyed by the normalized request
+     * (filters, search, sort, page and size). Entries for the entity type are dropped
+     * when QueryBindEntityListener reports a committed change. 0 disables caching.
+     * A cached result is handed to every request that hits it, so its entities
+     * are detached instances shared between concurrent requests; prefer
+     * projections, and never modify cached rows. Default: 0.
+     */
+    int cacheSeconds() default 0;
+
+    /**
+     * Associations to load together with the page (e.g. {"author", "tags", "author.company"}).
+     * The page is first selected as ids only, so LIMIT/OFFSET stays correct even for
+     * to-many associations, then the entities for those ids are loaded in one query
+     * with these paths as an entity graph. Avoids one query per row when the template
+     * touches associations. Requires entity rows and a single @Id attribute.
+     * Default: {} (associations load lazily as usual).
+     */
+    String[] fetch() default {};
+
+    /**
+     * Answer ?format=csv and ?format=ndjson on this page with a streaming download
+     * of every matching row instead of rendering it. Filters, search and sort apply;
+     * page and size do not. Default: false.
+     */
+    boolean export() default false;
+
+    /**
+     * Answer Accept: application/json and ?format=json on this page with the bound
+     * page as a JSON document instead of rendering it. Requires projection() or
+     * columns(), so that only the selected columns are serialized, never entities.
+     * The page's init() and onGet() do not run for JSON requests; access checks
+     * made there do not apply, so protect the path with a filter or Spring Security.
+     * Default: false.
+     */
+    boolean json() default false;
+
+    /**
+     * Fields to count per value for filter sidebars, as @Filterable parameter names
+     * or entity attribute paths (e.g. {"status", "category.name"}). Each facet is
+     * counted under the current filters except those on its own field, so every
+     * option shows how many rows selecting it would give. Results are exposed by
+     * QueryBindResult.getFacets(). Default: {}.
+     */
+    String[] facets() default {};
+
+    /**
+     * How long facet counts are reused for the same filters, in seconds. Entries for
+     * the entity type are dropped when QueryBindEntityListener reports a committed
+     * change. 0 disables caching. Default: 60.
+     */
+    int facetCacheSeconds() default 60;
+
+    /**
+     * Defer the queries until the page reads the result: the count runs on first
+     * access to the total, the data query on first access to the content, and the
+     * facets on first access to getFacets(). Pages that redirect, fail, or only
+     * show part of the result skip the other queries. With parallel = true, the
+     * first access runs count and data query together. Default: false.
+     */
+    boolean lazy() default false;
+
+    /**
+     * Attribute path of a modification timestamp or version (e.g. "updatedAt") that
+     * enables conditional GET. Before the page queries run, one query reads its
+     * greatest value and the row count under the current filters; the page answers
+     * If-None-Match / If-Modified-Since with 304 Not Modified when neither changed.
+     * On pages with several bindings, all bound bindings need an etag.
+     * Default: "" (disabled).
+     */
+    String etag() default "";
+
+    /**
+     * Let identical executions that overlap in time share one run: while the
+     * queries for a request (same page, binding, filters, search, sort and page)
+     * are in flight, further identical requests wait for them and receive the same
+     * result instead of querying the database again. Like cached results, coalesced
+     * entities are shared between requests, so prefer projections. Default: false.
+     */
+    boolean coalesce() default false;
+
+    /**
+     * Refuse filters and searches that no B-tree index can serve, for bindings on
+     * large tables: compiling the binding fails if the entity has @Filterable LIKE
+     * fields (lower(column) LIKE '%value%') or if searchFields are matched with
+     * SearchMode.LIKE. Use STARTS_WITH, @SearchNormalized columns and
+     * SearchMode.INDEX instead. Default: false.
+     */
+    boolean indexedOnly() default false;
+
+    /**
+     * Where the rows come from. IN_MEMORY answers every request from a columnar
+     * copy of the whole entity table, indexed per @Filterable field; it requires
+     * OFFSET pagination, a single @Id attribute and a projection or columns, since
+     * the rows are shared by every request, and paths in filters, columns and
+     * facets must not cross to-many associations. Exports, streams and
+     * conditional GET validators still read the database. Default: DATABASE.
+     */
+    QuerySource source() default QuerySource.DATABASE;
+
+    /**
+     * After serving a page that has a next one, compute the next page (page + 1,
+     * or the next keyset cursor) on a virtual thread and keep it briefly for the
+     * same user, identified by principal or HTTP session, so the click on "Next"
+     * is answered from memory. Requests without either are not prefetched. Each
+     * user keeps a few pages for at most 30 seconds; a change to the entity
+     * discards them. Prefetched entities are detached. Cannot be combined with
+     * lazy. Default: false.
+     */
+    boolean prefetch() default false;
 }
@@ -0,0 +1,184 @@
+package candi.data.querybind;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * JPA entity listener that tells QueryBind when an entity was inserted, updated
+ * or deleted, so cached results and counts for its type can be dropped. It also
+ * fills the entity's @SearchNormalized fields before each insert and update.
+ *
+ * <pre>
+ * {@literal @}Entity
+ * {@literal @}EntityListeners(QueryBindEntityListener.class)
+ * public class Product { ... }
+ * </pre>
+ *
+ * Inside a Spring-managed transaction, subscribers are notified after commit,
+ * so a concurrent request cannot re-cache the pre-commit state, and once per
+ * transaction with all of its changes, so a bulk commit costs one round of
+ * invalidation rather than one per row. Listener
+ * instances are created by the JPA provider, so subscribers are kept in a
+ * static registry.
+ */
+public class QueryBindEntityListener {
+
+    private static final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private static final ClassValue<List<NormalizedField>> normalizedFields = new ClassValue<>() {
+        @Override
+        protected List<NormalizedField> computeValue(Class<?> type) {
+            return findNormalizedFields(type);
+        }
+    };
+
+    @PrePersist
+    @PreUpdate
+    public void normalize(Object entity) {
+        for (NormalizedField field : normalizedFields.get(entity.getClass())) {
+            try {
+                Object source = field.source().get(entity);
+                field.target().set(entity, source == null ? null : TextNormalizer.fold(source.toString()));
+            } catch (IllegalAccessException e) {
+                throw new QueryBindException("Cannot update @SearchNormalized field '" + field.target().getName()
+                        + "' on " + entity.getClass().getName(), e);
+            }
+        }
+    }
+
+    @PostPersist
+    public void postPersist(Object entity) {
+        publish(entity, ChangeType.PERSIST);
+    }
+
+    @PostUpdate
+    public void postUpdate(Object entity) {
+        publish(entity, ChangeType.UPDATE);
+    }
+
+    @PostRemove
+    public void postRemove(Object entity) {
+        publish(entity, ChangeType.REMOVE);
+    }
+
+    private static List<NormalizedField> findNormalizedFields(Class<?> type) {
+        List<NormalizedField> fields = new ArrayList<>();
+        for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+            for (Field target : current.getDeclaredFields()) {
+                SearchNormalized annotation = target.getAnnotation(SearchNormalized.class);
+                if (annotation != null) {
+                    Field source = findField(type, annotation.value());
+                    if (source == null) {
+                        throw new QueryBindException("@SearchNormalized field '" + target.getName() + "' on "
+                                + type.getName() + " refers to unknown field '" + annotation.value() + "'");
+                    }
+                    target.setAccessible(true);
+                    source.setAccessible(true);
+                    fields.add(new NormalizedField(source, target));
+                }
+            }
+        }
+        return List.copyOf(fields);
+    }
+
+    private static Field findField(Class<?> type, String name) {
+        for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+            try {
+                return current.getDeclaredField(name);
+            } catch (NoSuchFieldException e) {
+                // keep looking in the superclass
+            }
+        }
+        return null;
+    }
+
+    static void subscribe(Subscriber subscriber) {
+        subscribers.add(subscriber);
+    }
+
+    static void unsubscribe(Subscriber subscriber) {
+        subscribers.remove(subscriber);
+    }
+
+    /**
+     * Collect a change into the current transaction's {@link PendingChanges},
+     * registering it with the first change, or notify subscribers at once
+     * outside a transaction. The synchronizations are suspended along with their
+     * transaction, so changes in a nested REQUIRES_NEW transaction are published
+     * when that one commits.
+     */
+    private static void publish(Object entity, ChangeType type) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        Change change = new Change(entity, type);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            notifySubscribers(List.of(change));
+            return;
+        }
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof PendingChanges pending) {
+                pending.changes.add(change);
+                return;
+            }
+        }
+        PendingChanges pending = new PendingChanges();
+        pending.changes.add(change);
+        TransactionSynchronizationManager.registerSynchronization(pending);
+    }
+
+    private static void notifySubscribers(List<Change> changes) {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.onChange(changes);
+        }
+    }
+
+    /**
+     * Kind of entity change.
+     */
+    enum ChangeType {
+        PERSIST, UPDATE, REMOVE
+    }
+
+    /**
+     * One inserted, updated or deleted entity.
+     */
+    record Change(Object entity, ChangeType type) {}
+
+    private record NormalizedField(Field source, Field target) {}
+
+    /**
+     * The changes of one transaction, published together after it commits.
+     */
+    private static final class PendingChanges implements TransactionSynchronization {
+
+        private final List<Change> changes = new ArrayList<>();
+
+        @Override
+        public void afterCommit() {
+            notifySubscribers(List.copyOf(changes));
+        }
+    }
+
+    /**
+     * Receives committed entity changes.
+     */
+    @FunctionalInterface
+    interface Subscriber {
+
+        /**
+         * @param changes the changes of one committed transaction in the order they
+         *                were flushed, or a single change made outside a transaction
+         */
+        void onChange(List<Change> changes);
+    }
+}
@@ -2,14 +2,30 @@ package candi.data.querybind;
 
 import candi.runtime.CandiHandlerMapping;
 import candi.runtime.CandiPage;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.ApplicationContext;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.servlet.HandlerInterceptor;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * HandlerInterceptor that automatically populates @QueryResult fields
@@ -18,6 +34,19 @@ import java.lang.reflect.Field;
  * This interceptor runs before the page lifecycle (init/onGet/render),
  * so by the time the page's onGet() method executes, the query result
  * is already available.
+ *
+ * Pages with @QueryBind(export = true) also answer ?format=csv and
+ * ?format=ndjson by streaming every matching row, skipping the page itself.
+ * Pages with several named bindings get all their @QueryResult fields filled
+ * by queries that run concurrently. Pages whose bindings declare an etag answer
+ * conditional GETs with 304 before any page query runs. With an ObjectMapper set,
+ * pages with @QueryBind(json = true) also answer Accept: application/json or
+ * ?format=json with the bound page as a JSON document instead of rendering.
+ * JSON and HTML carry different ETags, since they are different representations.
+ *
+ * What a page class needs (its @QueryBind annotations, setters for its
+ * @QueryResult fields, or the fact that it has no @QueryBind) is resolved on its first request and
+ * kept per bean name, so later requests skip the reflection.
  */
 public class QueryBindInterceptor implements HandlerInterceptor {
 
@@ -25,12 +54,22 @@ public class QueryBindInterceptor implements HandlerInterceptor {
 
     private final QueryBindService queryBindService;
     private final ApplicationContext applicationContext;
+    private final Map<String, PageBinding> bindings = new ConcurrentHashMap<>();
+    private JsonPageWriter jsonWriter;
 
     public QueryBindInterceptor(QueryBindService queryBindService, ApplicationContext applicationContext) {
         this.queryBindService = queryBindService;
         this.applicationContext = applicationContext;
     }
 
+    /**
+     * Mapper for the rows of JSON page responses. Without one, JSON is never
+     * served, even by @QueryBind(json = true) pages, and every request renders the page.
+     */
+    public void setObjectMapper(ObjectMapper objectMapper) {
+        this.jsonWriter = objectMapper != null ? new JsonPageWriter(objectMapper) : null;
+    }
+
     @Override
     public boolean preHandle(HttpServletRequest request, HttpServletResponse response,
                              Object handler) throws Exception {
@@ -45,27 +84,64 @@ public class QueryBindInterceptor implements HandlerInterceptor {
         }
 
         String beanName = pageHandler.beanName();
+        PageBinding binding = bindings.get(beanName);
+        if (binding == PageBinding.NONE) {
+            return true;
+        }
         CandiPage page = applicationContext.getBean(beanName, CandiPage.class);
-        Class<?> pageClass = page.getClass();
+        if (binding == null) {
+            binding = resolve(page.getClass());
+            bindings.put(beanName, binding);
+            if (binding == PageBinding.NONE) {
+                return true;
+            }
+        }
+        Class<?> pageClass = binding.pageClass();
 
-        QueryBind config = pageClass.getAnnotation(QueryBind.class);
-        if (config == null) {
-            return true;
+        for (QueryBind config : binding.configs()) {
+            String formatParameter = FilterPlan.parameterPrefix(config) + "format";
+            ExportFormat exportFormat = config.export()
+                    ? ExportFormat.fromParameter(request.getParameter(formatParameter))
+                    : null;
+            if (exportFormat != null) {
+                writeExport(pageClass, config, exportFormat, response);
+                return false;
+            }
         }
 
-        // Find the @QueryResult field
-        Field resultField = findQueryResultField(pageClass);
-        if (resultField == null) {
-            log.warn("Page {} has @QueryBind but no @QueryResult field", pageClass.getName());
+        if (binding.results().isEmpty()) {
             return true;
         }
 
+        String jsonBinding = null;
+        if (jsonWriter != null && binding.json()) {
+            response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+            jsonBinding = jsonBinding(binding, request);
+        }
+
+        if (binding.conditional() && notModified(pageClass, binding, jsonBinding != null, request, response)) {
+            return false;
+        }
+
+        if (jsonBinding != null) {
+            writeJson(pageClass, jsonBinding, response);
+            return false;
+        }
+
         try {
-            QueryBindResult<?> result = queryBindService.execute(pageClass);
-            resultField.setAccessible(true);
-            resultField.set(page, result);
-            log.debug("QueryBind: populated field '{}' on {} with {} results",
-                    resultField.getName(), pageClass.getSimpleName(), result.getNumberOfElements());
+            if (binding.bindingNames().size() == 1) {
+                QueryBindResult<?> result = queryBindService.execute(pageClass, binding.bindingNames().get(0));
+                for (ResultField field : binding.results()) {
+                    setResult(pageClass, field, page, result);
+                }
+            } else {
+                // Independent bindings run concurrently; the page waits for the slowest one
+                Map<String, QueryBindResult<?>> results =
+                        queryBindService.executeAll(pageClass, binding.bindingNames());
+                for (ResultField field : binding.results()) {
+                    setResult(pageClass, field, page, results.get(field.binding()));
+                }
+            }
         } catch (Exception e) {
             log.error("QueryBind failed for {}: {}", pageClass.getName(), e.getMessage(), e);
             throw new QueryBindException("Failed to execute QueryBind for " + pageClass.getSimpleName(), e);
@@ -74,16 +150,214 @@ public class QueryBindInterceptor implements HandlerInterceptor {
         return true;
     }
 
-    private Field findQueryResultField(Class<?> pageClass) {
+    /**
+     * Answer a conditional GET from the bindings' validator. Sets ETag (and
+     * Last-Modified when known) and, if the client's copy is current, status 304.
+     */
+    private boolean notModified(Class<?> pageClass, PageBinding binding, boolean json,
+                                HttpServletRequest request, HttpServletResponse response) {
+        try {
+            QueryBindService.Validator validator = queryBindService.validator(pageClass, binding.bindingNames());
+            String etag = json ? jsonEtag(validator.etag()) : validator.etag();
+            boolean notModified = new ServletWebRequest(request, response)
+                    .checkNotModified(etag, validator.lastModified());
+            if (notModified) {
+                log.debug("QueryBind: {} not modified ({})", pageClass.getSimpleName(), etag);
+            }
+            return notModified;
+        } catch (Exception e) {
+            log.error("QueryBind validation failed for {}: {}", pageClass.getName(), e.getMessage(), e);
+            throw new QueryBindException("Failed to validate QueryBind for " + pageClass.getSimpleName(), e);
+        }
+    }
+
+    private void writeExport(Class<?> pageClass, QueryBind config, ExportFormat format,
+                             HttpServletResponse response) {
+        String filename = config.entity().getSimpleName().toLowerCase() + "." + format.getExtension();
+        response.setContentType(format.getContentType());
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setHeader("Content-Disposition", "attachment; filename=\"" + filename + "\"");
+        try {
+            long rows = queryBindService.export(pageClass, config.name(), format, response.getWriter());
+            log.debug("QueryBind: exported {} rows of {} as {}", rows, pageClass.getSimpleName(), format);
+        } catch (Exception e) {
+            log.error("QueryBind export failed for {}: {}", pageClass.getName(), e.getMessage(), e);
+            throw new QueryBindException("Failed to export QueryBind results for " + pageClass.getSimpleName(), e);
+        }
+    }
+
+    /**
+     * The binding a request asks for as JSON: the json one whose format parameter
+     * is "json", or the first bound json one when the Accept header prefers JSON
+     * to HTML.
+     *
+     * @return the binding name, or null to render the page
+     */
+    private static String jsonBinding(PageBinding binding, HttpServletRequest request) {
+        String first = null;
+        for (QueryBind config : binding.configs()) {
+            if (!config.json() || !binding.bindingNames().contains(config.name())) {
+                continue;
+            }
+            String format = request.getParameter(FilterPlan.parameterPrefix(config) + "format");
+            if ("json".equalsIgnoreCase(format)) {
+                return config.name();
+            }
+            if (first == null) {
+                first = config.name();
+            }
+        }
+        return first != null && prefersJson(request.getHeader(HttpHeaders.ACCEPT)) ? first : null;
+    }
+
+    /**
+     * The ETag of the JSON representation, derived from the page's quoted ETag
+     * so that caches never answer a JSON request with HTML or the other way round.
+     */
+    static String jsonEtag(String etag) {
+        return etag.substring(0, etag.length() - 1) + "-json\"";
+    }
+
+    /**
+     * Whether an Accept header names application/json explicitly, with at least
+     * the quality of text/html. Wildcards do not count, so browsers get HTML.
+     */
+    static boolean prefersJson(String accept) {
+        if (accept == null || !accept.contains("json")) {
+            return false;
+        }
+        try {
+            double json = 0;
+            double html = 0;
+            for (MediaType type : MediaType.parseMediaTypes(accept)) {
+                if (type.isWildcardType() || type.isWildcardSubtype()) {
+                    continue;
+                }
+                if (type.isCompatibleWith(MediaType.APPLICATION_JSON)) {
+                    json = Math.max(json, type.getQualityValue());
+                } else if (type.isCompatibleWith(MediaType.TEXT_HTML)) {
+                    html = Math.max(html, type.getQualityValue());
+                }
+            }
+            return json > 0 && json >= html;
+        } catch (InvalidMediaTypeException e) {
+            return false;
+        }
+    }
+
+    private void writeJson(Class<?> pageClass, String bindingName, HttpServletResponse response) {
+        try {
+            QueryBindResult<?> result = queryBindService.execute(pageClass, bindingName);
+            response.setContentType(JsonPageWriter.CONTENT_TYPE);
+            response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+            jsonWriter.write(result, response.getOutputStream());
+            log.debug("QueryBind: wrote {} rows of {} as JSON", result.getNumberOfElements(),
+                    pageClass.getSimpleName());
+        } catch (Exception e) {
+            log.error("QueryBind JSON failed for {}: {}", pageClass.getName(), e.getMessage(), e);
+            throw new QueryBindException("Failed to write QueryBind JSON for " + pageClass.getSimpleName(), e);
+        }
+    }
+
+    private static void setResult(Class<?> pageClass, ResultField field, CandiPage page,
+                                  QueryBindResult<?> result) {
+        try {
+            field.setter().invokeExact((Object) page, (Object) result);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new QueryBindException("Cannot set @QueryResult field '" + field.name()
+                    + "' on " + pageClass.getName(), e);
+        }
+        log.debug("QueryBind: populated field '{}' on {}", field.name(), pageClass.getSimpleName());
+    }
+
+    /**
+     * Read the @QueryBind annotations of a page class and build a setter for each
+     * of its @QueryResult fields.
+     */
+    private PageBinding resolve(Class<?> pageClass) {
+        QueryBind[] configs = pageClass.getAnnotationsByType(QueryBind.class);
+        if (configs.length == 0) {
+            return PageBinding.NONE;
+        }
+        Set<String> names = new HashSet<>();
+        for (QueryBind config : configs) {
+            if (!names.add(config.name())) {
+                throw new QueryBindException("Page " + pageClass.getName()
+                        + " has more than one @QueryBind named '" + config.name() + "'");
+            }
+        }
+
+        List<ResultField> results = new ArrayList<>();
+        Set<String> bound = new LinkedHashSet<>();
+        for (Field resultField : findQueryResultFields(pageClass)) {
+            String name = resultField.getAnnotation(QueryResult.class).binding();
+            if (!names.contains(name)) {
+                throw new QueryBindException("@QueryResult field '" + resultField.getName() + "' on "
+                        + pageClass.getName() + " refers to no @QueryBind named '" + name + "'");
+            }
+            try {
+                resultField.setAccessible(true);
+                MethodHandle setter = MethodHandles.lookup().unreflectSetter(resultField)
+                        .asType(MethodType.methodType(void.class, Object.class, Object.class));
+                results.add(new ResultField(name, setter, resultField.getName()));
+                bound.add(name);
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                throw new QueryBindException("Cannot access @QueryResult field '" + resultField.getName()
+                        + "' on " + pageClass.getName(), e);
+            }
+        }
+        if (results.isEmpty()) {
+            log.warn("Page {} has @QueryBind but no @QueryResult field", pageClass.getName());
+        }
+        boolean conditional = !bound.isEmpty();
+        boolean json = false;
+        for (QueryBind config : configs) {
+            if (bound.contains(config.name()) && config.etag().isEmpty()) {
+                conditional = false;
+            }
+            if (bound.contains(config.name()) && config.json()) {
+                json = true;
+            }
+        }
+        return new PageBinding(pageClass, List.of(configs), List.copyOf(results), List.copyOf(bound),
+                conditional, json);
+    }
+
+    private List<Field> findQueryResultFields(Class<?> pageClass) {
+        List<Field> fields = new ArrayList<>();
         Class<?> current = pageClass;
         while (current != null && current != Object.class) {
             for (Field field : current.getDeclaredFields()) {
                 if (field.isAnnotationPresent(QueryResult.class)) {
-                    return field;
+                    fields.add(field);
                 }
             }
             current = current.getSuperclass();
         }
-        return null;
+        return fields;
     }
+
+    /**
+     * What the interceptor needs to know about a page bean, resolved once.
+     *
+     * @param pageClass    the page class
+     * @param configs      its @QueryBind annotations
+     * @param results      its @QueryResult fields
+     * @param bindingNames names of the bindings with at least one @QueryResult field
+     * @param conditional  whether all of those bindings have an etag, enabling conditional GET
+     * @param json         whether any of those bindings answers JSON
+     */
+    private record PageBinding(Class<?> pageClass, List<QueryBind> configs, List<ResultField> results,
+                               List<String> bindingNames, boolean conditional, boolean json) {
+
+        /** Marker for pages without @QueryBind. */
+        static final PageBinding NONE = new PageBinding(null, List.of(), List.of(), List.of(), false, false);
+    }
+
+    /**
+     * A @QueryResult field with a (page, result) setter.
+     */
+    private record ResultField(String binding, MethodHandle setter, String name) {}
 }
@@ -0,0 +1,72 @@
+package candi.data.querybind;
+
+import java.util.List;
+
+/**
+ * Receives QueryBind execution events for monitoring.
+ *
+ * The default implementation ignores them. With Micrometer on the classpath,
+ * CandiQueryBindAutoConfiguration installs {@link MicrometerQueryBindMetrics}.
+ */
+interface QueryBindMetrics {
+
+    QueryBindMetrics NONE = new QueryBindMetrics() {};
+
+    /**
+     * How an execution got its result.
+     */
+    enum Source {
+        /** The queries ran for this execution. */
+        DATABASE,
+        /** Served from the result cache. */
+        CACHE,
+        /** Shared the result of an identical execution that was already running. */
+        COALESCED,
+        /** Answered from the rows of a @QueryBind(source = IN_MEMORY) binding. */
+        MEMORY,
+        /** Served from a page that @QueryBind(prefetch = true) computed ahead. */
+        PREFETCH
+    }
+
+    /**
+     * What happened to a @QueryBind(prefetch = true) page. HIT / (HIT + MISS) is
+     * the share of requests answered ahead; STARTED - HIT is the work wasted.
+     */
+    enum Prefetch {
+        /** The next page started computing in the background. */
+        STARTED,
+        /** A request was answered with a prefetched page. */
+        HIT,
+        /** A request of a prefetching binding found no usable page. */
+        MISS
+    }
+
+    /**
+     * How a single query ended.
+     */
+    enum Outcome {
+        SUCCESS,
+        /** Cancelled by @QueryBind.timeoutMs. */
+        TIMEOUT,
+        ERROR
+    }
+
+    /**
+     * An execution of the given plan completed.
+     */
+    default void execution(FilterPlan plan, Source source) {}
+
+    /**
+     * A prefetch event of the given plan.
+     */
+    default void prefetch(FilterPlan plan, Prefetch event) {}
+
+    /**
+     * A query of the given plan ran against the database.
+     *
+     * @param query which query ran: page, keyset, load, count, probe, facet, facets or validator
+     * @param shape the filter shape of the request, see {@link FilterPlan#describeShape(List)}
+     * @param nanos how long the query took
+     */
+    default void query(FilterPlan plan, String query, List<Object> shape, Outcome outcome, long nanos) {}
+}
@@ -0,0 +1,122 @@
+package candi.data.querybind;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Configuration properties for Candi QueryBind.
+ *
+ * <pre>
+ * candi:
+ *   querybind:
+ *     result-cache-max-entries: 10000
+ *     json-pages: true
+ *     slow-query-threshold: 500ms
+ *     index-advisor: true
+ *     replica:
+ *       url: jdbc:postgresql://replica:5432/app
+ *       username: app
+ *       password: secret
+ *       primary-after-write: 5s
+ * </pre>
+ */
+@ConfigurationProperties(prefix = "candi.querybind")
+public class QueryBindProperties {
+
+    /** Maximum number of results held by the default in-memory result cache. */
+    private int resultCacheMaxEntries = 10_000;
+
+    /** Whether @QueryBind(json = true) pages answer Accept: application/json and ?format=json; false turns JSON off. */
+    private boolean jsonPages = true;
+
+    /** Queries taking at least this long are logged with their SQL; 0 turns the log off. */
+    private Duration slowQueryThreshold = Duration.ofMillis(500);
+
+    /** Whether to log, at startup, the bindings whose filters or sort have no declared index. */
+    private boolean indexAdvisor = true;
+
+    /** Read replica that QueryBind reads outside a transaction go to; unused without a url. */
+    private final Replica replica = new Replica();
+
+    public int getResultCacheMaxEntries() {
+        return resultCacheMaxEntries;
+    }
+
+    public void setResultCacheMaxEntries(int resultCacheMaxEntries) {
+        this.resultCacheMaxEntries = resultCacheMaxEntries;
+    }
+
+    public boolean isJsonPages() {
+        return jsonPages;
+    }
+
+    public void setJsonPages(boolean jsonPages) {
+        this.jsonPages = jsonPages;
+    }
+
+    public Duration getSlowQueryThreshold() {
+        return slowQueryThreshold;
+    }
+
+    public void setSlowQueryThreshold(Duration slowQueryThreshold) {
+        this.slowQueryThreshold = slowQueryThreshold;
+    }
+
+    public boolean isIndexAdvisor() {
+        return indexAdvisor;
+    }
+
+    public void setIndexAdvisor(boolean indexAdvisor) {
+        this.indexAdvisor = indexAdvisor;
+    }
+
+    public Replica getReplica() {
+        return replica;
+    }
+
+    public static class Replica {
+
+        /** JDBC url of the read replica. */
+        private String url;
+
+        private String username;
+
+        private String password;
+
+        /** How long a client reads from the primary after one of its requests wrote. */
+        private Duration primaryAfterWrite = Duration.ofSeconds(5);
+
+        public String getUrl() {
+            return url;
+        }
+
+        public void setUrl(String url) {
+            this.url = url;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public void setUsername(String username) {
+            this.username = username;
+        }
+
+        public String getPassword() {
+            return password;
+        }
+
+        public void setPassword(String password) {
+            this.password = password;
+        }
+
+        public Duration getPrimaryAfterWrite() {
+            return primaryAfterWrite;
+        }
+
+        public void setPrimaryAfterWrite(Duration primaryAfterWrite) {
+            this.primaryAfterWrite = primaryAfterWrite;
+        }
+    }
+}
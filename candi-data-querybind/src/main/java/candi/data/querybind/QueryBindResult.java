@@ -8,6 +8,10 @@ import java.util.Map;
  * Result of a QueryBind query execution, containing the paginated data
  * and metadata for building pagination UI.
  *
+ * With @QueryBind(lazy = true) the result is a subclass that runs each query on
+ * first access to a getter that needs it; the derived getters below therefore go
+ * through the basic ones rather than the fields.
+ *
  * @param <T> the entity type
  */
 public class QueryBindResult<T> {
@@ -17,21 +21,71 @@ public class QueryBindResult<T> {
     private final int size;
     private final long totalElements;
     private final int totalPages;
+    private final TotalKind totalKind;
     private final String sort;
     private final String direction;
     private final Map<String, String> activeFilters;
+    private final boolean hasNext;
+    private final boolean keyset;
+    private final String nextCursor;
+    private final String previousCursor;
+    private final Map<String, Map<Object, Long>> facets;
 
     public QueryBindResult(List<T> content, int page, int size, long totalElements,
                            int totalPages, String sort, String direction,
                            Map<String, String> activeFilters) {
+        this(content, page, size, totalElements, totalPages, TotalKind.EXACT, page < totalPages - 1,
+                sort, direction, activeFilters, false, null, null, null);
+    }
+
+    /**
+     * Create an offset-paginated result whose total may be capped or unknown.
+     * hasNext is passed explicitly because it cannot always be derived from the total.
+     */
+    public QueryBindResult(List<T> content, int page, int size, long totalElements,
+                           int totalPages, TotalKind totalKind, boolean hasNext,
+                           String sort, String direction, Map<String, String> activeFilters) {
+        this(content, page, size, totalElements, totalPages, totalKind, hasNext,
+                sort, direction, activeFilters, false, null, null, null);
+    }
+
+    /**
+     * Create a keyset-paginated result. hasNext()/hasPrevious() follow the cursors.
+     */
+    public QueryBindResult(List<T> content, int size, long totalElements, int totalPages,
+                           TotalKind totalKind, String sort, String direction,
+                           Map<String, String> activeFilters, String nextCursor, String previousCursor) {
+        this(content, 0, size, totalElements, totalPages, totalKind, nextCursor != null,
+                sort, direction, activeFilters, true, nextCursor, previousCursor, null);
+    }
+
+    QueryBindResult(List<T> content, int page, int size, long totalElements,
+                    int totalPages, TotalKind totalKind, boolean hasNext,
+                    String sort, String direction, Map<String, String> activeFilters,
+                    boolean keyset, String nextCursor, String previousCursor,
+                    Map<String, Map<Object, Long>> facets) {
         this.content = content != null ? content : Collections.emptyList();
         this.page = page;
         this.size = size;
         this.totalElements = totalElements;
         this.totalPages = totalPages;
+        this.totalKind = totalKind;
         this.sort = sort;
         this.direction = direction;
         this.activeFilters = activeFilters != null ? activeFilters : Collections.emptyMap();
+        this.hasNext = hasNext;
+        this.keyset = keyset;
+        this.nextCursor = nextCursor;
+        this.previousCursor = previousCursor;
+        this.facets = facets != null ? facets : Collections.emptyMap();
+    }
+
+    /**
+     * Copy of this result carrying the given facet counts.
+     */
+    QueryBindResult<T> withFacets(Map<String, Map<Object, Long>> facets) {
+        return new QueryBindResult<>(content, page, size, totalElements, totalPages, totalKind, hasNext,
+                sort, direction, activeFilters, keyset, nextCursor, previousCursor, facets);
     }
 
     /**
@@ -42,7 +96,7 @@ public class QueryBindResult<T> {
     }
 
     /**
-     * Current page number (0-based).
+     * Current page number (0-based). Always 0 for keyset pagination.
      */
     public int getPage() {
         return page;
@@ -57,18 +111,45 @@ public class QueryBindResult<T> {
 
     /**
      * Total number of matching elements across all pages.
+     * A lower bound when the total is CAPPED, and -1 when it is UNKNOWN.
      */
     public long getTotalElements() {
         return totalElements;
     }
 
     /**
-     * Total number of pages.
+     * Total number of pages. When the total is not EXACT, only the pages known
+     * to exist are counted (up to and including the next page, if any).
      */
     public int getTotalPages() {
         return totalPages;
     }
 
+    /**
+     * How precise getTotalElements() is.
+     */
+    public TotalKind getTotalKind() {
+        return totalKind;
+    }
+
+    /**
+     * Whether getTotalElements() is the exact number of matching elements.
+     */
+    public boolean isTotalExact() {
+        return getTotalKind() == TotalKind.EXACT;
+    }
+
+    /**
+     * Total for display: "1234" when exact, "1000+" when capped, "" when unknown.
+     */
+    public String getTotalLabel() {
+        return switch (getTotalKind()) {
+            case EXACT -> String.valueOf(getTotalElements());
+            case CAPPED -> getTotalElements() + "+";
+            case UNKNOWN -> "";
+        };
+    }
+
     /**
      * Current sort field.
      */
@@ -90,51 +171,88 @@ public class QueryBindResult<T> {
         return activeFilters;
     }
 
+    /**
+     * Counts per value of each @QueryBind.facets entry, in declaration order. Each
+     * facet is counted under the current filters except its own, most frequent
+     * value first; a null key counts rows without a value. Empty without facets.
+     */
+    public Map<String, Map<Object, Long>> getFacets() {
+        return facets;
+    }
+
+    /**
+     * Whether this result was produced by keyset pagination.
+     */
+    public boolean isKeyset() {
+        return keyset;
+    }
+
+    /**
+     * Cursor for the slice after this one, or null if there is none.
+     * Only set for keyset pagination; pass it back as the "cursor" URL parameter.
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    /**
+     * Cursor for the slice before this one, or null if there is none.
+     * Only set for keyset pagination; pass it back as the "cursor" URL parameter.
+     */
+    public String getPreviousCursor() {
+        return previousCursor;
+    }
+
     /**
      * Whether there is a next page.
      */
     public boolean hasNext() {
-        return page < totalPages - 1;
+        return hasNext;
     }
 
     /**
      * Whether there is a previous page.
      */
     public boolean hasPrevious() {
-        return page > 0;
+        if (isKeyset()) {
+            return getPreviousCursor() != null;
+        }
+        return getPage() > 0;
     }
 
     /**
      * Whether the result set is empty.
      */
     public boolean isEmpty() {
-        return content.isEmpty();
+        return getContent().isEmpty();
     }
 
     /**
      * Number of elements on the current page.
      */
     public int getNumberOfElements() {
-        return content.size();
+        return getContent().size();
     }
 
     /**
      * Whether this is the first page.
      */
     public boolean isFirst() {
-        return page == 0;
+        return !hasPrevious();
     }
 
     /**
      * Whether this is the last page.
      */
     public boolean isLast() {
-        return page >= totalPages - 1;
+        return !hasNext();
     }
 
     @Override
     public String toString() {
-        return String.format("QueryBindResult[page=%d/%d, size=%d, total=%d, sort=%s %s, filters=%s]",
-                page, totalPages, content.size(), totalElements, sort, direction, activeFilters);
+        return String.format("QueryBindResult[page=%d/%d, size=%d, total=%s, sort=%s %s, filters=%s]",
+                getPage(), getTotalPages(), getNumberOfElements(),
+                getTotalKind() == TotalKind.UNKNOWN ? "?" : getTotalLabel(),
+                getSort(), getDirection(), getActiveFilters());
     }
 }
@@ -0,0 +1,84 @@
+package candi.data.querybind;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * DataSource that hands out read replica connections to QueryBind reads and
+ * primary connections to everything else.
+ *
+ * QueryBindService marks the reads it may send to the replica; any other
+ * connection, including every write, comes from the primary. Both databases sit
+ * behind the one EntityManagerFactory, so compiled plans, criteria and caches are
+ * shared. Auto-configured around the "dataSource" bean when
+ * candi.querybind.replica.url is set.
+ */
+public class QueryBindRoutingDataSource extends AbstractRoutingDataSource implements AutoCloseable {
+
+    private static final ThreadLocal<Boolean> REPLICA = new ThreadLocal<>();
+
+    private final DataSource primary;
+    private final DataSource replica;
+
+    public QueryBindRoutingDataSource(DataSource primary, DataSource replica) {
+        this.primary = primary;
+        this.replica = replica;
+        setTargetDataSources(Map.of(Route.PRIMARY, primary, Route.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    public DataSource getPrimary() {
+        return primary;
+    }
+
+    public DataSource getReplica() {
+        return replica;
+    }
+
+    /**
+     * Run work whose connections come from the replica.
+     */
+    static <R> R onReplica(Supplier<R> work) {
+        Boolean previous = REPLICA.get();
+        REPLICA.set(Boolean.TRUE);
+        try {
+            return work.get();
+        } finally {
+            if (previous == null) {
+                REPLICA.remove();
+            } else {
+                REPLICA.set(previous);
+            }
+        }
+    }
+
+    /**
+     * Close both pools, since this DataSource replaces the primary bean and with it
+     * the primary's shutdown.
+     */
+    @Override
+    public void close() throws Exception {
+        try {
+            if (replica instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        } finally {
+            if (primary instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return REPLICA.get() != null ? Route.REPLICA : Route.PRIMARY;
+    }
+
+    private enum Route {
+        PRIMARY, REPLICA
+    }
+}
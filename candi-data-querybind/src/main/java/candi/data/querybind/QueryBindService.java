@@ -1,20 +1,60 @@
 package candi.data.querybind;
 
+import jakarta.persistence.EntityGraph;
 import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Parameter;
+import jakarta.persistence.PersistenceUnitUtil;
+import jakarta.persistence.QueryTimeoutException;
+import jakarta.persistence.Subgraph;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.metamodel.EntityType;
 import jakarta.persistence.TypedQuery;
 import jakarta.persistence.criteria.*;
+import jakarta.servlet.http.Cookie;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpSession;
+import org.hibernate.query.criteria.JpaExpression;
+import org.hibernate.query.criteria.JpaSelectCriteria;
+import org.hibernate.query.criteria.JpaSubQuery;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.stereotype.Component;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
 
-import java.lang.reflect.Field;
-import java.math.BigDecimal;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.Principal;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 /**
  * Service that executes JPA Criteria queries based on @QueryBind configuration
@@ -26,57 +66,1618 @@ import java.util.*;
  *   sort      - sort field (default from @QueryBind.defaultSort)
  *   direction - sort direction "asc" or "desc" (default from @QueryBind.defaultDirection)
  *   search    - full-text search across @QueryBind.searchFields
+ *   cursor    - opaque keyset position (KEYSET pagination only)
  *   [param]   - any @Filterable field matching parameter names
  *
  * Can be used directly via injection or automatically via QueryBindInterceptor.
+ * Entity metadata is compiled into a {@link FilterPlan} on first use per page class.
+ * Cached results and counts are dropped when QueryBindEntityListener reports a change.
+ * With replica reads enabled, queries outside a caller's transaction read from the
+ * replica of a {@link QueryBindRoutingDataSource}.
  */
-@Component
-public class QueryBindService {
+public class QueryBindService implements DisposableBean {
 
     private static final Logger log = LoggerFactory.getLogger(QueryBindService.class);
+    private static final Logger slowQueryLog = LoggerFactory.getLogger("candi.data.querybind.slow");
+
+    private static final int COUNT_CACHE_MAX_ENTRIES = 10_000;
+    private static final String LOAD_GRAPH_HINT = "jakarta.persistence.loadgraph";
+    private static final String FETCH_SIZE_HINT = "org.hibernate.fetchSize";
+    private static final String READ_ONLY_HINT = "org.hibernate.readOnly";
+    private static final int STREAM_BATCH_SIZE = 500;
+    private static final int SEARCH_INDEX_MAX_IDS = 1024;
+    private static final String QUERY_PLAN_CACHEABLE_HINT = "hibernate.query.plan.cacheable";
+    private static final int CRITERIA_CACHE_MAX_ENTRIES = 2_000;
+    private static final long CRITERIA_CACHE_TTL_MILLIS = TimeUnit.HOURS.toMillis(1);
+    private static final int FACET_CACHE_MAX_ENTRIES = 10_000;
+    private static final int FACET_COMBINED_MAX_GROUPS = 5_000;
+    private static final String QUERY_TIMEOUT_HINT = "jakarta.persistence.query.timeout";
+    private static final int CIRCUIT_TIMEOUT_THRESHOLD = 3;
+    private static final long CIRCUIT_OPEN_MILLIS = TimeUnit.MINUTES.toMillis(1);
+    private static final int CIRCUIT_MAX_ENTRIES = 2_000;
+    private static final String PRIMARY_COOKIE = "candi-qb-primary";
+    private static final String PRIMARY_ATTRIBUTE = QueryBindService.class.getName() + ".PRIMARY";
+    private static final int PREFETCH_MAX_USERS = 10_000;
+    private static final int PREFETCH_PAGES_PER_USER = 4;
+    private static final long PREFETCH_TTL_MILLIS = TimeUnit.SECONDS.toMillis(30);
 
     private final EntityManager entityManager;
+    private final TransactionTemplate readOnlyTransaction;
+    private final TransactionTemplate newReadOnlyTransaction;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<PlanKey, FilterPlan> plans = new ConcurrentHashMap<>();
+    private final TtlCache<CountKey, Long> countCache = new TtlCache<>(COUNT_CACHE_MAX_ENTRIES);
+    private final TtlCache<ShapeKey, CriteriaQuery<?>> criteriaCache = new TtlCache<>(CRITERIA_CACHE_MAX_ENTRIES);
+    private final TtlCache<FacetKey, Map<Object, Long>> facetCache = new TtlCache<>(FACET_CACHE_MAX_ENTRIES);
+    private final TtlCache<ShapeKey, Integer> shapeTimeouts = new TtlCache<>(CIRCUIT_MAX_ENTRIES);
+    private final QueryBindEntityListener.Subscriber changeListener = this::onEntityChange;
+    private final Map<Class<?>, Set<String>> indexedFields = new ConcurrentHashMap<>();
+    private final Map<Class<?>, Set<String>> builtFields = new ConcurrentHashMap<>();
+    private final Set<Class<?>> rebuilding = ConcurrentHashMap.newKeySet();
+    private final long startedAt = System.currentTimeMillis();
+    private final Map<QueryCacheKey, CompletableFuture<QueryBindResult<?>>> inFlight = new ConcurrentHashMap<>();
+    private final Map<FilterPlan, CompletableFuture<InMemoryTable>> memoryTables = new ConcurrentHashMap<>();
+    private final Map<FilterPlan, Set<Class<?>>> memorySources = new ConcurrentHashMap<>();
+    private final Set<FilterPlan> queuedReloads = ConcurrentHashMap.newKeySet();
+    private final PrefetchCache prefetches =
+            new PrefetchCache(PREFETCH_MAX_USERS, PREFETCH_PAGES_PER_USER, PREFETCH_TTL_MILLIS);
+    private QueryResultCache resultCache;
+    private SearchIndex searchIndex;
+    private QueryBindMetrics metrics = QueryBindMetrics.NONE;
+    private boolean replicaReads;
+    private Duration primaryAfterWrite = Duration.ofSeconds(5);
+    private long slowQueryNanos;
+    private long circuitOpenMillis = CIRCUIT_OPEN_MILLIS;
+
+    public QueryBindService(EntityManager entityManager) {
+        this(entityManager, null);
+    }
+
+    /**
+     * @param entityManager      the shared (transaction-bound) EntityManager
+     * @param transactionManager used to give each parallel query, stream and export
+     *                           its own read-only transaction; may be null
+     */
+    public QueryBindService(EntityManager entityManager, PlatformTransactionManager transactionManager) {
+        this.entityManager = entityManager;
+        if (transactionManager != null) {
+            this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+            this.readOnlyTransaction.setReadOnly(true);
+            this.newReadOnlyTransaction = new TransactionTemplate(transactionManager);
+            this.newReadOnlyTransaction.setReadOnly(true);
+            this.newReadOnlyTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        } else {
+            this.readOnlyTransaction = null;
+            this.newReadOnlyTransaction = null;
+        }
+        QueryBindEntityListener.subscribe(changeListener);
+    }
+
+    /**
+     * Cache for bindings with @QueryBind(cacheSeconds &gt; 0). Without one, results are never cached.
+     */
+    public void setResultCache(QueryResultCache resultCache) {
+        this.resultCache = resultCache;
+    }
+
+    /**
+     * Index for bindings with @QueryBind(searchMode = INDEX). Without one, every
+     * search uses LIKE.
+     */
+    public void setSearchIndex(SearchIndex searchIndex) {
+        this.searchIndex = searchIndex;
+    }
+
+    void setMetrics(QueryBindMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * How long a query shape stays refused after its last timeout. Default
+     * CIRCUIT_OPEN_MILLIS; shorter in tests.
+     */
+    void setCircuitOpenTime(Duration circuitOpenTime) {
+        this.circuitOpenMillis = circuitOpenTime.toMillis();
+    }
+
+    /**
+     * Log queries that take at least this long, with their SQL, to the
+     * "candi.data.querybind.slow" logger. Zero or null turns the log off. Off
+     * unless set; the auto-configuration sets candi.querybind.slow-query-threshold,
+     * 500ms by default.
+     */
+    public void setSlowQueryThreshold(Duration slowQueryThreshold) {
+        this.slowQueryNanos = slowQueryThreshold == null ? 0 : slowQueryThreshold.toNanos();
+    }
+
+    /**
+     * Send queries that run outside a caller's transaction to the read replica of a
+     * {@link QueryBindRoutingDataSource}. Needs a transaction manager; off by default.
+     */
+    public void setReplicaReads(boolean replicaReads) {
+        this.replicaReads = replicaReads && readOnlyTransaction != null;
+    }
+
+    /**
+     * How long a client keeps reading from the primary after one of its requests
+     * wrote, so it sees its own change while the replica catches up. Default 5 seconds.
+     */
+    public void setPrimaryAfterWrite(Duration primaryAfterWrite) {
+        this.primaryAfterWrite = primaryAfterWrite;
+    }
+
+    /**
+     * Read from the primary for the rest of the current request, and for
+     * primaryAfterWrite in later requests of the same client (by cookie). Called
+     * for every change QueryBindEntityListener reports; call it after writes that
+     * bypass the listener, e.g. bulk updates. Does nothing without replica reads or
+     * outside an HTTP request.
+     */
+    public void pinToPrimary() {
+        if (!replicaReads
+                || !(RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes)) {
+            return;
+        }
+        HttpServletRequest request = attributes.getRequest();
+        if (request.getAttribute(PRIMARY_ATTRIBUTE) != null) {
+            return;
+        }
+        request.setAttribute(PRIMARY_ATTRIBUTE, Boolean.TRUE);
+        HttpServletResponse response = attributes.getResponse();
+        long seconds = (primaryAfterWrite.toMillis() + 999) / 1000;
+        if (response != null && !response.isCommitted() && seconds > 0) {
+            Cookie cookie = new Cookie(PRIMARY_COOKIE, "1");
+            cookie.setPath("/");
+            cookie.setHttpOnly(true);
+            cookie.setMaxAge(Math.toIntExact(seconds));
+            response.addCookie(cookie);
+        }
+    }
+
+    /**
+     * Drop cached results, counts and facet counts for an entity type, e.g. after a
+     * bulk update that bypasses QueryBindEntityListener. @QueryBind(source = IN_MEMORY)
+     * rows read from that type are reloaded in the background.
+     */
+    public void invalidate(Class<?> entityType) {
+        invalidate(Set.of(entityType));
+    }
+
+    /**
+     * Drop what depends on any of the given entity types, scanning each cache once.
+     */
+    private void invalidate(Set<Class<?>> entityTypes) {
+        countCache.removeIf(key -> bindsAny(key.plan(), entityTypes));
+        facetCache.removeIf(key -> bindsAny(key.plan(), entityTypes));
+        for (Class<?> entityType : entityTypes) {
+            prefetches.invalidate(entityType);
+            if (resultCache != null) {
+                resultCache.invalidate(entityType);
+            }
+        }
+        if (!memoryTables.isEmpty()) {
+            reloadMemoryTables(entityTypes);
+        }
+    }
+
+    private static boolean bindsAny(FilterPlan plan, Set<Class<?>> entityTypes) {
+        for (Class<?> entityType : entityTypes) {
+            if (plan.entityClass().isAssignableFrom(entityType)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * React to the changes of one committed transaction: invalidate each changed
+     * type once, then update the search index.
+     */
+    private void onEntityChange(List<QueryBindEntityListener.Change> changes) {
+        pinToPrimary();
+        Set<Class<?>> entityTypes = new LinkedHashSet<>();
+        for (QueryBindEntityListener.Change change : changes) {
+            entityTypes.add(change.entity().getClass());
+        }
+        invalidate(entityTypes);
+        if (searchIndex != null && !indexedFields.isEmpty()) {
+            updateSearchIndex(changes);
+        }
+    }
+
+    /**
+     * (Re)build the search index of the entities bound by the given page classes
+     * with @QueryBind(searchMode = INDEX), reading the search fields of every row.
+     * Searches use LIKE until the index of their entity is built. Called on
+     * application startup; the index is also built on the first search otherwise.
+     */
+    public void rebuildSearchIndex(Class<?>... pageClasses) {
+        if (searchIndex == null) {
+            throw new QueryBindException("No SearchIndex configured");
+        }
+        Set<Class<?>> entityTypes = new LinkedHashSet<>();
+        for (Class<?> pageClass : pageClasses) {
+            for (QueryBind config : pageClass.getAnnotationsByType(QueryBind.class)) {
+                FilterPlan plan = planFor(pageClass, config.name());
+                if (plan.config().searchMode() == SearchMode.INDEX) {
+                    entityTypes.add(plan.entityClass());
+                }
+            }
+        }
+        for (Class<?> entityType : entityTypes) {
+            rebuildEntityIndex(entityType);
+        }
+    }
+
+    private void rebuildEntityIndex(Class<?> entityType) {
+        if (!rebuilding.add(entityType)) {
+            return;
+        }
+        try {
+            Set<String> fields = Set.copyOf(indexedFields.get(entityType));
+            SearchIndex.Loader loader = searchIndex.rebuild(entityType);
+            long start = System.nanoTime();
+            long count;
+            try {
+                count = inReadOnlyTransaction(() -> loadDocuments(entityType, fields, null, loader::add));
+            } catch (RuntimeException | Error e) {
+                loader.abort();
+                throw e;
+            }
+            loader.commit();
+            builtFields.put(entityType, fields);
+            log.info("QueryBind: indexed {} {} rows for search in {} ms", count, entityType.getSimpleName(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } finally {
+            rebuilding.remove(entityType);
+        }
+    }
+
+    /**
+     * Whether searches of this plan can be answered by the index, scheduling a
+     * rebuild in the background if its entity or fields are not indexed yet.
+     */
+    private boolean usesSearchIndex(FilterPlan plan) {
+        if (searchIndex == null || plan.config().searchMode() != SearchMode.INDEX) {
+            return false;
+        }
+        Set<String> built = builtFields.get(plan.entityClass());
+        if (built != null && built.containsAll(plan.searchFieldNames())) {
+            return true;
+        }
+        if (!rebuilding.contains(plan.entityClass())) {
+            executor.submit(() -> {
+                try {
+                    rebuildEntityIndex(plan.entityClass());
+                } catch (RuntimeException e) {
+                    log.error("QueryBind: search index rebuild for {} failed",
+                            plan.entityClass().getSimpleName(), e);
+                }
+            });
+        }
+        return false;
+    }
+
+    /**
+     * Apply committed changes to the search index. Removals are applied at once;
+     * inserted and updated rows have their search fields re-read in the background,
+     * one task per indexed type, so nested paths such as "author.name" see
+     * committed values.
+     */
+    private void updateSearchIndex(List<QueryBindEntityListener.Change> changes) {
+        PersistenceUnitUtil util = entityManager.getEntityManagerFactory().getPersistenceUnitUtil();
+        for (Map.Entry<Class<?>, Set<String>> entry : indexedFields.entrySet()) {
+            Class<?> entityType = entry.getKey();
+            Set<Object> changed = new LinkedHashSet<>();
+            for (QueryBindEntityListener.Change change : changes) {
+                if (!entityType.isInstance(change.entity())) {
+                    continue;
+                }
+                Object id = util.getIdentifier(change.entity());
+                if (change.type() == QueryBindEntityListener.ChangeType.REMOVE) {
+                    searchIndex.remove(entityType, id);
+                    changed.remove(id);
+                } else {
+                    changed.add(id);
+                }
+            }
+            if (changed.isEmpty()) {
+                continue;
+            }
+            Set<String> fields = Set.copyOf(entry.getValue());
+            List<Object> ids = List.copyOf(changed);
+            executor.submit(() -> {
+                try {
+                    inReadOnlyTransaction(false, () -> loadDocuments(entityType, fields, ids,
+                            (documentId, values) -> searchIndex.put(entityType, documentId, values)));
+                } catch (RuntimeException e) {
+                    log.warn("QueryBind: could not index {} changed {} rows: {}", ids.size(),
+                            entityType.getSimpleName(), e.getMessage());
+                }
+            });
+        }
+    }
+
+    /**
+     * Read the search field values of every row of an entity type, or of the rows
+     * with the given ids, STREAM_BATCH_SIZE ids per query.
+     */
+    private long loadDocuments(Class<?> entityType, Set<String> fields, List<Object> ids,
+                               BiConsumer<Object, Map<String, String>> sink) {
+        if (ids == null) {
+            return loadDocumentBatch(entityType, fields, null, sink);
+        }
+        long count = 0;
+        for (int from = 0; from < ids.size(); from += STREAM_BATCH_SIZE) {
+            count += loadDocumentBatch(entityType, fields,
+                    ids.subList(from, Math.min(ids.size(), from + STREAM_BATCH_SIZE)), sink);
+        }
+        return count;
+    }
+
+    /**
+     * Read the search field values of every row, or of the rows with the given ids,
+     * joining associations with outer joins so rows with a null association are
+     * still indexed on their other fields.
+     */
+    private long loadDocumentBatch(Class<?> entityType, Set<String> fields, List<Object> ids,
+                                   BiConsumer<Object, Map<String, String>> sink) {
+        EntityType<?> model = entityManager.getMetamodel().entity(entityType);
+        String idName = model.getId(model.getIdType().getJavaType()).getName();
+        List<String> fieldList = List.copyOf(fields);
+
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<?> root = query.from(entityType);
+        List<Selection<?>> selections = new ArrayList<>();
+        selections.add(root.get(idName));
+        for (String field : fieldList) {
+            selections.add(resolveOuterPath(root, FilterPlan.splitPath(field)));
+        }
+        query.multiselect(selections);
+        if (ids != null) {
+            query.where(root.get(idName).in(ids));
+        }
+
+        TypedQuery<Tuple> typedQuery = entityManager.createQuery(query)
+                .setHint(FETCH_SIZE_HINT, STREAM_BATCH_SIZE);
+        long count = 0;
+        try (Stream<Tuple> rows = typedQuery.getResultStream()) {
+            Iterator<Tuple> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                Tuple row = iterator.next();
+                Map<String, String> values = new HashMap<>();
+                for (int i = 0; i < fieldList.size(); i++) {
+                    Object value = row.get(i + 1);
+                    if (value != null) {
+                        values.put(fieldList.get(i), ExportWriter.text(value));
+                    }
+                }
+                sink.accept(row.get(0), values);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public void destroy() {
+        QueryBindEntityListener.unsubscribe(changeListener);
+        executor.shutdownNow();
+    }
+
+    /**
+     * Execute a query based on @QueryBind configuration of the given page class
+     * and the current HTTP request parameters.
+     *
+     * @param pageClass the page class annotated with @QueryBind
+     * @param <T>       the entity type
+     * @return the query result with paginated data and metadata
+     */
+    public <T> QueryBindResult<T> execute(Class<?> pageClass) {
+        return execute(pageClass, "");
+    }
+
+    /**
+     * Execute one named @QueryBind of a page class against the current HTTP request,
+     * reading the URL parameters prefixed with the binding name.
+     *
+     * @param pageClass the page class annotated with @QueryBind
+     * @param binding   the @QueryBind name, "" for the unnamed binding
+     * @param <T>       the entity type
+     * @return the query result with paginated data and metadata
+     */
+    public <T> QueryBindResult<T> execute(Class<?> pageClass, String binding) {
+        FilterPlan plan = planFor(pageClass, binding);
+        return execute(bind(plan, getCurrentRequest()));
+    }
+
+    /**
+     * Execute several @QueryBind bindings of a page class against the current HTTP
+     * request. Parameters are read on the calling thread; the queries then run at
+     * the same time on virtual threads, each in its own read-only transaction, so
+     * the call takes as long as the slowest binding. If one binding fails, the
+     * others are cancelled. Returned entities are detached.
+     *
+     * @param pageClass the page class annotated with @QueryBind
+     * @param bindings  the @QueryBind names to execute
+     * @return the results by binding name, in the given order
+     */
+    public Map<String, QueryBindResult<?>> executeAll(Class<?> pageClass, Collection<String> bindings) {
+        HttpServletRequest request = getCurrentRequest();
+        Map<String, BoundQuery> queries = new LinkedHashMap<>();
+        for (String binding : bindings) {
+            queries.put(binding, bind(planFor(pageClass, binding), request));
+        }
+        boolean replica = readsReplica();
+
+        CompletionService<QueryBindResult<?>> completion = new ExecutorCompletionService<>(executor);
+        Map<Future<QueryBindResult<?>>, String> futures = new HashMap<>();
+        for (Map.Entry<String, BoundQuery> query : queries.entrySet()) {
+            futures.put(completion.submit(() -> inReadOnlyTransaction(replica, () -> execute(query.getValue()))),
+                    query.getKey());
+        }
+        Map<String, QueryBindResult<?>> results = new LinkedHashMap<>();
+        try {
+            // Take the bindings in completion order so the first failure cancels the others
+            for (int i = 0; i < futures.size(); i++) {
+                Future<QueryBindResult<?>> done = completion.take();
+                String binding = futures.get(done);
+                try {
+                    results.put(binding, done.get());
+                } catch (ExecutionException e) {
+                    throw new QueryBindException("QueryBind '" + binding + "' of " + pageClass.getSimpleName()
+                            + " failed", e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new QueryBindException("Interrupted while running QueryBind for " + pageClass.getSimpleName(), e);
+        } finally {
+            for (Future<QueryBindResult<?>> future : futures.keySet()) {
+                future.cancel(true);
+            }
+        }
+
+        Map<String, QueryBindResult<?>> ordered = new LinkedHashMap<>();
+        for (String binding : queries.keySet()) {
+            ordered.put(binding, results.get(binding));
+        }
+        return ordered;
+    }
+
+    /**
+     * Compute the conditional GET validator of the given bindings for the current
+     * request. Runs one query per binding selecting the greatest @QueryBind.etag
+     * value and the row count under the request's search and filters. The ETag
+     * hashes these together with the bound parameters and the service's start
+     * time, so a redeploy (with possibly changed templates) never answers 304 for
+     * a page rendered before it. Last-Modified is the greatest timestamp, or -1
+     * if any binding's etag attribute is not a timestamp or matches no rows.
+     */
+    Validator validator(Class<?> pageClass, List<String> bindings) {
+        HttpServletRequest request = getCurrentRequest();
+        StringBuilder state = new StringBuilder().append(startedAt);
+        long lastModified = 0;
+        for (String binding : bindings) {
+            BoundQuery bound = bind(planFor(pageClass, binding), request);
+            Tuple row = inReadOnlyTransaction(() -> validatorRow(bound));
+            Object latest = row.get(0);
+            long count = row.get(1, Long.class);
+            state.append('\n').append(bound.cacheKey()).append('\u0000').append(latest).append('\u0000').append(count);
+            long millis = epochMillis(latest);
+            lastModified = millis < 0 || lastModified < 0 ? -1 : Math.max(lastModified, millis);
+        }
+        return new Validator("W/\"" + digest(state.toString()) + "\"", lastModified);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Tuple validatorRow(BoundQuery bound) {
+        FilterPlan plan = bound.plan();
+        ShapeKey key = new ShapeKey(plan, "validator", bound.shape(), null, false, null);
+        return timed(key, shapedQuery(key, () -> {
+            CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+            CriteriaQuery<Tuple> query = cb.createTupleQuery();
+            Root<?> root = query.from(plan.entityClass());
+            Path<Comparable<Object>> version = (Path<Comparable<Object>>) resolveOuterPath(root,
+                    FilterPlan.splitPath(plan.config().etag()));
+            query.multiselect(cb.greatest(version), cb.count(root));
+            applyWhere(cb, query, root, bound);
+            return query;
+        }, bound.parameters()), TypedQuery::getSingleResult);
+    }
+
+    private static long epochMillis(Object value) {
+        return switch (value) {
+            case Instant instant -> instant.toEpochMilli();
+            case Date date -> date.getTime();
+            case OffsetDateTime dateTime -> dateTime.toInstant().toEpochMilli();
+            case ZonedDateTime dateTime -> dateTime.toInstant().toEpochMilli();
+            case LocalDateTime dateTime -> dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            case LocalDate date -> date.atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            case null, default -> -1;
+        };
+    }
+
+    private static String digest(String value) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(hash, 16));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Stream every row matching the current request's filters, search and sort to
+     * the consumer, ignoring page, size and cursor. Rows have the same shape as
+     * QueryBindResult content (entities, projections or column maps), but
+     * @QueryBind(fetch) is not applied. Rows are read with a JDBC fetch size in
+     * a read-only transaction of their own, so they show committed data only and
+     * the caller's persistence context is left alone. Entity rows are detached once
+     * the consumer returns, so memory use stays flat.
+     *
+     * @param pageClass the page class annotated with @QueryBind
+     * @param consumer  receives each row in order
+     * @param <T>       the row type
+     * @return the number of rows streamed
+     */
+    public <T> long stream(Class<?> pageClass, Consumer<? super T> consumer) {
+        return stream(pageClass, "", consumer);
+    }
+
+    /**
+     * Stream the rows of one named @QueryBind of a page class, see {@link #stream(Class, Consumer)}.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> long stream(Class<?> pageClass, String binding, Consumer<? super T> consumer) {
+        BoundQuery bound = bind(planFor(pageClass, binding), getCurrentRequest());
+        FilterPlan plan = bound.plan();
+        return streamTuples(bound, false, tuple -> consumer.accept((T) toRow(tuple, plan)));
+    }
+
+    /**
+     * Write every row matching the current request's filters, search and sort to
+     * the writer as CSV or NDJSON, ignoring page, size and cursor. Only the export
+     * columns are selected (@QueryBind.columns, or the entity's basic attributes),
+     * so no entities are loaded. The writer is flushed but not closed.
+     *
+     * @param pageClass the page class annotated with @QueryBind
+     * @param format    output format
+     * @param writer    destination, e.g. the servlet response writer
+     * @return the number of rows written
+     */
+    public long export(Class<?> pageClass, ExportFormat format, Writer writer) {
+        return export(pageClass, "", format, writer);
+    }
+
+    /**
+     * Export the rows of one named @QueryBind of a page class, see
+     * {@link #export(Class, ExportFormat, Writer)}.
+     */
+    public long export(Class<?> pageClass, String binding, ExportFormat format, Writer writer) {
+        BoundQuery bound = bind(planFor(pageClass, binding), getCurrentRequest());
+        List<String> columns = bound.plan().exportColumns();
+        ExportWriter out = ExportWriter.create(format, writer, columns);
+        out.begin();
+        long rows = streamTuples(bound, true, tuple -> {
+            Object[] values = new Object[columns.size()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = tuple.get(i);
+            }
+            out.row(values);
+        });
+        out.flush();
+        return rows;
+    }
+
+    /**
+     * Run the filtered, sorted query without pagination and hand each tuple to the
+     * sink while the result set is still open. Selects the export columns, or the
+     * row selections of the page. Runs in a new read-only transaction when a
+     * transaction manager is available, so the connection stays open for the whole
+     * scan, and detaches each entity row after the sink has seen it.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> long streamTuples(BoundQuery bound, boolean export, Consumer<Tuple> sink) {
+        FilterPlan plan = bound.plan();
+        ShapeKey key = new ShapeKey(plan, export ? "export" : "stream", bound.shape(), bound.sort(),
+                bound.descending(), null);
+        boolean entityRows = !export && plan.rowShape() == FilterPlan.RowShape.ENTITY;
+        return inNewReadOnlyTransaction(readsReplica(), () -> {
+            TypedQuery<Tuple> typedQuery = shapedQuery(key, () -> {
+                CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+                CriteriaQuery<Tuple> query = cb.createTupleQuery();
+                Root<T> root = query.from((Class<T>) plan.entityClass());
+                List<Selection<?>> selections = new ArrayList<>();
+                if (export) {
+                    for (String[] path : plan.exportColumnPaths()) {
+                        selections.add(resolvePath(root, path));
+                    }
+                } else if (entityRows) {
+                    selections.add(root);
+                } else {
+                    selections.addAll(rowSelections(root, plan));
+                }
+                query.multiselect(selections);
+                applyWhere(cb, query, root, bound);
+                applySort(cb, query, root, bound);
+                return query;
+            }, bound.parameters());
+            typedQuery.setHint(FETCH_SIZE_HINT, STREAM_BATCH_SIZE)
+                    .setHint(READ_ONLY_HINT, true);
+            long count = 0;
+            try (Stream<Tuple> rows = typedQuery.getResultStream()) {
+                Iterator<Tuple> iterator = rows.iterator();
+                while (iterator.hasNext()) {
+                    Tuple tuple = iterator.next();
+                    sink.accept(tuple);
+                    if (entityRows) {
+                        entityManager.detach(tuple.get(0));
+                    }
+                    count++;
+                }
+            }
+            log.debug("QueryBind: streamed {} rows of {}", count, bound.plan().entityClass().getSimpleName());
+            return count;
+        });
+    }
+
+    /**
+     * Execute an already bound query, serving it from the result cache when the
+     * binding opts in with @QueryBind(cacheSeconds &gt; 0). With @QueryBind(lazy = true)
+     * nothing runs yet; a cache miss returns a {@link LazyResult} instead. With
+     * @QueryBind(prefetch = true), a page computed ahead for the user is served
+     * first, and the page after the result starts computing.
+     */
+    <T> QueryBindResult<T> execute(BoundQuery bound) {
+        QueryBind config = bound.plan().config();
+        if (config.source() == QuerySource.IN_MEMORY) {
+            metrics.execution(bound.plan(), QueryBindMetrics.Source.MEMORY);
+            return executeInMemory(bound);
+        }
+        if (!config.prefetch() || bound.user() == null) {
+            return cachedOrRun(bound);
+        }
+        QueryBindResult<T> result = takePrefetched(bound);
+        if (result == null) {
+            result = cachedOrRun(bound);
+        }
+        prefetchNext(bound, result);
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> QueryBindResult<T> cachedOrRun(BoundQuery bound) {
+        QueryBind config = bound.plan().config();
+        int cacheSeconds = config.cacheSeconds();
+        if (resultCache == null || cacheSeconds <= 0) {
+            return config.lazy() ? new LazyResult<>(bound) : runOnce(bound);
+        }
+        QueryCacheKey key = bound.cacheKey();
+        QueryBindResult<T> cached = (QueryBindResult<T>) resultCache.get(key);
+        if (cached != null) {
+            log.debug("QueryBind: cache hit for {}", key);
+            metrics.execution(bound.plan(), QueryBindMetrics.Source.CACHE);
+            return cached;
+        }
+        if (config.lazy()) {
+            return new LazyResult<>(bound);
+        }
+        QueryBindResult<T> result = runOnce(bound);
+        resultCache.put(key, result, Duration.ofSeconds(cacheSeconds));
+        return result;
+    }
+
+    /**
+     * The page computed ahead for this request's user, waiting for it if it is
+     * still running, or null if there is none or it failed.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> QueryBindResult<T> takePrefetched(BoundQuery bound) {
+        CompletableFuture<QueryBindResult<?>> pending = prefetches.take(bound.user(), bound.cacheKey());
+        if (pending != null) {
+            try {
+                QueryBindResult<T> result = (QueryBindResult<T>) pending.get();
+                log.debug("QueryBind: prefetch hit for {}", bound.cacheKey());
+                metrics.prefetch(bound.plan(), QueryBindMetrics.Prefetch.HIT);
+                metrics.execution(bound.plan(), QueryBindMetrics.Source.PREFETCH);
+                return result;
+            } catch (ExecutionException e) {
+                log.debug("QueryBind: prefetch of {} failed: {}", bound.cacheKey(), e.getCause().getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new QueryBindException("Interrupted while waiting for QueryBind of "
+                        + bound.plan().entityClass().getSimpleName(), e);
+            }
+        }
+        metrics.prefetch(bound.plan(), QueryBindMetrics.Prefetch.MISS);
+        return null;
+    }
+
+    /**
+     * Start computing the page after the given result on a virtual thread, in its
+     * own read-only transaction, unless the result is the last page or the user
+     * already has that page.
+     */
+    private void prefetchNext(BoundQuery bound, QueryBindResult<?> result) {
+        if (!result.hasNext()) {
+            return;
+        }
+        BoundQuery next = bound.next(result.getNextCursor());
+        CompletableFuture<QueryBindResult<?>> pending = new CompletableFuture<>();
+        if (!prefetches.start(bound.user(), next.cacheKey(), pending)) {
+            return;
+        }
+        metrics.prefetch(bound.plan(), QueryBindMetrics.Prefetch.STARTED);
+        boolean replica = readsReplica();
+        executor.submit(() -> {
+            try {
+                pending.complete(inReadOnlyTransaction(replica, () -> run(next)));
+            } catch (RuntimeException | Error e) {
+                pending.completeExceptionally(e);
+            }
+        });
+    }
+
+    /**
+     * Run the queries, or with @QueryBind(coalesce = true) join an identical run
+     * that is already in flight. The first caller for a key runs the queries and
+     * completes the shared future; callers arriving before it finishes wait for
+     * that future and get the same result or exception.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> QueryBindResult<T> runOnce(BoundQuery bound) {
+        if (!bound.plan().config().coalesce()) {
+            metrics.execution(bound.plan(), QueryBindMetrics.Source.DATABASE);
+            return run(bound);
+        }
+        QueryCacheKey key = bound.cacheKey();
+        CompletableFuture<QueryBindResult<?>> own = new CompletableFuture<>();
+        CompletableFuture<QueryBindResult<?>> running = inFlight.putIfAbsent(key, own);
+        if (running != null) {
+            log.debug("QueryBind: coalesced {}", key);
+            metrics.execution(bound.plan(), QueryBindMetrics.Source.COALESCED);
+            try {
+                return (QueryBindResult<T>) running.get();
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                throw new QueryBindException("QueryBind for " + bound.plan().entityClass().getSimpleName()
+                        + " failed", e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new QueryBindException("Interrupted while waiting for QueryBind of "
+                        + bound.plan().entityClass().getSimpleName(), e);
+            }
+        }
+        try {
+            metrics.execution(bound.plan(), QueryBindMetrics.Source.DATABASE);
+            QueryBindResult<T> result = run(bound);
+            own.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            own.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, own);
+        }
+    }
+
+    /**
+     * Run the data query, the facet counts and the count one after the other, or
+     * concurrently when @QueryBind(parallel = true). The count goes last: if it is
+     * cancelled by a timeout, databases like PostgreSQL refuse further statements
+     * in the same transaction.
+     */
+    private <T> QueryBindResult<T> run(BoundQuery bound) {
+        if (bound.plan().config().parallel()) {
+            return executeParallel(bound);
+        }
+        return inReadOnlyTransaction(() -> {
+            Slice<T> slice = fetchSlice(bound);
+            Map<String, Map<Object, Long>> facets = bound.plan().facets().isEmpty() ? null : countFacets(bound);
+            QueryBindResult<T> result = assemble(bound, countTotal(bound), slice);
+            return facets == null ? result : result.withFacets(facets);
+        });
+    }
+
+    /**
+     * Run the count, the data query and the facet counts at the same time on virtual
+     * threads, each in its own read-only transaction (and therefore its own
+     * EntityManager). If any query fails or @QueryBind.timeoutMs elapses, the others
+     * are cancelled, except that a count still running at the deadline only leaves
+     * the total UNKNOWN.
+     */
+    private <T> QueryBindResult<T> executeParallel(BoundQuery bound) {
+        boolean faceted = !bound.plan().facets().isEmpty();
+        Parts<T> parts = fetchParallel(bound, faceted);
+        QueryBindResult<T> result = assemble(bound, parts.total(), parts.slice());
+        return faceted ? result.withFacets(parts.facets()) : result;
+    }
+
+    /**
+     * Run the count, the data query and optionally the facet counts concurrently,
+     * see {@link #executeParallel(BoundQuery)}.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> Parts<T> fetchParallel(BoundQuery bound, boolean faceted) {
+        Class<?> entityClass = bound.plan().entityClass();
+        long timeoutMs = bound.plan().config().timeoutMs();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+
+        boolean replica = readsReplica();
+        CompletionService<Object> completion = new ExecutorCompletionService<>(executor);
+        Future<Object> countFuture = completion.submit(() -> inReadOnlyTransaction(replica, () -> countTotal(bound)));
+        Future<Object> dataFuture = completion.submit(() -> inReadOnlyTransaction(replica, () -> fetchSlice(bound)));
+        Future<Object> facetFuture = faceted
+                ? completion.submit(() -> inReadOnlyTransaction(replica, () -> countFacets(bound)))
+                : null;
+        try {
+            // Take the queries in completion order so the first failure cancels the others
+            Total total = null;
+            for (int i = 0; i < (faceted ? 3 : 2); i++) {
+                Future<Object> done = timeoutMs > 0
+                        ? completion.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)
+                        : completion.take();
+                if (done == null) {
+                    if (i == (faceted ? 2 : 1) && !countFuture.isDone()) {
+                        log.debug("QueryBind: total of {} left unknown after {} ms",
+                                entityClass.getSimpleName(), timeoutMs);
+                        total = new Total(-1, TotalKind.UNKNOWN);
+                        break;
+                    }
+                    throw new QueryBindTimeoutException("QueryBind for " + entityClass.getSimpleName()
+                            + " timed out after " + timeoutMs + " ms");
+                }
+                done.get();
+            }
+            return new Parts<>(total != null ? total : (Total) countFuture.get(), (Slice<T>) dataFuture.get(),
+                    faceted ? (Map<String, Map<Object, Long>>) facetFuture.get() : null);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof QueryBindTimeoutException timeout) {
+                throw timeout;
+            }
+            throw new QueryBindException("QueryBind for " + entityClass.getSimpleName() + " failed", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new QueryBindException("Interrupted while running QueryBind for " + entityClass.getSimpleName(), e);
+        } finally {
+            countFuture.cancel(true);
+            dataFuture.cancel(true);
+            if (facetFuture != null) {
+                facetFuture.cancel(true);
+            }
+        }
+    }
+
+    private <R> R inReadOnlyTransaction(Supplier<R> work) {
+        return inReadOnlyTransaction(readsReplica(), work);
+    }
+
+    /**
+     * Run work in a read-only transaction, on the replica if asked to. A replica
+     * transaction gets its own EntityManager, see {@link #inNewReadOnlyTransaction}.
+     */
+    private <R> R inReadOnlyTransaction(boolean replica, Supplier<R> work) {
+        if (readOnlyTransaction == null) {
+            return work.get();
+        }
+        if (!replica) {
+            return readOnlyTransaction.execute(status -> work.get());
+        }
+        return inNewReadOnlyTransaction(true, work);
+    }
+
+    /**
+     * Run work in a read-only transaction of its own, with its own EntityManager,
+     * on the replica if asked to. A caller's transaction is suspended meanwhile;
+     * outside one, the EntityManager an open-in-view filter bound to the request
+     * is set aside: it may hold a primary connection and is used for the request's
+     * writes. Entities read here are therefore detached from the caller's context,
+     * and clearing or detaching them leaves the caller's changes alone.
+     */
+    private <R> R inNewReadOnlyTransaction(boolean replica, Supplier<R> work) {
+        if (readOnlyTransaction == null) {
+            return work.get();
+        }
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return newReadOnlyTransaction.execute(status -> work.get());
+        }
+        EntityManagerFactory factory = entityManager.getEntityManagerFactory();
+        Object requestEntityManager = TransactionSynchronizationManager.unbindResourceIfPossible(factory);
+        try {
+            return replica
+                    ? QueryBindRoutingDataSource.onReplica(() -> readOnlyTransaction.execute(status -> work.get()))
+                    : readOnlyTransaction.execute(status -> work.get());
+        } finally {
+            if (requestEntityManager != null) {
+                TransactionSynchronizationManager.bindResource(factory, requestEntityManager);
+            }
+        }
+    }
+
+    /**
+     * Whether reads started on this thread may go to the replica: replica reads are
+     * enabled, no caller transaction is active (its writes would not be visible on
+     * the replica) and the request is not pinned to the primary by a recent write.
+     */
+    private boolean readsReplica() {
+        if (!replicaReads || TransactionSynchronizationManager.isActualTransactionActive()) {
+            return false;
+        }
+        if (!(RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes)) {
+            return true;
+        }
+        HttpServletRequest request = attributes.getRequest();
+        if (request.getAttribute(PRIMARY_ATTRIBUTE) != null) {
+            return false;
+        }
+        Cookie[] cookies = request.getCookies();
+        if (cookies != null) {
+            for (Cookie cookie : cookies) {
+                if (PRIMARY_COOKIE.equals(cookie.getName())) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private <T> Slice<T> fetchSlice(BoundQuery bound) {
+        Slice<T> slice = bound.plan().config().pagination() == Pagination.KEYSET
+                ? fetchKeyset(bound)
+                : fetchOffset(bound);
+        if (!bound.plan().twoPhase()) {
+            return slice;
+        }
+        List<T> entities = loadWithFetchGraph(bound.plan(), slice.content());
+        return new Slice<>(entities, slice.probed(), slice.hasNext(), slice.sort(),
+                slice.nextCursor(), slice.previousCursor());
+    }
+
+    /**
+     * Second phase of @QueryBind(fetch): load the entities for a page of ids in one
+     * query, with the fetch paths as a load graph, and return them in page order.
+     * Paging happened on the ids alone, so to-many joins here cannot skew it.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> List<T> loadWithFetchGraph(FilterPlan plan, List<?> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Class<T> entityClass = (Class<T>) plan.entityClass();
+        EntityGraph<T> graph = fetchGraph(plan);
+
+        // Pad the id list like an IN filter so that every page size shares a few statements
+        List<?> padded = BoundFilter.padded(ids);
+        Map<String, Object> parameters = new HashMap<>();
+        for (int i = 0; i < padded.size(); i++) {
+            parameters.put("id" + i, padded.get(i));
+        }
+        ShapeKey key = new ShapeKey(plan, "load", List.of(), null, false, padded.size());
+        TypedQuery<T> query = shapedQuery(key, () -> {
+            CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+            CriteriaQuery<T> criteria = cb.createQuery(entityClass);
+            Root<T> root = criteria.from(entityClass);
+            Path<Object> idPath = root.get(plan.idName());
+            CriteriaBuilder.In<Object> in = cb.in(idPath);
+            for (int i = 0; i < padded.size(); i++) {
+                in.value(cb.parameter(boxed(idPath.getJavaType()), "id" + i));
+            }
+            return criteria.select(root).where(in);
+        }, parameters);
+        List<T> loaded = timed(key, query.setHint(LOAD_GRAPH_HINT, graph), TypedQuery::getResultList);
+
+        PersistenceUnitUtil util = entityManager.getEntityManagerFactory().getPersistenceUnitUtil();
+        Map<Object, T> byId = new HashMap<>();
+        for (T entity : loaded) {
+            byId.put(util.getIdentifier(entity), entity);
+        }
+        List<T> content = new ArrayList<>(ids.size());
+        for (Object id : ids) {
+            T entity = byId.get(id);
+            if (entity != null) {
+                // A row deleted between the two phases is simply left out
+                content.add(entity);
+            }
+        }
+        return content;
+    }
+
+    /**
+     * A load graph of @QueryBind.fetch for the plan's entity.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> EntityGraph<T> fetchGraph(FilterPlan plan) {
+        EntityGraph<T> graph = entityManager.createEntityGraph((Class<T>) plan.entityClass());
+        for (String[] path : plan.fetchPaths()) {
+            if (path.length == 1) {
+                graph.addAttributeNodes(path[0]);
+                continue;
+            }
+            Subgraph<Object> subgraph = graph.addSubgraph(path[0]);
+            for (int i = 1; i < path.length - 1; i++) {
+                subgraph = subgraph.addSubgraph(path[i]);
+            }
+            subgraph.addAttributeNodes(path[path.length - 1]);
+        }
+        return graph;
+    }
+
+    /**
+     * Answer a @QueryBind(source = IN_MEMORY) request from the binding's
+     * {@link InMemoryTable}: match, count, sort and page the rows without a query.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> QueryBindResult<T> executeInMemory(BoundQuery bound) {
+        FilterPlan plan = bound.plan();
+        InMemoryTable table = memoryTable(plan);
+        BitSet matched = table.match(bound, Set.of());
+        int offset = (int) Math.min(Integer.MAX_VALUE, (long) bound.page() * bound.size());
+        List<T> content = (List<T>) table.page(matched, bound.sort(), bound.descending(), offset, bound.size());
+        QueryBindResult<T> result = assemble(bound, new Total(matched.cardinality(), TotalKind.EXACT),
+                new Slice<>(content, false, false, bound.sort(), null, null));
+        if (plan.facets().isEmpty()) {
+            return result;
+        }
+        Map<String, Map<Object, Long>> facets = new HashMap<>();
+        for (FilterPlan.Facet facet : plan.facets()) {
+            BitSet facetRows = facet.ownFilters().isEmpty() ? matched : table.match(bound, facet.ownFilters());
+            facets.put(facet.name(), byCount(table.counts(String.join(".", facet.path()), facetRows)));
+        }
+        return result.withFacets(facets);
+    }
+
+    /**
+     * The loaded rows of an IN_MEMORY plan. The first caller loads them; callers
+     * arriving meanwhile wait for that load.
+     */
+    private InMemoryTable memoryTable(FilterPlan plan) {
+        CompletableFuture<InMemoryTable> table = memoryTables.get(plan);
+        if (table == null) {
+            CompletableFuture<InMemoryTable> own = new CompletableFuture<>();
+            table = memoryTables.putIfAbsent(plan, own);
+            if (table == null) {
+                try {
+                    own.complete(loadTable(plan));
+                } catch (RuntimeException | Error e) {
+                    memoryTables.remove(plan, own);
+                    own.completeExceptionally(e);
+                    throw e;
+                }
+                return own.join();
+            }
+        }
+        try {
+            return table.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new QueryBindException("Loading " + plan.entityClass().getSimpleName() + " failed", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new QueryBindException("Interrupted while loading " + plan.entityClass().getSimpleName(), e);
+        }
+    }
+
+    /**
+     * Read every row of an IN_MEMORY plan in one query, selecting the projection
+     * or column values followed by each column of
+     * {@link InMemoryTable#columnPaths(FilterPlan)}. The entity types the query
+     * reads are recorded before it runs, so a change to one of them during the
+     * load is known to make it stale.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> InMemoryTable loadTable(FilterPlan plan) {
+        long start = System.nanoTime();
+        List<String> paths = InMemoryTable.columnPaths(plan);
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<T> root = query.from((Class<T>) plan.entityClass());
+        List<Selection<?>> selections = rowSelections(root, plan);
+        int rowWidth = selections.size();
+        for (String path : paths) {
+            selections.add(resolveOuterPath(root, FilterPlan.splitPath(path)));
+        }
+        query.multiselect(selections).orderBy(cb.asc(root.get(plan.idName())));
+        Set<Class<?>> sources = new HashSet<>();
+        sources.add(plan.entityClass());
+        addJoinedTypes(root, sources);
+        memorySources.put(plan, Set.copyOf(sources));
+
+        List<Tuple> tuples = inReadOnlyTransaction(false,
+                () -> entityManager.createQuery(query).setHint(READ_ONLY_HINT, true).getResultList());
+        List<Object> rows = new ArrayList<>(tuples.size());
+        Map<String, Object[]> values = new HashMap<>();
+        for (String path : paths) {
+            values.put(path, new Object[tuples.size()]);
+        }
+        for (int row = 0; row < tuples.size(); row++) {
+            Tuple tuple = tuples.get(row);
+            rows.add(toRow(tuple, plan));
+            for (int i = 0; i < paths.size(); i++) {
+                values.get(paths.get(i))[row] = tuple.get(rowWidth + i);
+            }
+        }
+        InMemoryTable table = new InMemoryTable(plan, rows, values, plan.idName());
+        Object duplicate = table.duplicateId();
+        if (duplicate != null) {
+            throw new QueryBindException("@QueryBind source IN_MEMORY on " + plan.pageClass().getName()
+                    + " reads " + plan.entityClass().getSimpleName() + " " + duplicate
+                    + " more than once; a column path crosses a to-many association");
+        }
+        log.info("QueryBind: loaded {} {} rows into memory for {} in {} ms", table.size(),
+                plan.entityClass().getSimpleName(), plan.pageClass().getSimpleName(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return table;
+    }
+
+    private static void addJoinedTypes(From<?, ?> from, Set<Class<?>> types) {
+        for (Join<?, ?> join : from.getJoins()) {
+            types.add(join.getJavaType());
+            addJoinedTypes(join, types);
+        }
+    }
+
+    /**
+     * Reload the IN_MEMORY rows that read any of the changed entity types, once per
+     * change however many of their types changed. A table still loading is
+     * reloaded too when it reads a changed type, since it may have read the old
+     * state. A reload that is queued but has not started yet already reads the
+     * new state, so further changes until it starts add no reload of their own.
+     */
+    private void reloadMemoryTables(Set<Class<?>> entityTypes) {
+        for (Map.Entry<FilterPlan, CompletableFuture<InMemoryTable>> entry : memoryTables.entrySet()) {
+            FilterPlan plan = entry.getKey();
+            CompletableFuture<InMemoryTable> table = entry.getValue();
+            Set<Class<?>> sources = memorySources.get(plan);
+            boolean stale = table.isCompletedExceptionally() || sources == null || readsAny(sources, entityTypes);
+            if (stale && memoryTables.remove(plan, table) && queuedReloads.add(plan)) {
+                executor.execute(() -> {
+                    queuedReloads.remove(plan);
+                    try {
+                        memoryTable(plan);
+                    } catch (RuntimeException e) {
+                        log.error("QueryBind: reloading {} into memory failed", plan.entityClass().getSimpleName(), e);
+                    }
+                });
+            }
+        }
+    }
+
+    private static boolean readsAny(Set<Class<?>> sources, Set<Class<?>> entityTypes) {
+        for (Class<?> source : sources) {
+            for (Class<?> entityType : entityTypes) {
+                if (source.isAssignableFrom(entityType)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Without an exact total, the data query fetches one extra row to tell whether
+     * a next page exists.
+     */
+    private static boolean probesNext(QueryBind config) {
+        return config.countStrategy() == CountStrategy.CAPPED || config.countStrategy() == CountStrategy.NONE;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> Slice<T> fetchOffset(BoundQuery bound) {
+        FilterPlan plan = bound.plan();
+        Class<T> entityClass = (Class<T>) plan.entityClass();
+        int size = bound.size();
+        String sort = bound.sort();
+
+        // Data query
+        ShapeKey key = new ShapeKey(plan, "page", bound.shape(), sort, bound.descending(), null);
+        TypedQuery<Tuple> typedQuery = shapedQuery(key, () -> {
+            CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+            CriteriaQuery<Tuple> dataQuery = cb.createTupleQuery();
+            Root<T> dataRoot = dataQuery.from(entityClass);
+            dataQuery.multiselect(rowSelections(dataRoot, plan));
+            applyWhere(cb, dataQuery, dataRoot, bound);
+            applySort(cb, dataQuery, dataRoot, bound);
+            return dataQuery;
+        }, bound.parameters());
+
+        // Pagination
+        boolean probeNext = probesNext(plan.config());
+        typedQuery.setFirstResult(bound.page() * size);
+        typedQuery.setMaxResults(probeNext ? size + 1 : size);
+
+        List<Tuple> rows = timed(key, typedQuery, TypedQuery::getResultList);
+        boolean hasNext = probeNext && rows.size() > size;
+        if (hasNext) {
+            rows = rows.subList(0, size);
+        }
+        List<T> content = new ArrayList<>(rows.size());
+        for (Tuple row : rows) {
+            content.add((T) toRow(row, plan));
+        }
+        return new Slice<>(content, probeNext, hasNext, sort, null, null);
+    }
+
+    private void applySort(CriteriaBuilder cb, CriteriaQuery<?> query, Root<?> root, BoundQuery bound) {
+        try {
+            Path<?> sortPath = resolvePath(root, bound.plan().sortPath(bound.sort()));
+            if (bound.descending()) {
+                query.orderBy(cb.desc(sortPath));
+            } else {
+                query.orderBy(cb.asc(sortPath));
+            }
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid sort field '{}', falling back to default", bound.sort());
+            // Fall back without sorting rather than failing
+        }
+    }
+
+    /**
+     * Selections that make up one result row: the entity itself, or the column
+     * paths of a projection. Projection columns are selected as plain tuple
+     * elements (rather than a nested constructor expression) so that keyset
+     * queries can append their sort key and id to the same tuple. With
+     * @QueryBind(fetch), only the id is selected here.
+     */
+    private List<Selection<?>> rowSelections(Root<?> root, FilterPlan plan) {
+        List<Selection<?>> selections = new ArrayList<>();
+        if (plan.twoPhase()) {
+            selections.add(root.get(plan.idName()));
+        } else if (plan.rowShape() == FilterPlan.RowShape.ENTITY) {
+            selections.add(root);
+        } else {
+            for (String[] column : plan.columnPaths()) {
+                selections.add(resolvePath(root, column));
+            }
+        }
+        return selections;
+    }
+
+    private Object toRow(Tuple tuple, FilterPlan plan) {
+        return switch (plan.rowShape()) {
+            case ENTITY -> tuple.get(0);
+            case PROJECTION -> {
+                Object[] arguments = new Object[plan.columns().size()];
+                for (int i = 0; i < arguments.length; i++) {
+                    arguments[i] = tuple.get(i);
+                }
+                yield plan.newProjection(arguments);
+            }
+            case COLUMNS -> {
+                Map<String, Object> row = new LinkedHashMap<>();
+                List<String> columns = plan.columns();
+                for (int i = 0; i < columns.size(); i++) {
+                    row.put(columns.get(i), tuple.get(i));
+                }
+                yield row;
+            }
+        };
+    }
+
+    /**
+     * Combine the total and the fetched slice into the result exposed to pages.
+     */
+    private <T> QueryBindResult<T> assemble(BoundQuery bound, Total total, Slice<T> slice) {
+        Class<?> entityClass = bound.plan().entityClass();
+        int size = bound.size();
+        List<T> content = slice.content();
+
+        if (bound.plan().config().pagination() == Pagination.KEYSET) {
+            int totalPages = total.kind() == TotalKind.UNKNOWN ? -1 : pageCount(total.elements(), size);
+
+            log.debug("QueryBind: entity={}, keyset, size={}, total={} ({}), sort={} {}, filters={}",
+                    entityClass.getSimpleName(), size, total.elements(), total.kind(),
+                    slice.sort(), bound.direction(), bound.activeFilters());
+
+            return new QueryBindResult<>(content, size, total.elements(), totalPages, total.kind(),
+                    slice.sort(), bound.direction(), bound.activeFilters(),
+                    slice.nextCursor(), slice.previousCursor());
+        }
+
+        int page = bound.page();
+        boolean hasNext;
+        int totalPages;
+        if (slice.probed()) {
+            hasNext = slice.hasNext();
+            if (!hasNext && (!content.isEmpty() || page == 0)) {
+                // Reached the last page, so the total is known after all
+                total = new Total((long) page * size + content.size(), TotalKind.EXACT);
+            }
+            int knownPages = page + (hasNext ? 2 : 1);
+            totalPages = total.kind() == TotalKind.EXACT
+                    ? pageCount(total.elements(), size)
+                    : total.kind() == TotalKind.CAPPED
+                    ? Math.max(knownPages, pageCount(total.elements(), size))
+                    : knownPages;
+        } else if (total.kind() == TotalKind.UNKNOWN) {
+            // The count timed out: a full page may have a next one
+            hasNext = content.size() == size;
+            totalPages = page + (hasNext ? 2 : 1);
+        } else {
+            totalPages = pageCount(total.elements(), size);
+            hasNext = page < totalPages - 1;
+        }
+
+        log.debug("QueryBind: entity={}, page={}/{}, size={}, total={} ({}), sort={} {}, filters={}",
+                entityClass.getSimpleName(), page, totalPages, size, total.elements(), total.kind(),
+                bound.sort(), bound.direction(), bound.activeFilters());
+
+        return new QueryBindResult<>(content, page, size, total.elements(), totalPages, total.kind(), hasNext,
+                bound.sort(), bound.direction(), bound.activeFilters());
+    }
+
+    /**
+     * Determine the total number of matching rows according to @QueryBind.countStrategy.
+     * A count that times out (see {@link #timed}) leaves the total UNKNOWN rather
+     * than failing the page.
+     */
+    private Total countTotal(BoundQuery bound) {
+        try {
+            return countTotalOrFail(bound);
+        } catch (QueryBindTimeoutException e) {
+            log.debug("QueryBind: total of {} left unknown: {}", bound.plan().entityClass().getSimpleName(),
+                    e.getMessage());
+            return new Total(-1, TotalKind.UNKNOWN);
+        }
+    }
+
+    private Total countTotalOrFail(BoundQuery bound) {
+        QueryBind config = bound.plan().config();
+        return switch (config.countStrategy()) {
+            case EXACT -> new Total(count(bound), TotalKind.EXACT);
+            case CACHED -> {
+                CountKey key = new CountKey(bound.plan(), bound.normalizedFilters());
+                Long cached = countCache.get(key);
+                if (cached == null) {
+                    cached = count(bound);
+                    countCache.put(key, cached, config.countCacheSeconds() * 1000L);
+                }
+                yield new Total(cached, TotalKind.EXACT);
+            }
+            case CAPPED -> {
+                long counted = countUpTo(bound, config.countCap());
+                yield counted > config.countCap()
+                        ? new Total(config.countCap(), TotalKind.CAPPED)
+                        : new Total(counted, TotalKind.EXACT);
+            }
+            case NONE -> new Total(-1, TotalKind.UNKNOWN);
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> long count(BoundQuery bound) {
+        ShapeKey key = new ShapeKey(bound.plan(), "count", bound.shape(), null, false, null);
+        return timed(key, shapedQuery(key, () -> {
+            CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+            CriteriaQuery<Long> countQuery = cb.createQuery(Long.class);
+            Root<T> countRoot = countQuery.from((Class<T>) bound.plan().entityClass());
+            countQuery.select(cb.count(countRoot));
+            applyWhere(cb, countQuery, countRoot, bound);
+            return countQuery;
+        }, bound.parameters()), TypedQuery::getSingleResult);
+    }
 
-    public QueryBindService(EntityManager entityManager) {
-        this.entityManager = entityManager;
+    /**
+     * Count matching rows, stopping after cap + 1: select count(*) from (select 1
+     * ... fetch first cap + 1 rows only). The database stops scanning once the
+     * limit is reached and returns a single number. Derived tables are not part
+     * of JPA, so this uses Hibernate's criteria extensions.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> long countUpTo(BoundQuery bound, int cap) {
+        ShapeKey key = new ShapeKey(bound.plan(), "probe", bound.shape(), null, false, null);
+        return timed(key, shapedQuery(key, () -> {
+            CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+            CriteriaQuery<Long> countQuery = cb.createQuery(Long.class);
+            JpaSubQuery<Integer> matches = (JpaSubQuery<Integer>) countQuery.subquery(Integer.class);
+            Root<T> probeRoot = matches.from((Class<T>) bound.plan().entityClass());
+            // Columns of a derived table need a name
+            Expression<Integer> one = cb.literal(1);
+            one.alias("one");
+            matches.select(one);
+            List<Predicate> predicates = buildPredicates(cb, probeRoot, bound);
+            if (!predicates.isEmpty()) {
+                matches.where(cb.and(predicates.toArray(new Predicate[0])));
+            }
+            // A literal, not a parameter: every query parameter is bound by name
+            matches.fetch((JpaExpression<Integer>) cb.literal(cap + 1));
+            ((JpaSelectCriteria<Long>) countQuery).from(matches);
+            countQuery.select(cb.count(cb.literal(1)));
+            return countQuery;
+        }, bound.parameters()), TypedQuery::getSingleResult);
     }
 
     /**
-     * Execute a query based on @QueryBind configuration of the given page class
-     * and the current HTTP request parameters.
+     * Count the values of every @QueryBind.facets entry, each under the current
+     * filters minus the filters on its own field. Facets whose own field is not
+     * filtered share the same WHERE clause and are counted together in one grouped
+     * query; the others need one query each. Counts are cached per facet for
+     * @QueryBind.facetCacheSeconds.
+     */
+    private Map<String, Map<Object, Long>> countFacets(BoundQuery bound) {
+        FilterPlan plan = bound.plan();
+        long cacheMillis = plan.config().facetCacheSeconds() * 1000L;
+        Map<String, Map<Object, Long>> counts = new HashMap<>();
+        List<FilterPlan.Facet> unfiltered = new ArrayList<>();
+        List<FilterPlan.Facet> filtered = new ArrayList<>();
+        for (FilterPlan.Facet facet : plan.facets()) {
+            Map<Object, Long> cached = cacheMillis > 0 ? facetCache.get(facetKey(bound, facet)) : null;
+            if (cached != null) {
+                counts.put(facet.name(), cached);
+            } else if (ownFilters(bound, facet).isEmpty()) {
+                unfiltered.add(facet);
+            } else {
+                filtered.add(facet);
+            }
+        }
+
+        Map<String, Map<Object, Long>> counted = new HashMap<>();
+        if (unfiltered.size() > 1) {
+            Map<String, Map<Object, Long>> combined = countFacetsTogether(bound, unfiltered);
+            if (combined != null) {
+                counted.putAll(combined);
+            } else {
+                // Too many value combinations to group together; count each facet on its own
+                filtered.addAll(unfiltered);
+            }
+        } else {
+            filtered.addAll(unfiltered);
+        }
+        for (FilterPlan.Facet facet : filtered) {
+            counted.put(facet.name(), countFacet(bound, facet));
+        }
+        for (FilterPlan.Facet facet : plan.facets()) {
+            Map<Object, Long> values = counted.get(facet.name());
+            if (values != null) {
+                if (cacheMillis > 0) {
+                    facetCache.put(facetKey(bound, facet), values, cacheMillis);
+                }
+                counts.put(facet.name(), values);
+            }
+        }
+
+        Map<String, Map<Object, Long>> ordered = new LinkedHashMap<>();
+        for (FilterPlan.Facet facet : plan.facets()) {
+            ordered.put(facet.name(), counts.get(facet.name()));
+        }
+        return Collections.unmodifiableMap(ordered);
+    }
+
+    /**
+     * Count one facet, leaving out the filters on its own field.
+     */
+    private Map<Object, Long> countFacet(BoundQuery bound, FilterPlan.Facet facet) {
+        List<BoundFilter> own = ownFilters(bound, facet);
+        List<BoundFilter> others = new ArrayList<>(bound.filters());
+        others.removeAll(own);
+        BoundQuery unfiltered = bound.withFilters(others);
+        ShapeKey key = new ShapeKey(bound.plan(), "facet", unfiltered.shape(), null, false, facet.name());
+        List<Tuple> rows = timed(key, shapedQuery(key, () -> groupedQuery(unfiltered, List.of(facet)),
+                unfiltered.parameters()), TypedQuery::getResultList);
+        Map<Object, Long> counts = new HashMap<>();
+        for (Tuple row : rows) {
+            counts.merge(row.get(0), row.get(1, Long.class), Long::sum);
+        }
+        return byCount(counts);
+    }
+
+    /**
+     * Count several facets with one query grouped by all of them, then add up the
+     * groups per facet.
      *
-     * @param pageClass the page class annotated with @QueryBind
-     * @param <T>       the entity type
-     * @return the query result with paginated data and metadata
+     * @return counts per facet name, or null if there are more than
+     *         FACET_COMBINED_MAX_GROUPS value combinations
      */
-    @SuppressWarnings("unchecked")
-    public <T> QueryBindResult<T> execute(Class<?> pageClass) {
-        QueryBind config = pageClass.getAnnotation(QueryBind.class);
-        if (config == null) {
-            throw new QueryBindException("Class " + pageClass.getName() + " is not annotated with @QueryBind");
+    private Map<String, Map<Object, Long>> countFacetsTogether(BoundQuery bound, List<FilterPlan.Facet> facets) {
+        List<String> names = facets.stream().map(FilterPlan.Facet::name).toList();
+        ShapeKey key = new ShapeKey(bound.plan(), "facets", bound.shape(), null, false, names);
+        List<Tuple> rows = timed(key, shapedQuery(key, () -> groupedQuery(bound, facets), bound.parameters())
+                .setMaxResults(FACET_COMBINED_MAX_GROUPS + 1), TypedQuery::getResultList);
+        if (rows.size() > FACET_COMBINED_MAX_GROUPS) {
+            return null;
+        }
+        List<Map<Object, Long>> counts = new ArrayList<>();
+        for (int i = 0; i < facets.size(); i++) {
+            counts.add(new HashMap<>());
+        }
+        for (Tuple row : rows) {
+            long count = row.get(facets.size(), Long.class);
+            for (int i = 0; i < facets.size(); i++) {
+                counts.get(i).merge(row.get(i), count, Long::sum);
+            }
         }
+        Map<String, Map<Object, Long>> result = new HashMap<>();
+        for (int i = 0; i < facets.size(); i++) {
+            result.put(names.get(i), byCount(counts.get(i)));
+        }
+        return result;
+    }
 
-        HttpServletRequest request = getCurrentRequest();
-        Class<T> entityClass = (Class<T>) config.entity();
+    /**
+     * SELECT facet values..., COUNT(*) ... GROUP BY facet values. Associations are
+     * outer joined so rows without one are counted under a null value.
+     */
+    private CriteriaQuery<Tuple> groupedQuery(BoundQuery bound, List<FilterPlan.Facet> facets) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<?> root = query.from(bound.plan().entityClass());
+        List<Expression<?>> groups = new ArrayList<>();
+        for (FilterPlan.Facet facet : facets) {
+            groups.add(resolveOuterPath(root, facet.path()));
+        }
+        List<Selection<?>> selections = new ArrayList<>(groups);
+        selections.add(cb.count(root));
+        query.multiselect(selections);
+        applyWhere(cb, query, root, bound);
+        query.groupBy(groups);
+        return query;
+    }
+
+    private static List<BoundFilter> ownFilters(BoundQuery bound, FilterPlan.Facet facet) {
+        List<BoundFilter> own = new ArrayList<>();
+        for (BoundFilter filter : bound.filters()) {
+            if (facet.ownFilters().contains(filter.filter().ordinal())) {
+                own.add(filter);
+            }
+        }
+        return own;
+    }
+
+    private static FacetKey facetKey(BoundQuery bound, FilterPlan.Facet facet) {
+        Map<String, String> filters = bound.normalizedFilters();
+        filters.keySet().removeAll(facet.ownParams());
+        return new FacetKey(bound.plan(), facet.name(), filters);
+    }
+
+    /**
+     * Facet values ordered by count, most frequent first.
+     */
+    private static Map<Object, Long> byCount(Map<Object, Long> counts) {
+        Map<Object, Long> ordered = new LinkedHashMap<>();
+        counts.entrySet().stream()
+                .sorted(Map.Entry.<Object, Long>comparingByValue().reversed())
+                .forEach(entry -> ordered.put(entry.getKey(), entry.getValue()));
+        return Collections.unmodifiableMap(ordered);
+    }
+
+    private static int pageCount(long totalElements, int size) {
+        return (int) Math.ceil((double) totalElements / size);
+    }
+
+    /**
+     * Read the pagination, sort, search and filter parameters of a request.
+     */
+    BoundQuery bind(FilterPlan plan, HttpServletRequest request) {
+        QueryBind config = plan.config();
 
         // Parse pagination parameters
-        int page = parseIntParam(request, "page", 0);
-        int size = parseIntParam(request, "size", config.defaultPageSize());
+        int page = parseIntParam(request, plan.parameter("page"), 0);
+        int size = parseIntParam(request, plan.parameter("size"), config.defaultPageSize());
         size = Math.min(size, config.maxPageSize());
         size = Math.max(size, 1);
         page = Math.max(page, 0);
 
-        String sort = request.getParameter("sort");
+        String sort = request.getParameter(plan.parameter("sort"));
         if (sort == null || sort.isBlank()) {
             sort = config.defaultSort();
         }
 
-        String direction = request.getParameter("direction");
+        String direction = request.getParameter(plan.parameter("direction"));
         if (direction == null || direction.isBlank()) {
             direction = config.defaultDirection();
         }
 
-        String search = request.getParameter("search");
+        String search = request.getParameter(plan.parameter("search"));
+
+        String cursor = request.getParameter(plan.parameter("cursor"));
+        if (cursor != null && cursor.isBlank()) {
+            cursor = null;
+        }
 
         // Build active filters map
         Map<String, String> activeFilters = new LinkedHashMap<>();
@@ -84,87 +1685,331 @@ public class QueryBindService {
             activeFilters.put("search", search);
         }
 
-        // Discover filterable fields on entity
-        List<FilterableFieldMapping> filterMappings = discoverFilterableFields(entityClass);
-
         // Collect active filter values from request
-        Map<FilterableFieldMapping, String> filterValues = new LinkedHashMap<>();
-        for (FilterableFieldMapping mapping : filterMappings) {
-            String paramValue = request.getParameter(mapping.paramName());
+        List<BoundFilter> filters = new ArrayList<>();
+        for (FilterPlan.FieldFilter filter : plan.filters()) {
+            String paramValue = request.getParameter(plan.parameter(filter.paramName()));
             if (paramValue != null && !paramValue.isBlank()) {
-                filterValues.put(mapping, paramValue);
-                activeFilters.put(mapping.paramName(), paramValue);
+                activeFilters.put(filter.paramName(), paramValue);
+                try {
+                    BoundFilter bound = BoundFilter.bind(filter, paramValue);
+                    if (bound != null) {
+                        filters.add(bound);
+                    }
+                } catch (RuntimeException e) {
+                    log.warn("Failed to apply filter for '{}' with value '{}': {}",
+                            filter.paramName(), paramValue, e.getMessage());
+                }
             }
         }
 
-        // Build criteria query
+        List<Object> searchIds = null;
+        if (search != null && !search.isBlank() && usesSearchIndex(plan)) {
+            Set<Object> ids = searchIndex.search(plan.entityClass(), plan.searchFieldNames(), search,
+                    SEARCH_INDEX_MAX_IDS);
+            if (ids != null) {
+                searchIds = BoundFilter.padded(new ArrayList<>(ids));
+            }
+        }
+
+        return new BoundQuery(plan, page, size, sort, direction, search, cursor, searchIds, filters,
+                activeFilters, config.prefetch() ? prefetchUser(request) : null);
+    }
+
+    /**
+     * Who a request belongs to for prefetching: its principal, else its HTTP
+     * session, else nobody.
+     */
+    private static String prefetchUser(HttpServletRequest request) {
+        Principal principal = request.getUserPrincipal();
+        if (principal != null) {
+            return "principal:" + principal.getName();
+        }
+        HttpSession session = request.getSession(false);
+        return session != null ? "session:" + session.getId() : null;
+    }
+
+    /**
+     * Keyset (seek) pagination: instead of skipping rows with OFFSET, continue
+     * after (or before) the boundary row encoded in the cursor. JPA Criteria has
+     * no row-value comparison, so (sort, id) &gt; (?, ?) is expanded to
+     * sort &gt; ? OR (sort = ? AND id &gt; ?). One extra row is fetched to detect
+     * whether another slice follows.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private <T> Slice<T> fetchKeyset(BoundQuery bound) {
+        FilterPlan plan = bound.plan();
+        if (plan.idName() == null) {
+            throw new QueryBindException("Keyset pagination requires a single @Id attribute on "
+                    + plan.entityClass().getName());
+        }
+        Class<T> entityClass = (Class<T>) plan.entityClass();
+        int size = bound.size();
+        String sort = bound.sort();
+        String direction = bound.direction();
+
+        // Resolve the sort on a throwaway root first: the cursor must be checked
+        // and converted before the query shape is known
         CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        Root<T> probe = cb.createTupleQuery().from(entityClass);
+        Class<?> idType = probe.get(plan.idName()).getJavaType();
+        Class<?> sortType;
+        try {
+            sortType = resolvePath(probe, plan.sortPath(sort)).getJavaType();
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid sort field '{}', falling back to '{}'", sort, plan.idName());
+            sort = plan.idName();
+            sortType = idType;
+        }
+        if (!FilterPlan.convertible(sortType)) {
+            log.warn("Keyset pagination cannot sort by '{}' of type {}, falling back to '{}'",
+                    sort, sortType.getName(), plan.idName());
+            sort = plan.idName();
+            sortType = idType;
+        }
+        boolean sortById = sort.equals(plan.idName());
 
-        // Count query
-        CriteriaQuery<Long> countQuery = cb.createQuery(Long.class);
-        Root<T> countRoot = countQuery.from(entityClass);
-        countQuery.select(cb.count(countRoot));
-        List<Predicate> countPredicates = buildPredicates(cb, countRoot, search, config.searchFields(),
-                filterValues);
-        if (!countPredicates.isEmpty()) {
-            countQuery.where(cb.and(countPredicates.toArray(new Predicate[0])));
+        KeysetCursor cursor = bound.cursor() != null ? KeysetCursor.decode(bound.cursor()) : null;
+        if (cursor != null && !cursor.matches(sort, direction)) {
+            log.debug("Ignoring keyset cursor taken under a different sort");
+            cursor = null;
         }
-        long totalElements = entityManager.createQuery(countQuery).getSingleResult();
-        int totalPages = (int) Math.ceil((double) totalElements / size);
 
-        // Data query
-        CriteriaQuery<T> dataQuery = cb.createQuery(entityClass);
-        Root<T> dataRoot = dataQuery.from(entityClass);
-        dataQuery.select(dataRoot);
+        Map<String, Object> parameters = bound.parameters();
+        if (cursor != null) {
+            try {
+                parameters.put("idKey", cursorKey(idType, cursor.idValue()));
+                if (!sortById) {
+                    parameters.put("sortKey", cursorKey(sortType, cursor.sortValue()));
+                }
+            } catch (RuntimeException e) {
+                log.warn("Ignoring invalid keyset cursor for {}: {}", entityClass.getSimpleName(), e.getMessage());
+                cursor = null;
+            }
+        }
+
+        // Reading backward scans in the opposite order; the slice is reversed afterwards
+        boolean forward = cursor == null || cursor.forward();
+        boolean scanDescending = bound.descending() == forward;
+        boolean seek = cursor != null;
+        String sortField = sort;
+        Class<?> idKeyType = boxed(idType);
+        Class<?> sortKeyType = boxed(sortType);
+
+        ShapeKey key = new ShapeKey(plan, "keyset", bound.shape(), sort, scanDescending, seek);
+        TypedQuery<Tuple> typedQuery = shapedQuery(key, () -> {
+            CriteriaQuery<Tuple> query = cb.createTupleQuery();
+            Root<T> root = query.from(entityClass);
+            Path<Comparable> idPath = root.get(plan.idName());
+            Path<Comparable> sortPath = sortById ? idPath : resolvePath(root, plan.sortPath(sortField));
+
+            List<Predicate> predicates = buildPredicates(cb, root, bound);
+            if (seek) {
+                Expression<Comparable> idKey = cb.parameter((Class<Comparable>) idKeyType, "idKey");
+                Predicate idAfter = scanDescending ? cb.lessThan(idPath, idKey) : cb.greaterThan(idPath, idKey);
+                if (sortById) {
+                    predicates.add(idAfter);
+                } else {
+                    Expression<Comparable> sortKey = cb.parameter((Class<Comparable>) sortKeyType, "sortKey");
+                    Predicate sortAfter = scanDescending
+                            ? cb.lessThan(sortPath, sortKey)
+                            : cb.greaterThan(sortPath, sortKey);
+                    predicates.add(cb.or(sortAfter, cb.and(cb.equal(sortPath, sortKey), idAfter)));
+                }
+            }
+            if (!predicates.isEmpty()) {
+                query.where(cb.and(predicates.toArray(new Predicate[0])));
+            }
+
+            List<Selection<?>> selections = rowSelections(root, plan);
+            selections.add(sortPath);
+            selections.add(idPath);
+            query.multiselect(selections);
+            if (sortById) {
+                query.orderBy(scanDescending ? cb.desc(idPath) : cb.asc(idPath));
+            } else {
+                query.orderBy(scanDescending ? cb.desc(sortPath) : cb.asc(sortPath),
+                        scanDescending ? cb.desc(idPath) : cb.asc(idPath));
+            }
+            return query;
+        }, parameters);
+        // The sort key and id follow the row selections
+        int keyIndex = plan.twoPhase() || plan.rowShape() == FilterPlan.RowShape.ENTITY
+                ? 1
+                : plan.columns().size();
+
+        typedQuery.setMaxResults(size + 1);
+        List<Tuple> rows = new ArrayList<>(timed(key, typedQuery, TypedQuery::getResultList));
 
-        List<Predicate> dataPredicates = buildPredicates(cb, dataRoot, search, config.searchFields(),
-                filterValues);
-        if (!dataPredicates.isEmpty()) {
-            dataQuery.where(cb.and(dataPredicates.toArray(new Predicate[0])));
+        boolean more = rows.size() > size;
+        if (more) {
+            rows = new ArrayList<>(rows.subList(0, size));
+        }
+        if (!forward) {
+            Collections.reverse(rows);
         }
 
-        // Sorting
-        try {
-            Path<?> sortPath = resolvePath(dataRoot, sort);
-            if ("desc".equalsIgnoreCase(direction)) {
-                dataQuery.orderBy(cb.desc(sortPath));
+        List<T> content = new ArrayList<>(rows.size());
+        for (Tuple row : rows) {
+            content.add((T) toRow(row, plan));
+        }
+
+        String nextCursor = null;
+        String previousCursor = null;
+        if (!rows.isEmpty()) {
+            Tuple first = rows.get(0);
+            Tuple last = rows.get(rows.size() - 1);
+            if (forward) {
+                nextCursor = more ? cursorAt(last, keyIndex, true, sort, direction) : null;
+                previousCursor = cursor != null ? cursorAt(first, keyIndex, false, sort, direction) : null;
             } else {
-                dataQuery.orderBy(cb.asc(sortPath));
+                previousCursor = more ? cursorAt(first, keyIndex, false, sort, direction) : null;
+                nextCursor = cursorAt(last, keyIndex, true, sort, direction);
             }
-        } catch (IllegalArgumentException e) {
-            log.warn("Invalid sort field '{}', falling back to default", sort);
-            // Fall back without sorting rather than failing
         }
 
-        // Pagination
-        TypedQuery<T> typedQuery = entityManager.createQuery(dataQuery);
-        typedQuery.setFirstResult(page * size);
-        typedQuery.setMaxResults(size);
+        return new Slice<>(content, true, nextCursor != null, sort, nextCursor, previousCursor);
+    }
+
+    private String cursorAt(Tuple row, int keyIndex, boolean forward, String sort, String direction) {
+        Object sortValue = row.get(keyIndex);
+        Object idValue = row.get(keyIndex + 1);
+        if (sortValue == null) {
+            log.warn("Keyset sort field '{}' is null on a boundary row; no cursor available", sort);
+            return null;
+        }
+        return new KeysetCursor(forward, sort, direction, FilterPlan.valueString(sortValue),
+                FilterPlan.valueString(idValue)).encode();
+    }
+
+    /**
+     * Convert a key from a cursor to the type of its attribute.
+     *
+     * @throws IllegalArgumentException if it does not convert, so the cursor is invalid
+     */
+    private static Object cursorKey(Class<?> type, String value) {
+        Object key = FilterPlan.converterFor(type).apply(value);
+        if (!boxed(type).isInstance(key)) {
+            throw new IllegalArgumentException("'" + value + "' is not a " + type.getSimpleName());
+        }
+        return key;
+    }
+
+    /**
+     * Build the query for a shape once and reuse it for every request with that
+     * shape, binding only the parameter values. Hibernate is asked to cache the
+     * translated plan, so the SQL string (and the database's prepared statement)
+     * is shared as well.
+     */
+    @SuppressWarnings("unchecked")
+    private <R> TypedQuery<R> shapedQuery(ShapeKey key, Supplier<CriteriaQuery<R>> builder,
+                                          Map<String, Object> parameters) {
+        CriteriaQuery<R> criteria = (CriteriaQuery<R>) criteriaCache.get(key);
+        if (criteria == null) {
+            criteria = builder.get();
+            criteriaCache.put(key, criteria, CRITERIA_CACHE_TTL_MILLIS);
+        }
+        TypedQuery<R> query = entityManager.createQuery(criteria);
+        query.setHint(QUERY_PLAN_CACHEABLE_HINT, true);
+        for (Parameter<?> parameter : query.getParameters()) {
+            query.setParameter(parameter.getName(), parameters.get(parameter.getName()));
+        }
+        return query;
+    }
 
-        List<T> content = typedQuery.getResultList();
+    /**
+     * Run a shaped query with @QueryBind.timeoutMs as the JDBC statement timeout.
+     * JDBC drivers only time out in whole seconds, so the limit is rounded up.
+     * Timeouts are counted per shape: after CIRCUIT_TIMEOUT_THRESHOLD in a row, the
+     * shape is refused without asking the database until circuitOpenMillis pass
+     * without another timeout. Every query that reaches the database is reported
+     * to the metrics, and written to the slow query log if it took too long.
+     *
+     * @throws QueryBindTimeoutException if the query timed out or its shape is refused
+     */
+    private <R, V> V timed(ShapeKey key, TypedQuery<R> query, Function<TypedQuery<R>, V> execution) {
+        long timeoutMs = key.plan().config().timeoutMs();
+        String entityName = key.plan().entityClass().getSimpleName();
+        Integer timeouts = timeoutMs > 0 ? shapeTimeouts.get(key) : null;
+        if (timeouts != null && timeouts >= CIRCUIT_TIMEOUT_THRESHOLD) {
+            throw new QueryBindTimeoutException("QueryBind " + key.query() + " query for " + entityName
+                    + " is disabled after " + timeouts + " timeouts with filters " + key.filters());
+        }
+        if (timeoutMs > 0) {
+            query.setHint(QUERY_TIMEOUT_HINT, Math.toIntExact(TimeUnit.SECONDS.toMillis((timeoutMs + 999) / 1000)));
+        }
+        if (slowQueryNanos > 0) {
+            SqlCapture.open();
+        }
+        QueryBindMetrics.Outcome outcome = QueryBindMetrics.Outcome.ERROR;
+        long start = System.nanoTime();
+        try {
+            V result = execution.apply(query);
+            outcome = QueryBindMetrics.Outcome.SUCCESS;
+            if (timeouts != null) {
+                shapeTimeouts.remove(key);
+            }
+            return result;
+        } catch (QueryTimeoutException e) {
+            outcome = QueryBindMetrics.Outcome.TIMEOUT;
+            synchronized (shapeTimeouts) {
+                Integer previous = shapeTimeouts.get(key);
+                timeouts = previous == null ? 1 : previous + 1;
+                shapeTimeouts.put(key, timeouts, circuitOpenMillis);
+            }
+            log.warn("QueryBind: {} query for {} timed out ({} in a row) with filters {}",
+                    key.query(), entityName, timeouts, key.filters());
+            throw new QueryBindTimeoutException("QueryBind " + key.query() + " query for " + entityName
+                    + " timed out after " + timeoutMs + " ms", e);
+        } finally {
+            long nanos = System.nanoTime() - start;
+            metrics.query(key.plan(), key.query(), key.filters(), outcome, nanos);
+            if (slowQueryNanos > 0) {
+                String sql = SqlCapture.close();
+                if (nanos >= slowQueryNanos) {
+                    logSlowQuery(key, outcome, nanos, sql);
+                }
+            }
+        }
+    }
 
-        log.debug("QueryBind: entity={}, page={}/{}, size={}, total={}, sort={} {}, filters={}",
-                entityClass.getSimpleName(), page, totalPages, size, totalElements, sort, direction, activeFilters);
+    private void logSlowQuery(ShapeKey key, QueryBindMetrics.Outcome outcome, long nanos, String sql) {
+        FilterPlan plan = key.plan();
+        String binding = plan.config().name().isEmpty() ? "" : "[" + plan.config().name() + "]";
+        slowQueryLog.warn("QueryBind: {} query of {}{} took {} ms ({}) with filters {}, sort {}:\n{}",
+                key.query(), plan.pageClass().getSimpleName(), binding, TimeUnit.NANOSECONDS.toMillis(nanos),
+                outcome.name().toLowerCase(), plan.describeShape(key.filters()),
+                key.sort() == null ? "-" : key.sort() + (key.descending() ? " desc" : " asc"),
+                sql != null ? sql : "(SQL not captured)");
+    }
 
-        return new QueryBindResult<>(content, page, size, totalElements, totalPages,
-                sort, direction, activeFilters);
+    private void applyWhere(CriteriaBuilder cb, CriteriaQuery<?> query, Root<?> root, BoundQuery bound) {
+        List<Predicate> predicates = buildPredicates(cb, root, bound);
+        if (!predicates.isEmpty()) {
+            query.where(cb.and(predicates.toArray(new Predicate[0])));
+        }
     }
 
-    private <T> List<Predicate> buildPredicates(CriteriaBuilder cb, Root<T> root, String search,
-                                                 String[] searchFields,
-                                                 Map<FilterableFieldMapping, String> filterValues) {
+    /**
+     * The WHERE clause of a bound query. Values are never inlined: each one is a
+     * named parameter with a value in {@link BoundQuery#parameters()}.
+     */
+    private List<Predicate> buildPredicates(CriteriaBuilder cb, Root<?> root, BoundQuery bound) {
+        FilterPlan plan = bound.plan();
         List<Predicate> predicates = new ArrayList<>();
 
-        // Search predicate (OR across search fields)
-        if (search != null && !search.isBlank() && searchFields.length > 0) {
+        // Search predicate: ids from the search index, or LIKE (OR across search fields)
+        if (bound.searchIds() != null) {
+            predicates.add(searchIdPredicate(cb, root, bound));
+        } else if (bound.hasSearch() && !plan.searchPaths().isEmpty()) {
             List<Predicate> searchPredicates = new ArrayList<>();
-            String pattern = "%" + search.toLowerCase() + "%";
-            for (String field : searchFields) {
+            ParameterExpression<String> pattern = cb.parameter(String.class, BoundQuery.SEARCH_PARAMETER);
+            for (String[] field : plan.searchPaths()) {
                 try {
                     Path<String> path = resolvePath(root, field);
                     searchPredicates.add(cb.like(cb.lower(path.as(String.class)), pattern));
                 } catch (IllegalArgumentException e) {
-                    log.warn("Invalid search field '{}', skipping", field);
+                    log.warn("Invalid search field '{}', skipping", String.join(".", field));
                 }
             }
             if (!searchPredicates.isEmpty()) {
@@ -173,84 +2018,101 @@ public class QueryBindService {
         }
 
         // Filter predicates
-        for (var entry : filterValues.entrySet()) {
-            FilterableFieldMapping mapping = entry.getKey();
-            String value = entry.getValue();
-
+        for (BoundFilter filter : bound.filters()) {
             try {
-                Predicate filterPredicate = buildFilterPredicate(cb, root, mapping, value);
-                if (filterPredicate != null) {
-                    predicates.add(filterPredicate);
-                }
-            } catch (Exception e) {
-                log.warn("Failed to apply filter for '{}' with value '{}': {}",
-                        mapping.paramName(), value, e.getMessage());
+                predicates.add(buildFilterPredicate(cb, root, filter));
+            } catch (IllegalArgumentException e) {
+                log.warn("Failed to apply filter for '{}': {}", filter.filter().paramName(), e.getMessage());
             }
         }
 
         return predicates;
     }
 
+    @SuppressWarnings("unchecked")
+    private Predicate searchIdPredicate(CriteriaBuilder cb, Root<?> root, BoundQuery bound) {
+        List<Object> ids = bound.searchIds();
+        if (ids.isEmpty()) {
+            return cb.disjunction();
+        }
+        Path<Object> idPath = root.get(bound.plan().idName());
+        CriteriaBuilder.In<Object> in = cb.in(idPath);
+        for (int i = 0; i < ids.size(); i++) {
+            in.value(cb.parameter((Class<Object>) boxed(idPath.getJavaType()), BoundQuery.searchIdParameter(i)));
+        }
+        return in;
+    }
+
     @SuppressWarnings({"unchecked", "rawtypes"})
-    private <T> Predicate buildFilterPredicate(CriteriaBuilder cb, Root<T> root,
-                                               FilterableFieldMapping mapping, String value) {
-        Path<?> path = resolvePath(root, mapping.fieldName());
-        Class<?> fieldType = mapping.fieldType();
-
-        return switch (mapping.op()) {
-            case EQUALS -> {
-                if ("null".equalsIgnoreCase(value)) {
-                    yield cb.isNull(path);
-                }
-                if ("!null".equalsIgnoreCase(value)) {
-                    yield cb.isNotNull(path);
-                }
-                yield cb.equal(path, convertValue(value, fieldType));
-            }
+    private Predicate buildFilterPredicate(CriteriaBuilder cb, Root<?> root, BoundFilter filter) {
+        Path path = resolvePath(root, filter.filter().path());
+        Class type = boxed(path.getJavaType());
 
+        return switch (filter.form()) {
+            case EQUAL -> cb.equal(path, cb.parameter(type, filter.parameterName(0)));
+            case IS_NULL -> cb.isNull(path);
+            case IS_NOT_NULL -> cb.isNotNull(path);
             case LIKE -> {
-                String pattern = "%" + value.toLowerCase() + "%";
-                yield cb.like(cb.lower(path.as(String.class)), pattern);
-            }
-
-            case GREATER_THAN -> {
-                Comparable convertedValue = (Comparable) convertValue(value, fieldType);
-                yield cb.greaterThan((Path<Comparable>) path, convertedValue);
-            }
-
-            case LESS_THAN -> {
-                Comparable convertedValue = (Comparable) convertValue(value, fieldType);
-                yield cb.lessThan((Path<Comparable>) path, convertedValue);
+                // @SearchNormalized columns are stored lowercased already
+                Expression<String> text = path.as(String.class);
+                yield cb.like(filter.filter().normalized() ? text : cb.lower(text),
+                        cb.parameter(String.class, filter.parameterName(0)));
             }
-
+            case STARTS_WITH -> cb.like(path.as(String.class), cb.parameter(String.class, filter.parameterName(0)),
+                    BoundFilter.LIKE_ESCAPE);
+            case GREATER_THAN -> cb.greaterThan(path, cb.parameter(type, filter.parameterName(0)));
+            case LESS_THAN -> cb.lessThan(path, cb.parameter(type, filter.parameterName(0)));
             case IN -> {
-                String[] parts = value.split(",");
-                List<Object> values = new ArrayList<>();
-                for (String part : parts) {
-                    values.add(convertValue(part.trim(), fieldType));
+                CriteriaBuilder.In in = cb.in(path);
+                for (int i = 0; i < filter.values().size(); i++) {
+                    in.value(cb.parameter(type, filter.parameterName(i)));
                 }
-                yield path.in(values);
+                yield in;
             }
+            case BETWEEN -> cb.between(path, cb.parameter(type, filter.parameterName(0)),
+                    cb.parameter(type, filter.parameterName(1)));
+        };
+    }
 
-            case BETWEEN -> {
-                // Value format: "from,to" or use paired params
-                String[] parts = value.split(",");
-                if (parts.length == 2) {
-                    Comparable from = (Comparable) convertValue(parts[0].trim(), fieldType);
-                    Comparable to = (Comparable) convertValue(parts[1].trim(), fieldType);
-                    yield cb.between((Path<Comparable>) path, from, to);
-                }
-                yield null;
-            }
+    @SuppressWarnings("unchecked")
+    private static <V> Class<V> boxed(Class<V> type) {
+        if (!type.isPrimitive()) {
+            return type;
+        }
+        Class<?> wrapper = type == int.class ? Integer.class
+                : type == long.class ? Long.class
+                : type == double.class ? Double.class
+                : type == float.class ? Float.class
+                : type == boolean.class ? Boolean.class
+                : type == short.class ? Short.class
+                : type == byte.class ? Byte.class
+                : Character.class;
+        return (Class<V>) wrapper;
+    }
 
-            case IS_NULL -> cb.isNull(path);
+    /**
+     * Describe the filters, search and default sort of a binding that the database
+     * can only answer by scanning the whole table, see {@link IndexAdvisor}.
+     */
+    List<String> indexAdvice(Class<?> pageClass, String binding) {
+        return IndexAdvisor.advise(planFor(pageClass, binding), entityManager.getMetamodel());
+    }
 
-            case IS_NOT_NULL -> cb.isNotNull(path);
-        };
+    /**
+     * Get the compiled plan for a named @QueryBind of a page class, building it on first use.
+     */
+    FilterPlan planFor(Class<?> pageClass, String binding) {
+        return plans.computeIfAbsent(new PlanKey(pageClass, binding), key -> {
+            FilterPlan plan = FilterPlan.compile(key.pageClass(), key.binding(), entityManager.getMetamodel());
+            if (plan.config().searchMode() == SearchMode.INDEX) {
+                indexedFields.computeIfAbsent(plan.entityClass(), k -> ConcurrentHashMap.newKeySet())
+                        .addAll(plan.searchFieldNames());
+            }
+            return plan;
+        });
     }
 
-    private <T> Path<T> resolvePath(Root<?> root, String fieldPath) {
-        String[] parts = fieldPath.split("\\.");
+    private <T> Path<T> resolvePath(Root<?> root, String[] parts) {
         Path<T> path = root.get(parts[0]);
         for (int i = 1; i < parts.length; i++) {
             path = path.get(parts[i]);
@@ -258,62 +2120,15 @@ public class QueryBindService {
         return path;
     }
 
-    private Object convertValue(String value, Class<?> targetType) {
-        if (targetType == String.class) {
-            return value;
-        }
-        if (targetType == Integer.class || targetType == int.class) {
-            return Integer.parseInt(value);
-        }
-        if (targetType == Long.class || targetType == long.class) {
-            return Long.parseLong(value);
-        }
-        if (targetType == Double.class || targetType == double.class) {
-            return Double.parseDouble(value);
-        }
-        if (targetType == Float.class || targetType == float.class) {
-            return Float.parseFloat(value);
-        }
-        if (targetType == Boolean.class || targetType == boolean.class) {
-            return Boolean.parseBoolean(value);
-        }
-        if (targetType == BigDecimal.class) {
-            return new BigDecimal(value);
-        }
-        if (targetType == LocalDate.class) {
-            return LocalDate.parse(value);
-        }
-        if (targetType == LocalDateTime.class) {
-            return LocalDateTime.parse(value);
-        }
-        if (targetType.isEnum()) {
-            @SuppressWarnings({"unchecked", "rawtypes"})
-            Object enumValue = Enum.valueOf((Class<Enum>) targetType, value.toUpperCase());
-            return enumValue;
-        }
-        // Fallback: return as String
-        return value;
-    }
-
-    private List<FilterableFieldMapping> discoverFilterableFields(Class<?> entityClass) {
-        List<FilterableFieldMapping> mappings = new ArrayList<>();
-        Class<?> current = entityClass;
-
-        while (current != null && current != Object.class) {
-            for (Field field : current.getDeclaredFields()) {
-                Filterable annotation = field.getAnnotation(Filterable.class);
-                if (annotation != null) {
-                    String paramName = annotation.param().isEmpty()
-                            ? field.getName()
-                            : annotation.param();
-                    mappings.add(new FilterableFieldMapping(
-                            field.getName(), paramName, field.getType(), annotation.op()));
-                }
-            }
-            current = current.getSuperclass();
+    /**
+     * Resolve a dotted attribute path, outer joining the associations on the way.
+     */
+    private Path<?> resolveOuterPath(Root<?> root, String[] parts) {
+        From<?, ?> from = root;
+        for (int i = 0; i < parts.length - 1; i++) {
+            from = from.join(parts[i], JoinType.LEFT);
         }
-
-        return mappings;
+        return from.get(parts[parts.length - 1]);
     }
 
     private HttpServletRequest getCurrentRequest() {
@@ -337,5 +2152,180 @@ public class QueryBindService {
         }
     }
 
-    private record FilterableFieldMapping(String fieldName, String paramName, Class<?> fieldType, FilterOp op) {}
+    /**
+     * Result of a @QueryBind(lazy = true) binding. Holds the bound request and runs
+     * each query the first time a getter needs it: the count for the total, the
+     * data query for the content and cursors, both where the answer depends on
+     * both (e.g. the total when the data query probes for a next page). Once the
+     * count, the content and any facets are loaded, the assembled result goes to
+     * the result cache like an eager one.
+     */
+    private final class LazyResult<T> extends QueryBindResult<T> {
+
+        private final BoundQuery bound;
+        private final boolean keyset;
+        private final boolean probed;
+        private Total total;
+        private Slice<T> slice;
+        private QueryBindResult<T> assembled;
+        private Map<String, Map<Object, Long>> facets;
+
+        LazyResult(BoundQuery bound) {
+            super(null, bound.page(), bound.size(), -1, -1, TotalKind.UNKNOWN, false, bound.sort(),
+                    bound.direction(), bound.activeFilters(),
+                    bound.plan().config().pagination() == Pagination.KEYSET, null, null, null);
+            this.bound = bound;
+            this.keyset = bound.plan().config().pagination() == Pagination.KEYSET;
+            this.probed = !keyset && probesNext(bound.plan().config());
+        }
+
+        private synchronized Total total() {
+            if (total == null) {
+                if (bound.plan().config().parallel()) {
+                    loadParallel();
+                } else {
+                    total = inReadOnlyTransaction(() -> countTotal(bound));
+                    cacheIfComplete();
+                }
+            }
+            return total;
+        }
+
+        private synchronized Slice<T> slice() {
+            if (slice == null) {
+                if (bound.plan().config().parallel()) {
+                    loadParallel();
+                } else {
+                    slice = inReadOnlyTransaction(() -> fetchSlice(bound));
+                    cacheIfComplete();
+                }
+            }
+            return slice;
+        }
+
+        private void loadParallel() {
+            Parts<T> parts = fetchParallel(bound, false);
+            total = parts.total();
+            slice = parts.slice();
+            cacheIfComplete();
+        }
+
+        private synchronized QueryBindResult<T> assembled() {
+            if (assembled == null) {
+                assembled = assemble(bound, total(), slice());
+            }
+            return assembled;
+        }
+
+        private void cacheIfComplete() {
+            int cacheSeconds = bound.plan().config().cacheSeconds();
+            boolean faceted = !bound.plan().facets().isEmpty();
+            if (resultCache == null || cacheSeconds <= 0 || total == null || slice == null
+                    || (faceted && facets == null)) {
+                return;
+            }
+            QueryBindResult<T> result = assembled();
+            resultCache.put(bound.cacheKey(), faceted ? result.withFacets(facets) : result,
+                    Duration.ofSeconds(cacheSeconds));
+        }
+
+        @Override
+        public List<T> getContent() {
+            return slice().content();
+        }
+
+        @Override
+        public long getTotalElements() {
+            return probed ? assembled().getTotalElements() : total().elements();
+        }
+
+        @Override
+        public int getTotalPages() {
+            if (probed) {
+                return assembled().getTotalPages();
+            }
+            Total counted = total();
+            return counted.kind() == TotalKind.UNKNOWN
+                    ? assembled().getTotalPages()
+                    : pageCount(counted.elements(), bound.size());
+        }
+
+        @Override
+        public TotalKind getTotalKind() {
+            return probed ? assembled().getTotalKind() : total().kind();
+        }
+
+        @Override
+        public String getSort() {
+            return keyset ? slice().sort() : bound.sort();
+        }
+
+        @Override
+        public synchronized Map<String, Map<Object, Long>> getFacets() {
+            if (bound.plan().facets().isEmpty()) {
+                return Collections.emptyMap();
+            }
+            if (facets == null) {
+                facets = inReadOnlyTransaction(() -> countFacets(bound));
+                cacheIfComplete();
+            }
+            return facets;
+        }
+
+        @Override
+        public String getNextCursor() {
+            return keyset ? slice().nextCursor() : null;
+        }
+
+        @Override
+        public String getPreviousCursor() {
+            return keyset ? slice().previousCursor() : null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (keyset) {
+                return slice().nextCursor() != null;
+            }
+            if (probed) {
+                return slice().hasNext();
+            }
+            if (total().kind() == TotalKind.UNKNOWN) {
+                return assembled().hasNext();
+            }
+            return bound.page() < pageCount(total().elements(), bound.size()) - 1;
+        }
+    }
+
+    private record Total(long elements, TotalKind kind) {}
+
+    /**
+     * The rows of one page plus what the data query learned about its neighbours.
+     * probed is set when one extra row was fetched, in which case hasNext is exact.
+     */
+    private record Slice<T>(List<T> content, boolean probed, boolean hasNext, String sort,
+                            String nextCursor, String previousCursor) {}
+
+    private record PlanKey(Class<?> pageClass, String binding) {}
+
+    /**
+     * Conditional GET validator of a page.
+     *
+     * @param etag         weak entity tag, quoted
+     * @param lastModified greatest etag timestamp in epoch millis, or -1 if unknown
+     */
+    record Validator(String etag, long lastModified) {}
+
+    private record Parts<T>(Total total, Slice<T> slice, Map<String, Map<Object, Long>> facets) {}
+
+    private record CountKey(FilterPlan plan, Map<String, String> filters) {}
+
+    private record FacetKey(FilterPlan plan, String facet, Map<String, String> filters) {}
+
+    /**
+     * Identifies a compiled query: everything that changes its SQL, but none of
+     * the parameter values.
+     */
+    private record ShapeKey(FilterPlan plan, String query, List<Object> filters, String sort,
+                            boolean descending, Object variant) {}
 }
@@ -0,0 +1,16 @@
+package candi.data.querybind;
+
+/**
+ * Exception thrown when a QueryBind query exceeds @QueryBind.timeoutMs, or is
+ * refused because its shape timed out repeatedly.
+ */
+public class QueryBindTimeoutException extends QueryBindException {
+
+    public QueryBindTimeoutException(String message) {
+        super(message);
+    }
+
+    public QueryBindTimeoutException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
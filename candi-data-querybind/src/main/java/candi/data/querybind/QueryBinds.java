@@ -0,0 +1,17 @@
+package candi.data.querybind;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Container for repeated @QueryBind annotations on one page class. Not used
+ * directly; the compiler generates it when @QueryBind appears more than once.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface QueryBinds {
+
+    QueryBind[] value();
+}
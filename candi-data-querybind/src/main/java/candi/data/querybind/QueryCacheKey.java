@@ -0,0 +1,31 @@
+package candi.data.querybind;
+
+import java.util.Map;
+
+/**
+ * Canonical key of one QueryBind request, used by {@link QueryResultCache}.
+ *
+ * Two requests that differ only in parameter order or in parameters QueryBind
+ * does not bind produce equal keys.
+ *
+ * @param pageClass the @QueryBind page class
+ * @param binding   the @QueryBind name ("" for the unnamed binding)
+ * @param entity    the queried entity type, used for invalidation
+ * @param filters   active filters and search term, sorted by parameter name
+ * @param sort      sort field
+ * @param direction sort direction
+ * @param page      page number (0 for keyset pagination)
+ * @param size      page size
+ * @param cursor    keyset cursor, or null
+ */
+public record QueryCacheKey(
+        Class<?> pageClass,
+        String binding,
+        Class<?> entity,
+        Map<String, String> filters,
+        String sort,
+        String direction,
+        int page,
+        int size,
+        String cursor
+) {}
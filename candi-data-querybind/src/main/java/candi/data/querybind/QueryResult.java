@@ -20,7 +20,16 @@ import java.lang.annotation.Target;
  *     private QueryBindResult{@literal <}User{@literal >} users;
  * }
  * </pre>
+ *
+ * On pages with several @QueryBind annotations, binding names the one that
+ * fills the field.
  */
 @Target(ElementType.FIELD)
 @Retention(RetentionPolicy.RUNTIME)
-public @interface QueryResult {}
+public @interface QueryResult {
+
+    /**
+     * Name of the @QueryBind whose result this field receives. Default: "" (the unnamed binding).
+     */
+    String binding() default "";
+}
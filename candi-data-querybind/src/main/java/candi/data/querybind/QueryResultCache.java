@@ -0,0 +1,40 @@
+package candi.data.querybind;
+
+import java.time.Duration;
+
+/**
+ * Cache for complete QueryBind results, used for bindings with
+ * {@literal @}QueryBind(cacheSeconds &gt; 0).
+ *
+ * The default implementation is an in-memory {@link InMemoryQueryResultCache}.
+ * Register a bean of this type to plug in a different store.
+ * Entries are invalidated per entity type when QueryBindEntityListener reports
+ * a committed insert, update or delete.
+ */
+public interface QueryResultCache {
+
+    /**
+     * Returns the cached result for the key, or null on a miss.
+     */
+    QueryBindResult<?> get(QueryCacheKey key);
+
+    /**
+     * Stores a result for at most the given time to live.
+     */
+    void put(QueryCacheKey key, QueryBindResult<?> result, Duration ttl);
+
+    /**
+     * Drops every entry whose entity type is, or is a supertype of, the given type.
+     */
+    void invalidate(Class<?> entityType);
+
+    /**
+     * Number of lookups that returned a cached result.
+     */
+    long getHitCount();
+
+    /**
+     * Number of lookups that found no live entry.
+     */
+    long getMissCount();
+}
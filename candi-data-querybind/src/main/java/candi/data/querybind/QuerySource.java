@@ -0,0 +1,23 @@
+package candi.data.querybind;
+
+/**
+ * Where a @QueryBind page reads its rows from.
+ */
+public enum QuerySource {
+
+    /**
+     * Query the database on every request (the default).
+     */
+    DATABASE,
+
+    /**
+     * Load all rows of the entity once into columnar arrays held in the JVM heap,
+     * and filter, sort and page them there without a database round trip. Meant
+     * for small, frequently read reference tables (countries, plans, catalogs of
+     * up to a few hundred thousand rows). Rows must be projections or columns:
+     * the same instances are handed to every request on every thread, which
+     * managed entities do not survive. The rows are reloaded in the background
+     * when QueryBindEntityListener reports a change.
+     */
+    IN_MEMORY
+}
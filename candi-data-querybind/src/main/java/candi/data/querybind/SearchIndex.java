@@ -0,0 +1,68 @@
+package candi.data.querybind;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Full-text index behind @QueryBind(searchMode = SearchMode.INDEX).
+ *
+ * Documents are entities, identified by entity type and id, with one text value
+ * per search field path. QueryBindService fills the index on startup, keeps it in
+ * sync through QueryBindEntityListener, and turns search terms into id
+ * restrictions on the criteria query.
+ *
+ * The default implementation is the in-process {@link InMemorySearchIndex}.
+ * Register a bean of this type to plug in another engine.
+ */
+public interface SearchIndex {
+
+    /**
+     * Start replacing every document of an entity type. Searches keep using the
+     * previous documents until {@link Loader#commit()} is called. Documents put or
+     * removed while the rebuild loads must not be lost when it commits, since the
+     * loader may have read them before they changed.
+     */
+    Loader rebuild(Class<?> entityType);
+
+    /**
+     * Add or replace the document of one entity.
+     */
+    void put(Class<?> entityType, Object id, Map<String, String> fields);
+
+    /**
+     * Remove the document of one entity, if present.
+     */
+    void remove(Class<?> entityType, Object id);
+
+    /**
+     * Find the entities whose given fields match every word of the term.
+     *
+     * @param entityType the indexed entity type
+     * @param fields     field paths to match against
+     * @param term       the raw search term
+     * @param maxResults the most ids the caller can use
+     * @return matching ids, or null if the index cannot answer: nothing is indexed
+     *         for the type yet, the term has no words, or more than maxResults match
+     */
+    Set<Object> search(Class<?> entityType, Collection<String> fields, String term, int maxResults);
+
+    /**
+     * Collects the documents of a rebuild.
+     */
+    interface Loader {
+
+        void add(Object id, Map<String, String> fields);
+
+        /**
+         * Make the loaded documents visible, replacing the previous ones.
+         */
+        void commit();
+
+        /**
+         * Give up the rebuild after loading failed, keeping the previous documents.
+         */
+        default void abort() {
+        }
+    }
+}
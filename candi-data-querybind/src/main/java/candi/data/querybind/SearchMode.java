@@ -0,0 +1,21 @@
+package candi.data.querybind;
+
+/**
+ * How the "search" parameter of a @QueryBind page is matched.
+ */
+public enum SearchMode {
+
+    /**
+     * lower(field) LIKE '%term%' across @QueryBind.searchFields. Matches any
+     * substring, but no B-tree index can serve it, so every search scans the table.
+     */
+    LIKE,
+
+    /**
+     * Look the term up in the {@link SearchIndex} and restrict the query to the
+     * matching ids. Every word of the term must start a word of one of the search
+     * fields (case- and accent-insensitive). Falls back to LIKE while the index for
+     * the entity is not built yet, or when too many rows match.
+     */
+    INDEX
+}
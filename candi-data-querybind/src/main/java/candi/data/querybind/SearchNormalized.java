@@ -0,0 +1,39 @@
+package candi.data.querybind;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a String field as the normalized copy of another field: lowercased and
+ * stripped of accents ("Éclair" becomes "eclair"). QueryBindEntityListener fills
+ * it before every insert and update.
+ *
+ * Because the column already holds the folded text, filters on it compare it
+ * directly instead of wrapping it in lower(), and fold the URL value the same way.
+ * A STARTS_WITH filter on a normalized column is a case- and accent-insensitive
+ * prefix match that a plain B-tree index on the column can serve.
+ *
+ * <pre>
+ * {@literal @}Entity
+ * {@literal @}EntityListeners(QueryBindEntityListener.class)
+ * {@literal @}Table(indexes = {@literal @}Index(columnList = "name_normalized"))
+ * public class Customer {
+ *     private String name;
+ *
+ *     {@literal @}SearchNormalized("name")
+ *     {@literal @}Filterable(param = "name", op = FilterOp.STARTS_WITH)
+ *     private String nameNormalized;
+ * }
+ * </pre>
+ */
+@Target(ElementType.FIELD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface SearchNormalized {
+
+    /**
+     * Name of the field whose value is normalized into this one.
+     */
+    String value();
+}
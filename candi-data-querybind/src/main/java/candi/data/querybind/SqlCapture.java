@@ -0,0 +1,64 @@
+package candi.data.querybind;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Hibernate StatementInspector that records the SQL a thread prepares while a
+ * capture is open, for the slow query log. Statements contain placeholders only,
+ * never parameter values.
+ *
+ * Registered as hibernate.session_factory.statement_inspector by
+ * CandiQueryBindAutoConfiguration when the slow query log is on. An inspector the
+ * application configured there runs first, and the statement it returns is the
+ * one recorded and passed on.
+ */
+final class SqlCapture implements StatementInspector {
+
+    static final SqlCapture INSTANCE = new SqlCapture(null);
+
+    private static final ThreadLocal<StringBuilder> CAPTURED = new ThreadLocal<>();
+
+    private final StatementInspector next;
+
+    /**
+     * @param next the application's inspector, or null
+     */
+    SqlCapture(StatementInspector next) {
+        this.next = next;
+    }
+
+    /**
+     * Start recording the statements prepared on this thread.
+     */
+    static void open() {
+        CAPTURED.set(new StringBuilder());
+    }
+
+    /**
+     * Stop recording and return the statements since {@link #open()}, separated
+     * by ";\n", or null if none were captured.
+     */
+    static String close() {
+        StringBuilder captured = CAPTURED.get();
+        CAPTURED.remove();
+        return captured == null || captured.isEmpty() ? null : captured.toString();
+    }
+
+    @Override
+    public String inspect(String sql) {
+        if (next != null) {
+            String inspected = next.inspect(sql);
+            if (inspected != null) {
+                sql = inspected;
+            }
+        }
+        StringBuilder captured = CAPTURED.get();
+        if (captured != null) {
+            if (!captured.isEmpty()) {
+                captured.append(";\n");
+            }
+            captured.append(sql);
+        }
+        return sql;
+    }
+}
@@ -0,0 +1,30 @@
+package candi.data.querybind;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Case and accent folding shared by the in-memory search index, @SearchNormalized
+ * columns and the filter values matched against them.
+ */
+final class TextNormalizer {
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+
+    private TextNormalizer() {
+    }
+
+    /**
+     * Lowercase a text and strip its accents, e.g. "Crème Brûlée" to "creme brulee".
+     *
+     * @return the folded text, or null for null
+     */
+    static String fold(String text) {
+        if (text == null) {
+            return null;
+        }
+        return MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("")
+                .toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,23 @@
+package candi.data.querybind;
+
+/**
+ * How precise QueryBindResult.getTotalElements() is.
+ */
+public enum TotalKind {
+
+    /**
+     * The total is the exact number of matching rows.
+     */
+    EXACT,
+
+    /**
+     * At least this many rows match; counting stopped at the cap.
+     */
+    CAPPED,
+
+    /**
+     * The total was not counted. getTotalElements() returns -1 and
+     * getTotalPages() only covers the pages known to exist.
+     */
+    UNKNOWN
+}
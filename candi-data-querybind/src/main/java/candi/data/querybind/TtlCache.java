@@ -0,0 +1,66 @@
+package candi.data.querybind;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Small bounded cache with per-entry time-to-live.
+ *
+ * Entries expire after their TTL and the least recently used entry is evicted
+ * once the cache holds maxEntries. All operations are synchronized; the cache is
+ * meant for small values such as counts and page results, not for bulk data.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+final class TtlCache<K, V> {
+
+    private final LinkedHashMap<K, Entry<V>> entries;
+
+    TtlCache(int maxEntries) {
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Get a live entry, or null if absent or expired.
+     */
+    synchronized V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAt() - System.nanoTime() <= 0) {
+            entries.remove(key);
+            return null;
+        }
+        return entry.value();
+    }
+
+    synchronized void put(K key, V value, long ttlMillis) {
+        entries.put(key, new Entry<>(value, System.nanoTime() + ttlMillis * 1_000_000L));
+    }
+
+    synchronized void remove(K key) {
+        entries.remove(key);
+    }
+
+    synchronized void removeIf(Predicate<K> predicate) {
+        entries.keySet().removeIf(predicate);
+    }
+
+    synchronized void clear() {
+        entries.clear();
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    private record Entry<V>(V value, long expiresAt) {}
+}
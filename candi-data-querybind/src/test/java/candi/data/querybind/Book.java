@@ -0,0 +1,80 @@
+package candi.data.querybind;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+
+@Entity
+@EntityListeners(QueryBindEntityListener.class)
+@Table(indexes = @Index(columnList = "genre"))
+public class Book {
+
+    enum Genre { NOVEL, POETRY, ESSAY }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    Long id;
+
+    @Filterable(op = FilterOp.LIKE)
+    String title;
+
+    @SearchNormalized("title")
+    @Filterable(param = "titleStarts", op = FilterOp.STARTS_WITH)
+    String titleNormalized;
+
+    @Filterable
+    @Enumerated(EnumType.STRING)
+    Genre genre;
+
+    @Filterable(param = "minPrice", op = FilterOp.GREATER_THAN)
+    BigDecimal price;
+
+    @Filterable(param = "years", op = FilterOp.IN)
+    Integer releaseYear;
+
+    @Filterable(param = "published", op = FilterOp.BETWEEN)
+    LocalDate publishedOn;
+
+    OffsetDateTime updatedAt;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    Publisher publisher;
+
+    protected Book() {
+    }
+
+    Book(String title, Genre genre, BigDecimal price, int releaseYear, LocalDate publishedOn, OffsetDateTime updatedAt,
+         Publisher publisher) {
+        this.title = title;
+        this.genre = genre;
+        this.price = price;
+        this.releaseYear = releaseYear;
+        this.publishedOn = publishedOn;
+        this.updatedAt = updatedAt;
+        this.publisher = publisher;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public Publisher getPublisher() {
+        return publisher;
+    }
+}
@@ -0,0 +1,184 @@
+package candi.data.querybind;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BoundQueryTest {
+
+    private static EntityManagerFactory emf;
+    private static QueryBindService service;
+
+    @QueryBind(entity = Book.class, searchFields = "title", defaultSort = "title", maxPageSize = 50)
+    static class Books {}
+
+    @QueryBind(entity = Book.class, name = "other", pagination = Pagination.KEYSET)
+    static class Keyset {}
+
+    @QueryBind(entity = Book.class, prefetch = true)
+    static class Prefetching {}
+
+    @BeforeAll
+    static void createService() {
+        emf = TestDatabase.create("bound-query");
+        service = new QueryBindService(SharedEntityManagerCreator.createSharedEntityManager(emf),
+                new JpaTransactionManager(emf));
+    }
+
+    @AfterAll
+    static void closeDatabase() {
+        service.destroy();
+        emf.close();
+    }
+
+    @Test
+    void readsPaginationSortAndSearch() {
+        BoundQuery bound = bind(Books.class, "", params("page", "2", "size", "500", "sort", "price",
+                "direction", "desc", "search", "Tale"));
+
+        assertThat(bound.page()).isEqualTo(2);
+        assertThat(bound.size()).isEqualTo(50);
+        assertThat(bound.sort()).isEqualTo("price");
+        assertThat(bound.descending()).isTrue();
+        assertThat(bound.parameters()).containsEntry(BoundQuery.SEARCH_PARAMETER, "%tale%");
+        assertThat(bound.activeFilters()).containsExactly(Map.entry("search", "Tale"));
+    }
+
+    @Test
+    void fallsBackToDefaultsForMissingOrInvalidParameters() {
+        BoundQuery bound = bind(Books.class, "", params("page", "-3", "size", "zero", "sort", " "));
+
+        assertThat(bound.page()).isZero();
+        assertThat(bound.size()).isEqualTo(20);
+        assertThat(bound.sort()).isEqualTo("title");
+        assertThat(bound.direction()).isEqualTo("asc");
+        assertThat(bound.hasSearch()).isFalse();
+    }
+
+    @Test
+    void bindsFilterValuesAsParameters() {
+        BoundQuery bound = bind(Books.class, "", params("genre", "essay", "minPrice", "9.5",
+                "published", "2024-01-01,2024-02-01"));
+
+        assertThat(bound.filters()).extracting(filter -> filter.filter().paramName())
+                .containsExactly("genre", "minPrice", "published");
+        assertThat(bound.parameters()).containsValues(Book.Genre.ESSAY, new BigDecimal("9.5"));
+        assertThat(bound.parameters()).hasSize(4);
+    }
+
+    @Test
+    void dropsFilterValuesThatDoNotConvert() {
+        BoundQuery bound = bind(Books.class, "", params("minPrice", "cheap", "genre", "NOVEL"));
+
+        assertThat(bound.filters()).extracting(filter -> filter.filter().paramName()).containsExactly("genre");
+        assertThat(bound.activeFilters()).containsKeys("minPrice", "genre");
+    }
+
+    @Test
+    void padsInListsToThePowerOfTwo() {
+        BoundQuery five = bind(Books.class, "", params("years", "2000,2001,2002,2003,2004"));
+        BoundQuery eight = bind(Books.class, "", params("years", "1,2,3,4,5,6,7,8"));
+
+        assertThat(five.filters().get(0).values()).containsExactly(2000, 2001, 2002, 2003, 2004, 2004, 2004, 2004);
+        assertThat(five.shape()).isEqualTo(eight.shape());
+        assertThat(BoundFilter.padded(List.of(1))).containsExactly(1);
+        assertThat(BoundFilter.padded(List.of(1, 2, 3))).containsExactly(1, 2, 3, 3);
+    }
+
+    @Test
+    void sharesTheShapeAcrossValuesOnly() {
+        BoundQuery novels = bind(Books.class, "", params("genre", "NOVEL", "search", "a"));
+        BoundQuery essays = bind(Books.class, "", params("genre", "ESSAY", "search", "b"));
+        BoundQuery unsearched = bind(Books.class, "", params("genre", "ESSAY"));
+        BoundQuery nullGenre = bind(Books.class, "", params("genre", "null", "search", "b"));
+
+        assertThat(novels.shape()).isEqualTo(essays.shape());
+        assertThat(novels.shape()).isNotEqualTo(unsearched.shape());
+        assertThat(novels.shape()).isNotEqualTo(nullGenre.shape());
+    }
+
+    @Test
+    void keysEquivalentRequestsEqually() {
+        QueryCacheKey key = bind(Books.class, "", params("genre", "NOVEL", "minPrice", "3", "ignored", "x"))
+                .cacheKey();
+        QueryCacheKey reordered = bind(Books.class, "", params("minPrice", "3", "genre", "NOVEL",
+                "direction", "ASC")).cacheKey();
+
+        assertThat(reordered).isEqualTo(key);
+        assertThat(key.entity()).isEqualTo(Book.class);
+        assertThat(key.filters()).containsExactly(Map.entry("genre", "NOVEL"), Map.entry("minPrice", "3"));
+    }
+
+    @Test
+    void keysDifferentRequestsApart() {
+        QueryCacheKey key = bind(Books.class, "", params("genre", "NOVEL")).cacheKey();
+
+        assertThat(bind(Books.class, "", params("genre", "ESSAY")).cacheKey()).isNotEqualTo(key);
+        assertThat(bind(Books.class, "", params("genre", "NOVEL", "page", "1")).cacheKey()).isNotEqualTo(key);
+        assertThat(bind(Books.class, "", params("genre", "NOVEL", "size", "10")).cacheKey()).isNotEqualTo(key);
+        assertThat(bind(Books.class, "", params("genre", "NOVEL", "search", "x")).cacheKey()).isNotEqualTo(key);
+        assertThat(bind(Books.class, "", params("genre", "NOVEL", "sort", "price")).cacheKey()).isNotEqualTo(key);
+    }
+
+    @Test
+    void keysKeysetRequestsByCursorAndNamedBindingsByPrefix() {
+        QueryCacheKey first = bind(Keyset.class, "other", params("other.page", "4")).cacheKey();
+        QueryCacheKey later = bind(Keyset.class, "other", params("other.cursor", "abc")).cacheKey();
+
+        assertThat(first.page()).isZero();
+        assertThat(first.cursor()).isNull();
+        assertThat(later.cursor()).isEqualTo("abc");
+        assertThat(first.binding()).isEqualTo("other");
+        assertThat(bind(Keyset.class, "other", params("cursor", "abc")).cacheKey()).isEqualTo(first);
+    }
+
+    @Test
+    void describesTheNextPage() {
+        BoundQuery offset = bind(Books.class, "", params("page", "1", "genre", "NOVEL"));
+        BoundQuery keyset = bind(Keyset.class, "other", params());
+
+        assertThat(offset.next("ignored").page()).isEqualTo(2);
+        assertThat(offset.next("ignored").cursor()).isNull();
+        assertThat(offset.next(null).filters()).isEqualTo(offset.filters());
+        assertThat(keyset.next("token").cursor()).isEqualTo("token");
+        assertThat(keyset.next("token").page()).isZero();
+    }
+
+    @Test
+    void identifiesTheUserOnlyForPrefetchingBindings() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/books");
+        request.setSession(new MockHttpSession(null, "s1"));
+
+        assertThat(service.bind(service.planFor(Books.class, ""), request).user()).isNull();
+        assertThat(service.bind(service.planFor(Prefetching.class, ""), request).user()).isEqualTo("session:s1");
+        request.setUserPrincipal(() -> "ada");
+        assertThat(service.bind(service.planFor(Prefetching.class, ""), request).user()).isEqualTo("principal:ada");
+        assertThat(service.bind(service.planFor(Prefetching.class, ""), new MockHttpServletRequest()).user()).isNull();
+    }
+
+    private static BoundQuery bind(Class<?> pageClass, String binding, Map<String, String> parameters) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/books");
+        parameters.forEach(request::addParameter);
+        return service.bind(service.planFor(pageClass, binding), request);
+    }
+
+    private static Map<String, String> params(String... namesAndValues) {
+        Map<String, String> parameters = new LinkedHashMap<>();
+        for (int i = 0; i < namesAndValues.length; i += 2) {
+            parameters.put(namesAndValues[i], namesAndValues[i + 1]);
+        }
+        return parameters;
+    }
+}
@@ -0,0 +1,185 @@
+package candi.data.querybind;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CoalescingTest {
+
+    private static EntityManagerFactory emf;
+    private static QueryBindService service;
+    private static Recorder recorder;
+
+    @QueryBind(entity = Book.class, coalesce = true)
+    static class Coalesced {}
+
+    @QueryBind(entity = Book.class)
+    static class Separate {}
+
+    /**
+     * Records where executions came from, and holds the first database run until
+     * the expected number of requests joined it, then optionally fails it.
+     */
+    static class Recorder implements QueryBindMetrics {
+
+        final List<Source> sources = Collections.synchronizedList(new ArrayList<>());
+        volatile CountDownLatch joined;
+        volatile RuntimeException failure;
+
+        @Override
+        public void execution(FilterPlan plan, Source source) {
+            sources.add(source);
+            CountDownLatch latch = joined;
+            if (latch == null) {
+                return;
+            }
+            if (source == Source.COALESCED) {
+                latch.countDown();
+            } else {
+                try {
+                    latch.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                if (failure != null) {
+                    throw failure;
+                }
+            }
+        }
+    }
+
+    @BeforeAll
+    static void createDatabase() {
+        emf = TestDatabase.create("coalescing");
+        TestDatabase.seed(emf, 20);
+        service = new QueryBindService(SharedEntityManagerCreator.createSharedEntityManager(emf),
+                new JpaTransactionManager(emf));
+        recorder = new Recorder();
+        service.setMetrics(recorder);
+    }
+
+    @AfterAll
+    static void closeDatabase() {
+        service.destroy();
+        emf.close();
+    }
+
+    @BeforeEach
+    void resetRecorder() {
+        recorder.sources.clear();
+        recorder.joined = null;
+        recorder.failure = null;
+    }
+
+    @AfterEach
+    void clearRequest() {
+        TestRequests.clear();
+    }
+
+    @Test
+    void sharesOneRunBetweenIdenticalConcurrentRequests() throws Exception {
+        recorder.joined = new CountDownLatch(3);
+
+        List<QueryBindResult<?>> results = executeConcurrently(Coalesced.class, 4, Map.of("genre", "NOVEL"));
+
+        assertThat(results).allSatisfy(result -> assertThat(result).isSameAs(results.get(0)));
+        assertThat(results.get(0).getTotalElements()).isEqualTo(6);
+        assertThat(recorder.sources).containsExactlyInAnyOrder(QueryBindMetrics.Source.DATABASE,
+                QueryBindMetrics.Source.COALESCED, QueryBindMetrics.Source.COALESCED,
+                QueryBindMetrics.Source.COALESCED);
+    }
+
+    @Test
+    void failsEveryJoinedRequestWhenTheSharedRunFails() throws Exception {
+        recorder.joined = new CountDownLatch(2);
+        recorder.failure = new IllegalStateException("metrics down");
+
+        List<Throwable> failures = new ArrayList<>();
+        for (Future<QueryBindResult<?>> future : submit(Coalesced.class, 3, Map.of("genre", "ESSAY"))) {
+            try {
+                future.get(10, TimeUnit.SECONDS);
+            } catch (ExecutionException e) {
+                failures.add(e.getCause());
+            }
+        }
+
+        assertThat(failures).hasSize(3).allSatisfy(failure -> assertThat(failure).isSameAs(recorder.failure));
+        recorder.joined = null;
+        recorder.failure = null;
+        TestRequests.get(Map.of("genre", "ESSAY"));
+        assertThat(service.execute(Coalesced.class).getTotalElements()).isEqualTo(7);
+    }
+
+    @Test
+    void runsAgainOnceTheSharedRunFinished() {
+        TestRequests.get(Map.of("genre", "NOVEL"));
+        QueryBindResult<?> first = service.execute(Coalesced.class);
+        QueryBindResult<?> second = service.execute(Coalesced.class);
+
+        assertThat(second).isNotSameAs(first);
+        assertThat(recorder.sources).containsOnly(QueryBindMetrics.Source.DATABASE);
+    }
+
+    @Test
+    void neverSharesBetweenDifferentRequests() throws Exception {
+        List<QueryBindResult<?>> results = new ArrayList<>();
+        results.addAll(executeConcurrently(Coalesced.class, 2, Map.of("genre", "NOVEL")));
+        results.addAll(executeConcurrently(Coalesced.class, 2, Map.of("genre", "POETRY")));
+        results.addAll(executeConcurrently(Separate.class, 2, Map.of("genre", "NOVEL")));
+
+        assertThat(results.get(2)).isNotSameAs(results.get(0));
+        assertThat(results.get(2).getTotalElements()).isEqualTo(7);
+        assertThat(results.get(4)).isNotSameAs(results.get(5));
+    }
+
+    private static List<QueryBindResult<?>> executeConcurrently(Class<?> pageClass, int requests,
+                                                                 Map<String, String> parameters) throws Exception {
+        List<QueryBindResult<?>> results = new ArrayList<>();
+        for (Future<QueryBindResult<?>> future : submit(pageClass, requests, parameters)) {
+            results.add(future.get(10, TimeUnit.SECONDS));
+        }
+        return results;
+    }
+
+    /**
+     * Start the same request on several threads at once.
+     */
+    private static List<Future<QueryBindResult<?>>> submit(Class<?> pageClass, int requests,
+                                                          Map<String, String> parameters) {
+        ExecutorService executor = Executors.newFixedThreadPool(requests);
+        try {
+            List<Future<QueryBindResult<?>>> futures = new ArrayList<>();
+            for (int i = 0; i < requests; i++) {
+                futures.add(executor.submit(() -> {
+                    TestRequests.get(parameters);
+                    try {
+                        return service.execute(pageClass);
+                    } finally {
+                        TestRequests.clear();
+                    }
+                }));
+            }
+            return futures;
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
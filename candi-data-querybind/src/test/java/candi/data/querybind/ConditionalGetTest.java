@@ -0,0 +1,160 @@
+package candi.data.querybind;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConditionalGetTest {
+
+    private static final OffsetDateTime SEEDED = OffsetDateTime.of(2024, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+
+    private static EntityManagerFactory emf;
+    private static EntityManager entityManager;
+    private static TransactionTemplate transaction;
+    private static QueryBindService service;
+
+    @QueryBind(entity = Book.class, etag = "updatedAt")
+    static class Books {}
+
+    @QueryBind(entity = Book.class, name = "books", etag = "updatedAt")
+    @QueryBind(entity = Book.class, name = "dated", etag = "publishedOn")
+    @QueryBind(entity = Book.class, name = "versioned", etag = "releaseYear")
+    static class Named {}
+
+    @BeforeAll
+    static void createDatabase() {
+        emf = TestDatabase.create("conditional-get");
+        TestDatabase.seed(emf, 20);
+        entityManager = SharedEntityManagerCreator.createSharedEntityManager(emf);
+        JpaTransactionManager transactionManager = new JpaTransactionManager(emf);
+        transaction = new TransactionTemplate(transactionManager);
+        service = new QueryBindService(entityManager, transactionManager);
+    }
+
+    @AfterAll
+    static void closeDatabase() {
+        service.destroy();
+        emf.close();
+    }
+
+    @AfterEach
+    void clearRequest() {
+        TestRequests.clear();
+    }
+
+    @Test
+    void keepsTheValidatorWhileNothingChanges() {
+        QueryBindService.Validator first = validator(Books.class, List.of(""), Map.of("genre", "NOVEL"));
+        QueryBindService.Validator second = validator(Books.class, List.of(""), Map.of("genre", "NOVEL"));
+
+        assertThat(second).isEqualTo(first);
+        assertThat(first.etag()).startsWith("W/\"").endsWith("\"");
+    }
+
+    @Test
+    void tagsEveryRequestSeparately() {
+        String novels = validator(Books.class, List.of(""), Map.of("genre", "NOVEL")).etag();
+
+        assertThat(validator(Books.class, List.of(""), Map.of("genre", "POETRY")).etag()).isNotEqualTo(novels);
+        assertThat(validator(Books.class, List.of(""), Map.of("genre", "NOVEL", "page", "1")).etag())
+                .isNotEqualTo(novels);
+        assertThat(validator(Books.class, List.of(""), Map.of("genre", "NOVEL", "sort", "title")).etag())
+                .isNotEqualTo(novels);
+    }
+
+    @Test
+    void takesLastModifiedFromTheMatchingRows() {
+        assertThat(validator(Books.class, List.of(""), Map.of()).lastModified())
+                .isEqualTo(SEEDED.plusHours(20).toInstant().toEpochMilli());
+        assertThat(validator(Books.class, List.of(""), Map.of("genre", "NOVEL")).lastModified())
+                .isEqualTo(SEEDED.plusHours(18).toInstant().toEpochMilli());
+        assertThat(validator(Named.class, List.of("dated"), Map.of()).lastModified())
+                .isEqualTo(LocalDate.of(2024, 1, 21).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli());
+    }
+
+    @Test
+    void leavesLastModifiedOutWithoutATimestamp() {
+        assertThat(validator(Books.class, List.of(""), Map.of("title", "nothing")).lastModified()).isEqualTo(-1);
+        assertThat(validator(Named.class, List.of("versioned"), Map.of()).lastModified()).isEqualTo(-1);
+        assertThat(validator(Named.class, List.of("books", "versioned"), Map.of()).lastModified()).isEqualTo(-1);
+    }
+
+    @Test
+    void takesTheLatestOfSeveralBindings() {
+        assertThat(validator(Named.class, List.of("books", "dated"), Map.of()).lastModified())
+                .isEqualTo(LocalDate.of(2024, 1, 21).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli());
+    }
+
+    @Test
+    void changesWhenARowIsUpdated() {
+        String before = validator(Books.class, List.of(""), Map.of()).etag();
+
+        setUpdatedAt(5, SEEDED.plusYears(1));
+        try {
+            QueryBindService.Validator after = validator(Books.class, List.of(""), Map.of());
+
+            assertThat(after.etag()).isNotEqualTo(before);
+            assertThat(after.lastModified()).isEqualTo(SEEDED.plusYears(1).toInstant().toEpochMilli());
+        } finally {
+            setUpdatedAt(5, SEEDED.plusHours(5));
+        }
+        assertThat(validator(Books.class, List.of(""), Map.of()).etag()).isEqualTo(before);
+    }
+
+    @Test
+    void changesWhenARowIsDeletedWithoutTouchingTheLatest() {
+        QueryBindService.Validator before = validator(Books.class, List.of(""), Map.of());
+        Book deleted = new Book("Deleted", Book.Genre.ESSAY, null, 2000, null, SEEDED, null);
+        transaction.executeWithoutResult(status -> entityManager.persist(deleted));
+        QueryBindService.Validator withRow = validator(Books.class, List.of(""), Map.of());
+
+        transaction.executeWithoutResult(status ->
+                entityManager.remove(entityManager.find(Book.class, deleted.getId())));
+
+        assertThat(withRow.lastModified()).isEqualTo(before.lastModified());
+        assertThat(withRow.etag()).isNotEqualTo(before.etag());
+        assertThat(validator(Books.class, List.of(""), Map.of()).etag()).isEqualTo(before.etag());
+    }
+
+    @Test
+    void changesAfterARestart() {
+        String before = validator(Books.class, List.of(""), Map.of()).etag();
+        QueryBindService restarted = new QueryBindService(entityManager, new JpaTransactionManager(emf));
+        try {
+            TestRequests.get(Map.of());
+
+            assertThat(restarted.validator(Books.class, List.of("")).etag()).isNotEqualTo(before);
+        } finally {
+            restarted.destroy();
+        }
+    }
+
+    private static QueryBindService.Validator validator(Class<?> pageClass, List<String> bindings,
+                                                        Map<String, String> parameters) {
+        TestRequests.get(parameters);
+        return service.validator(pageClass, bindings);
+    }
+
+    private static void setUpdatedAt(long id, OffsetDateTime updatedAt) {
+        transaction.executeWithoutResult(status -> entityManager
+                .createQuery("update Book b set b.updatedAt = :updatedAt where b.id = :id")
+                .setParameter("updatedAt", updatedAt)
+                .setParameter("id", id)
+                .executeUpdate());
+    }
+}
@@ -0,0 +1,140 @@
+package candi.data.querybind;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CountStrategyTest {
+
+    private static final QueryStub stub = new QueryStub();
+    private static EntityManagerFactory emf;
+    private static EntityManager entityManager;
+    private static TransactionTemplate transaction;
+    private static QueryBindService service;
+
+    @QueryBind(entity = Book.class, defaultPageSize = 5)
+    static class Exact {}
+
+    @QueryBind(entity = Book.class, defaultPageSize = 5, countStrategy = CountStrategy.CAPPED, countCap = 10)
+    static class Capped {}
+
+    @QueryBind(entity = Book.class, defaultPageSize = 5, countStrategy = CountStrategy.NONE)
+    static class Uncounted {}
+
+    @QueryBind(entity = Book.class, defaultPageSize = 5, countStrategy = CountStrategy.CACHED)
+    static class Cached {}
+
+    @BeforeAll
+    static void createDatabase() {
+        emf = TestDatabase.create("counts");
+        TestDatabase.seed(emf, 30);
+        entityManager = SharedEntityManagerCreator.createSharedEntityManager(emf);
+        JpaTransactionManager transactionManager = new JpaTransactionManager(emf);
+        transaction = new TransactionTemplate(transactionManager);
+        service = new QueryBindService(stub.wrap(entityManager), transactionManager);
+    }
+
+    @AfterAll
+    static void closeDatabase() {
+        service.destroy();
+        emf.close();
+    }
+
+    @AfterEach
+    void clearRequest() {
+        TestRequests.clear();
+        stub.reset();
+    }
+
+    @Test
+    void countsExactly() {
+        QueryBindResult<Book> result = execute(Exact.class, Map.of("genre", "NOVEL"));
+
+        assertThat(result.getTotalElements()).isEqualTo(10);
+        assertThat(result.getTotalKind()).isEqualTo(TotalKind.EXACT);
+        assertThat(result.getTotalPages()).isEqualTo(2);
+    }
+
+    @Test
+    void capsLargeCounts() {
+        QueryBindResult<Book> result = execute(Capped.class, Map.of());
+
+        assertThat(result.getTotalElements()).isEqualTo(10);
+        assertThat(result.getTotalKind()).isEqualTo(TotalKind.CAPPED);
+        assertThat(result.getContent()).hasSize(5);
+    }
+
+    @Test
+    void countsExactlyBelowTheCap() {
+        QueryBindResult<Book> atCap = execute(Capped.class, Map.of("genre", "NOVEL"));
+        QueryBindResult<Book> belowCap = execute(Capped.class, Map.of("genre", "NOVEL", "minPrice", "4"));
+
+        assertThat(atCap.getTotalElements()).isEqualTo(10);
+        assertThat(atCap.getTotalKind()).isEqualTo(TotalKind.EXACT);
+        assertThat(belowCap.getTotalElements()).isEqualTo(5);
+        assertThat(belowCap.getTotalKind()).isEqualTo(TotalKind.EXACT);
+    }
+
+    @Test
+    void skipsCountingButKnowsWhetherMoreFollow() {
+        QueryBindResult<Book> first = execute(Uncounted.class, Map.of());
+        QueryBindResult<Book> last = execute(Uncounted.class, Map.of("page", "5"));
+
+        assertThat(first.getTotalKind()).isEqualTo(TotalKind.UNKNOWN);
+        assertThat(first.hasNext()).isTrue();
+        assertThat(last.getContent()).hasSize(5);
+        assertThat(last.hasNext()).isFalse();
+    }
+
+    @Test
+    void reusesCachedCountsForTheSameFilters() {
+        QueryBindResult<Book> first = execute(Cached.class, Map.of("genre", "NOVEL"));
+        QueryBindResult<Book> next = execute(Cached.class, Map.of("genre", "NOVEL", "page", "1", "sort", "title"));
+        QueryBindResult<Book> other = execute(Cached.class, Map.of("genre", "POETRY"));
+
+        assertThat(first.getTotalElements()).isEqualTo(10);
+        assertThat(first.getTotalKind()).isEqualTo(TotalKind.EXACT);
+        assertThat(next.getTotalElements()).isEqualTo(10);
+        assertThat(next.getTotalKind()).isEqualTo(TotalKind.EXACT);
+        assertThat(other.getTotalElements()).isEqualTo(10);
+        assertThat(counts()).isEqualTo(2);
+    }
+
+    @Test
+    void countsAgainAfterAnEntityChange() {
+        assertThat(execute(Cached.class, Map.of("genre", "ESSAY")).getTotalElements()).isEqualTo(10);
+
+        Book extra = new Book("Extra", Book.Genre.ESSAY, BigDecimal.ONE, 2001, null, null, null);
+        transaction.executeWithoutResult(status -> entityManager.persist(extra));
+        try {
+            assertThat(execute(Cached.class, Map.of("genre", "ESSAY")).getTotalElements()).isEqualTo(11);
+            assertThat(execute(Cached.class, Map.of("genre", "ESSAY")).getTotalElements()).isEqualTo(11);
+        } finally {
+            transaction.executeWithoutResult(status -> entityManager.remove(entityManager.find(Book.class,
+                    extra.getId())));
+        }
+        assertThat(execute(Cached.class, Map.of("genre", "ESSAY")).getTotalElements()).isEqualTo(10);
+        assertThat(counts()).isEqualTo(3);
+    }
+
+    private static int counts() {
+        return Collections.frequency(stub.executed(), Long.class);
+    }
+
+    private static QueryBindResult<Book> execute(Class<?> pageClass, Map<String, String> parameters) {
+        TestRequests.get(parameters);
+        return service.execute(pageClass);
+    }
+}
@@ -0,0 +1,87 @@
+package candi.data.querybind;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ExportWriterTest {
+
+    @Test
+    void quotesCsvFieldsThatNeedIt() {
+        String csv = write(ExportFormat.CSV, List.of("a", "b"),
+                new Object[]{"plain", "with, comma"},
+                new Object[]{"say \"hi\"", "two\nlines"},
+                new Object[]{null, "carriage\rreturn"},
+                new Object[]{Book.Genre.POETRY, ""});
+
+        assertThat(csv).isEqualTo("a,b\r\n"
+                + "plain,\"with, comma\"\r\n"
+                + "\"say \"\"hi\"\"\",\"two\nlines\"\r\n"
+                + ",\"carriage\rreturn\"\r\n"
+                + "POETRY,\r\n");
+    }
+
+    @Test
+    void defusesCsvFormulas() {
+        String csv = write(ExportFormat.CSV, List.of("value"),
+                new Object[]{"=HYPERLINK(\"http://evil\")"},
+                new Object[]{"+1"},
+                new Object[]{"-2+3"},
+                new Object[]{"@SUM(A1)"},
+                new Object[]{"\t=1"},
+                new Object[]{"\r=1"},
+                new Object[]{"a=b"});
+
+        assertThat(csv.split("\r\n", -1)).containsExactly("value",
+                "\"'=HYPERLINK(\"\"http://evil\"\")\"",
+                "'+1",
+                "'-2+3",
+                "'@SUM(A1)",
+                "'\t=1",
+                "\"'\r=1\"",
+                "a=b",
+                "");
+    }
+
+    @Test
+    void leavesNegativeNumbersAlone() {
+        String csv = write(ExportFormat.CSV, List.of("amount", "count"), new Object[]{new BigDecimal("-4.50"), -3});
+
+        assertThat(csv).isEqualTo("amount,count\r\n-4.50,-3\r\n");
+    }
+
+    @Test
+    void escapesNdjsonStrings() {
+        String ndjson = write(ExportFormat.NDJSON, List.of("text", "control"),
+                new Object[]{"quote \" backslash \\ tab\t", "\n\r\u0001"});
+
+        assertThat(ndjson).isEqualTo(
+                "{\"text\":\"quote \\\" backslash \\\\ tab\\t\",\"control\":\"\\n\\r\\u0001\"}\n");
+    }
+
+    @Test
+    void writesNdjsonScalarsUnquoted() {
+        String ndjson = write(ExportFormat.NDJSON, List.of("n", "d", "nan", "b", "nil", "e"),
+                new Object[]{42L, new BigDecimal("1.50"), Double.NaN, true, null, Book.Genre.ESSAY},
+                new Object[]{-1, 0.25, Double.POSITIVE_INFINITY, false, null, "=1"});
+
+        assertThat(ndjson.split("\n")).containsExactly(
+                "{\"n\":42,\"d\":1.50,\"nan\":\"NaN\",\"b\":true,\"nil\":null,\"e\":\"ESSAY\"}",
+                "{\"n\":-1,\"d\":0.25,\"nan\":\"Infinity\",\"b\":false,\"nil\":null,\"e\":\"=1\"}");
+    }
+
+    private static String write(ExportFormat format, List<String> columns, Object[]... rows) {
+        StringWriter out = new StringWriter();
+        ExportWriter writer = ExportWriter.create(format, out, columns);
+        writer.begin();
+        for (Object[] row : rows) {
+            writer.row(row);
+        }
+        writer.flush();
+        return out.toString();
+    }
+}
@@ -0,0 +1,101 @@
+package candi.data.querybind;
+
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Tuple;
+import org.hibernate.Hibernate;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @QueryBind(fetch): the page is selected as ids, then its entities are loaded
+ * with the fetched associations in one more query and put back in page order.
+ */
+class FetchGraphTest {
+
+    private static EntityManagerFactory emf;
+    private static Statistics statistics;
+    private final QueryStub stub = new QueryStub();
+    private QueryBindService service;
+
+    @QueryBind(entity = Book.class, fetch = "publisher", defaultSort = "title", defaultDirection = "desc",
+            defaultPageSize = 5)
+    static class Fetched {}
+
+    @QueryBind(entity = Book.class, defaultSort = "title", defaultDirection = "desc", defaultPageSize = 5)
+    static class Plain {}
+
+    @BeforeAll
+    static void createDatabase() {
+        emf = TestDatabase.create("fetch-graph");
+        TestDatabase.seed(emf, 30);
+        statistics = emf.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+    }
+
+    @AfterAll
+    static void closeDatabase() {
+        emf.close();
+    }
+
+    @BeforeEach
+    void createService() {
+        service = new QueryBindService(stub.wrap(SharedEntityManagerCreator.createSharedEntityManager(emf)),
+                new JpaTransactionManager(emf));
+    }
+
+    @AfterEach
+    void destroyService() {
+        service.destroy();
+        TestRequests.clear();
+    }
+
+    @Test
+    void loadsThePageWithItsAssociationsInOneMoreQuery() {
+        statistics.clear();
+
+        QueryBindResult<Book> result = execute(Fetched.class, Map.of("page", "1"));
+
+        assertThat(stub.executed()).containsExactly(Tuple.class, Book.class, Long.class);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+        assertThat(result.getContent()).hasSize(5)
+                .allSatisfy(book -> assertThat(Hibernate.isInitialized(book.getPublisher())).isTrue());
+        assertThat(result.getContent()).extracting(book -> book.getPublisher().getName())
+                .containsOnly("Acme", "Globex");
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+    }
+
+    @Test
+    void keepsThePageOrder() {
+        for (String page : List.of("0", "1", "4")) {
+            Map<String, String> request = Map.of("page", page, "minPrice", "2");
+
+            List<Long> fetched = ids(execute(Fetched.class, request));
+            List<Long> plain = ids(execute(Plain.class, request));
+
+            assertThat(fetched).as("page %s", page).isNotEmpty().containsExactlyElementsOf(plain);
+        }
+        assertThat(ids(execute(Fetched.class, Map.of("page", "1"))))
+                .containsExactly(4L, 30L, 3L, 29L, 28L);
+    }
+
+    private QueryBindResult<Book> execute(Class<?> pageClass, Map<String, String> parameters) {
+        TestRequests.get(parameters);
+        return service.execute(pageClass);
+    }
+
+    private static List<Long> ids(QueryBindResult<Book> result) {
+        return result.getContent().stream().map(Book::getId).toList();
+    }
+}
@@ -0,0 +1,198 @@
+package candi.data.querybind;
+
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.metamodel.Metamodel;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FilterPlanTest {
+
+    private static EntityManagerFactory emf;
+    private static Metamodel metamodel;
+
+    @BeforeAll
+    static void createDatabase() {
+        emf = TestDatabase.create("filter-plan");
+        metamodel = emf.getMetamodel();
+    }
+
+    @AfterAll
+    static void closeDatabase() {
+        emf.close();
+    }
+
+    @QueryBind(entity = Book.class)
+    static class Entities {}
+
+    @QueryBind(entity = Book.class, columns = {"id", "title", "publisher.name"})
+    static class Columns {}
+
+    record Row(Long id, String title) {}
+
+    @QueryBind(entity = Book.class, projection = Row.class)
+    static class Projected {}
+
+    @QueryBind(entity = Book.class, projection = Row.class, columns = {"id"})
+    static class WrongArity {}
+
+    @QueryBind(entity = Book.class, name = "books")
+    @QueryBind(entity = Publisher.class, name = "publishers")
+    static class Named {}
+
+    static class NotBound {}
+
+    @QueryBind(entity = String.class)
+    static class NotAnEntity {}
+
+    @QueryBind(entity = Book.class, indexedOnly = true)
+    static class IndexedOnly {}
+
+    @QueryBind(entity = Book.class, columns = "id", fetch = "publisher")
+    static class FetchWithColumns {}
+
+    @QueryBind(entity = Book.class, source = QuerySource.IN_MEMORY, pagination = Pagination.KEYSET)
+    static class InMemoryKeyset {}
+
+    @QueryBind(entity = Book.class, source = QuerySource.IN_MEMORY)
+    static class InMemoryEntities {}
+
+    @QueryBind(entity = Book.class, prefetch = true, lazy = true)
+    static class PrefetchLazy {}
+
+    @QueryBind(entity = Book.class, json = true)
+    static class JsonEntities {}
+
+    @Test
+    void compilesFiltersByParameterName() {
+        FilterPlan plan = FilterPlan.compile(Entities.class, "", metamodel);
+
+        assertThat(plan.entityClass()).isEqualTo(Book.class);
+        assertThat(plan.idName()).isEqualTo("id");
+        assertThat(plan.rowShape()).isEqualTo(FilterPlan.RowShape.ENTITY);
+        assertThat(plan.filters()).extracting(FilterPlan.FieldFilter::paramName)
+                .containsExactly("title", "titleStarts", "genre", "minPrice", "years", "published");
+        assertThat(plan.filter("minPrice").fieldName()).isEqualTo("price");
+        assertThat(plan.filter("minPrice").convert("12.50")).isEqualTo(new BigDecimal("12.50"));
+        assertThat(plan.filter("genre").convert("poetry")).isEqualTo(Book.Genre.POETRY);
+        assertThat(plan.filter("price")).isNull();
+    }
+
+    @Test
+    void exportsBasicAttributesWhenNoColumnsAreListed() {
+        FilterPlan plan = FilterPlan.compile(Entities.class, "", metamodel);
+
+        assertThat(plan.exportColumns())
+                .containsExactly("id", "title", "titleNormalized", "genre", "price", "releaseYear", "publishedOn",
+                        "updatedAt");
+    }
+
+    @Test
+    void selectsColumnsAsMaps() {
+        FilterPlan plan = FilterPlan.compile(Columns.class, "", metamodel);
+
+        assertThat(plan.rowShape()).isEqualTo(FilterPlan.RowShape.COLUMNS);
+        assertThat(plan.columnPaths()).containsExactly(
+                new String[]{"id"}, new String[]{"title"}, new String[]{"publisher", "name"});
+    }
+
+    @Test
+    void takesProjectionColumnsFromRecordComponents() {
+        FilterPlan plan = FilterPlan.compile(Projected.class, "", metamodel);
+
+        assertThat(plan.rowShape()).isEqualTo(FilterPlan.RowShape.PROJECTION);
+        assertThat(plan.columns()).containsExactly("id", "title");
+        assertThat(plan.newProjection(new Object[]{7L, "Seven"})).isEqualTo(new Row(7L, "Seven"));
+    }
+
+    @Test
+    void selectsNamedBindings() {
+        assertThat(FilterPlan.compile(Named.class, "publishers", metamodel).entityClass())
+                .isEqualTo(Publisher.class);
+        assertThat(FilterPlan.compile(Named.class, "books", metamodel).parameter("page"))
+                .isEqualTo("books.page");
+        assertThatThrownBy(() -> FilterPlan.compile(Named.class, "authors", metamodel))
+                .isInstanceOf(QueryBindException.class)
+                .hasMessageContaining("has no @QueryBind named 'authors'");
+    }
+
+    @Test
+    void rejectsInvalidBindings() {
+        assertThatThrownBy(() -> FilterPlan.compile(NotBound.class, "", metamodel))
+                .isInstanceOf(QueryBindException.class)
+                .hasMessageContaining("is not annotated with @QueryBind");
+        assertThatThrownBy(() -> FilterPlan.compile(NotAnEntity.class, "", metamodel))
+                .isInstanceOf(QueryBindException.class)
+                .hasMessageContaining("is not a managed JPA entity");
+        assertThatThrownBy(() -> FilterPlan.compile(WrongArity.class, "", metamodel))
+                .isInstanceOf(QueryBindException.class)
+                .hasMessageContaining("has no constructor taking 1 arguments");
+        assertThatThrownBy(() -> FilterPlan.compile(IndexedOnly.class, "", metamodel))
+                .isInstanceOf(QueryBindException.class)
+                .hasMessageContaining("refuses the LIKE filter on Book.title");
+        assertThatThrownBy(() -> FilterPlan.compile(FetchWithColumns.class, "", metamodel))
+                .isInstanceOf(QueryBindException.class)
+                .hasMessageContaining("cannot be combined with projection or columns");
+        assertThatThrownBy(() -> FilterPlan.compile(InMemoryKeyset.class, "", metamodel))
+                .isInstanceOf(QueryBindException.class)
+                .hasMessageContaining("requires OFFSET pagination");
+        assertThatThrownBy(() -> FilterPlan.compile(InMemoryEntities.class, "", metamodel))
+                .isInstanceOf(QueryBindException.class)
+                .hasMessageContaining("IN_MEMORY on " + InMemoryEntities.class.getName()
+                        + " requires a projection or columns");
+        assertThatThrownBy(() -> FilterPlan.compile(PrefetchLazy.class, "", metamodel))
+                .isInstanceOf(QueryBindException.class)
+                .hasMessageContaining("cannot be combined with lazy");
+        assertThatThrownBy(() -> FilterPlan.compile(JsonEntities.class, "", metamodel))
+                .isInstanceOf(QueryBindException.class)
+                .hasMessageContaining("json on " + JsonEntities.class.getName() + " requires a projection or columns");
+    }
+
+    @Test
+    void describesShapesWithoutValues() {
+        FilterPlan plan = FilterPlan.compile(Entities.class, "", metamodel);
+        BoundFilter genre = BoundFilter.bind(plan.filter("genre"), "NOVEL");
+        BoundFilter years = BoundFilter.bind(plan.filter("years"), "2001,2002,2003");
+        BoundQuery bound = new BoundQuery(plan, 0, 20, "id", "asc", "tale", null, null,
+                List.of(genre, years), Map.of(), null);
+
+        BoundQuery indexed = new BoundQuery(plan, 0, 20, "id", "asc", "tale", null, List.of(1L, 2L),
+                List.of(genre, years), Map.of(), null);
+        BoundFilter cheap = BoundFilter.bind(plan.filter("minPrice"), "5");
+        BoundQuery unsearched = new BoundQuery(plan, 0, 20, "id", "asc", null, null, null,
+                List.of(cheap), Map.of(), null);
+
+        assertThat(plan.describeShape(bound.shape())).isEqualTo("search,genre:equal,years:in4");
+        assertThat(plan.describeShape(indexed.shape())).isEqualTo("search:index,genre:equal,years:in4");
+        assertThat(plan.describeShape(unsearched.shape())).isEqualTo("minPrice:greater_than");
+        assertThat(plan.describeShape(List.of(false))).isEqualTo("none");
+    }
+
+    @Test
+    void bindsStartsWithAsAFoldedLiteralPrefix() {
+        FilterPlan plan = FilterPlan.compile(Entities.class, "", metamodel);
+
+        BoundFilter prefix = BoundFilter.bind(plan.filter("titleStarts"), "Élan 50%_off\\");
+
+        assertThat(plan.filter("titleStarts").normalized()).isTrue();
+        assertThat(prefix.form()).isEqualTo(BoundFilter.Form.STARTS_WITH);
+        assertThat(prefix.values()).containsExactly("elan 50\\%\\_off\\\\%");
+    }
+
+    @Test
+    void convertsParameterValuesToFieldTypes() {
+        assertThat(FilterPlan.converterFor(int.class).apply("42")).isEqualTo(42);
+        assertThat(FilterPlan.converterFor(Long.class).apply("42")).isEqualTo(42L);
+        assertThat(FilterPlan.converterFor(LocalDate.class).apply("2024-02-29"))
+                .isEqualTo(LocalDate.of(2024, 2, 29));
+        assertThat(FilterPlan.converterFor(String.class).apply("as is")).isEqualTo("as is");
+    }
+}
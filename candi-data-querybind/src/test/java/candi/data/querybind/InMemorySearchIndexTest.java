@@ -0,0 +1,149 @@
+package candi.data.querybind;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InMemorySearchIndexTest {
+
+    private static final List<String> TITLE = List.of("title");
+
+    private final InMemorySearchIndex index = new InMemorySearchIndex();
+
+    @Test
+    void splitsTextIntoFoldedWords() {
+        assertThat(InMemorySearchIndex.words("Crème Brûlée, 2nd-EDITION!")).containsExactly("creme", "brulee", "2nd",
+                "edition");
+        assertThat(InMemorySearchIndex.words(" ,; ")).isEmpty();
+        assertThat(InMemorySearchIndex.words(null)).isEmpty();
+    }
+
+    @Test
+    void matchesEveryWordAsAPrefix() {
+        load(Map.of(1L, "The Old Man and the Sea", 2L, "Old Times", 3L, "Oliver Twist"));
+
+        assertThat(index.search(Book.class, TITLE, "ol", 10)).containsExactlyInAnyOrder(1L, 2L, 3L);
+        assertThat(index.search(Book.class, TITLE, "old sea", 10)).containsExactly(1L);
+        assertThat(index.search(Book.class, TITLE, "OLD tim", 10)).containsExactly(2L);
+        assertThat(index.search(Book.class, TITLE, "old river", 10)).isEmpty();
+    }
+
+    @Test
+    void searchesOnlyTheGivenFields() {
+        SearchIndex.Loader loader = index.rebuild(Book.class);
+        loader.add(1L, Map.of("title", "Dune", "publisher.name", "Chilton"));
+        loader.add(2L, Map.of("title", "Chilton Manual", "publisher.name", "Haynes"));
+        loader.commit();
+
+        assertThat(index.search(Book.class, TITLE, "chilton", 10)).containsExactly(2L);
+        assertThat(index.search(Book.class, List.of("title", "publisher.name"), "chilton", 10))
+                .containsExactlyInAnyOrder(1L, 2L);
+    }
+
+    @Test
+    void cannotAnswerWithoutAnIndexWordsOrWithTooManyMatches() {
+        assertThat(index.search(Book.class, TITLE, "old", 10)).isNull();
+
+        load(Map.of(1L, "Old", 2L, "Older", 3L, "Oldest"));
+
+        assertThat(index.search(Book.class, TITLE, "--", 10)).isNull();
+        assertThat(index.search(Book.class, TITLE, "old", 2)).isNull();
+        assertThat(index.search(Publisher.class, TITLE, "old", 10)).isNull();
+    }
+
+    @Test
+    void replacesAndRemovesDocuments() {
+        load(Map.of(1L, "Old Title", 2L, "Other"));
+
+        index.put(Book.class, 1L, Map.of("title", "New Title"));
+        index.remove(Book.class, 2L);
+
+        assertThat(index.search(Book.class, TITLE, "old", 10)).isEmpty();
+        assertThat(index.search(Book.class, TITLE, "new", 10)).containsExactly(1L);
+        assertThat(index.search(Book.class, TITLE, "other", 10)).isEmpty();
+        assertThat(index.size(Book.class)).isEqualTo(1);
+    }
+
+    @Test
+    void keepsServingTheOldIndexUntilTheRebuildCommits() {
+        load(Map.of(1L, "Before"));
+
+        SearchIndex.Loader loader = index.rebuild(Book.class);
+        loader.add(1L, Map.of("title", "After"));
+
+        assertThat(index.search(Book.class, TITLE, "before", 10)).containsExactly(1L);
+        loader.commit();
+        assertThat(index.search(Book.class, TITLE, "before", 10)).isEmpty();
+        assertThat(index.search(Book.class, TITLE, "after", 10)).containsExactly(1L);
+    }
+
+    @Test
+    void keepsChangesMadeWhileARebuildLoads() {
+        load(Map.of(1L, "First", 2L, "Second"));
+
+        SearchIndex.Loader loader = index.rebuild(Book.class);
+        // The rebuild read rows 1 and 2 before they changed, and row 3 before it existed
+        index.put(Book.class, 1L, Map.of("title", "First Revised"));
+        index.remove(Book.class, 2L);
+        index.put(Book.class, 3L, Map.of("title", "Third"));
+        loader.add(1L, Map.of("title", "First"));
+        loader.add(2L, Map.of("title", "Second"));
+
+        assertThat(index.search(Book.class, TITLE, "revised", 10)).containsExactly(1L);
+        loader.commit();
+
+        assertThat(index.search(Book.class, TITLE, "revised", 10)).containsExactly(1L);
+        assertThat(index.search(Book.class, TITLE, "second", 10)).isEmpty();
+        assertThat(index.search(Book.class, TITLE, "third", 10)).containsExactly(3L);
+    }
+
+    @Test
+    void keepsChangesMadeWhileTheFirstBuildLoads() {
+        SearchIndex.Loader loader = index.rebuild(Book.class);
+        index.put(Book.class, 7L, Map.of("title", "Written During Startup"));
+        loader.add(1L, Map.of("title", "Existing"));
+        loader.commit();
+
+        assertThat(index.search(Book.class, TITLE, "startup", 10)).containsExactly(7L);
+        assertThat(index.size(Book.class)).isEqualTo(2);
+    }
+
+    @Test
+    void keepsTheOldIndexWhenARebuildAborts() {
+        load(Map.of(1L, "Kept"));
+
+        SearchIndex.Loader loader = index.rebuild(Book.class);
+        loader.add(2L, Map.of("title", "Partial"));
+        loader.abort();
+        index.put(Book.class, 3L, Map.of("title", "Later"));
+
+        assertThat(index.search(Book.class, TITLE, "kept later", 10)).isEmpty();
+        assertThat(index.search(Book.class, TITLE, "partial", 10)).isEmpty();
+        assertThat(index.search(Book.class, TITLE, "later", 10)).containsExactly(3L);
+        assertThat(index.size(Book.class)).isEqualTo(2);
+    }
+
+    @Test
+    void indexesDocumentsWithMissingValues() {
+        SearchIndex.Loader loader = index.rebuild(Book.class);
+        loader.commit();
+        Map<String, String> fields = new HashMap<>();
+        fields.put("title", "Orphan");
+        fields.put("publisher.name", null);
+
+        index.put(Book.class, 1L, fields);
+
+        assertThat(index.search(Book.class, TITLE, "orphan", 10)).isEqualTo(Set.of(1L));
+    }
+
+    private void load(Map<Long, String> titles) {
+        SearchIndex.Loader loader = index.rebuild(Book.class);
+        titles.forEach((id, title) -> loader.add(id, Map.of("title", title)));
+        loader.commit();
+    }
+}
@@ -0,0 +1,266 @@
+package candi.data.querybind;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * IN_MEMORY bindings answer every request like the same binding on the database.
+ */
+class InMemoryTableTest {
+
+    private static EntityManagerFactory emf;
+    private static QueryBindService service;
+
+    record Row(Long id, String title, BigDecimal price) {}
+
+    @QueryBind(entity = Book.class, projection = Row.class, columns = {"id", "title", "price"},
+            searchFields = "title", facets = "genre", defaultPageSize = 100)
+    static class FromDatabase {}
+
+    @QueryBind(entity = Book.class, projection = Row.class, columns = {"id", "title", "price"},
+            searchFields = "title", facets = "genre", defaultPageSize = 100, source = QuerySource.IN_MEMORY)
+    static class FromMemory {}
+
+    @QueryBind(entity = Book.class, columns = {"id", "title", "publisher.name"}, defaultPageSize = 100,
+            source = QuerySource.IN_MEMORY)
+    static class WithPublisher {}
+
+    @BeforeAll
+    static void createDatabase() {
+        emf = TestDatabase.create("in-memory");
+        TestDatabase.seed(emf, 40);
+        inTransaction(em -> em.persist(new Book("Untitled", null, null, 2000, null, null, null)));
+        service = new QueryBindService(SharedEntityManagerCreator.createSharedEntityManager(emf),
+                new JpaTransactionManager(emf));
+    }
+
+    @AfterAll
+    static void closeDatabase() {
+        service.destroy();
+        emf.close();
+    }
+
+    @AfterEach
+    void clearRequest() {
+        TestRequests.clear();
+    }
+
+    @Test
+    void filtersLikeTheDatabase() {
+        List<Map<String, String>> requests = List.of(
+                Map.of(),
+                Map.of("genre", "POETRY"),
+                Map.of("genre", "nonsense"),
+                Map.of("years", "2001,2003"),
+                Map.of("minPrice", "6"),
+                Map.of("published", "2024-01-05,2024-01-20"),
+                Map.of("title", "ok 1"),
+                Map.of("title", "%"),
+                Map.of("title", "k_1"),
+                Map.of("search", "3%"),
+                Map.of("search", "book 3"),
+                Map.of("genre", "ESSAY", "minPrice", "2", "years", "2002,2004"),
+                Map.of("genre", "NOVEL", "published", "2024-02-01,2024-03-01"));
+
+        for (Map<String, String> request : requests) {
+            QueryBindResult<Row> database = execute(FromDatabase.class, request);
+            QueryBindResult<Row> memory = execute(FromMemory.class, request);
+
+            assertThat(ids(memory)).as("%s", request).containsExactlyInAnyOrderElementsOf(ids(database));
+            assertThat(memory.getTotalElements()).as("%s", request).isEqualTo(database.getTotalElements());
+            assertThat(memory.getFacets()).as("%s", request).isEqualTo(database.getFacets());
+        }
+    }
+
+    @Test
+    void sortsAndPagesLikeTheDatabase() {
+        for (String sort : List.of("id", "title", "publishedOn", "updatedAt")) {
+            for (String direction : List.of("asc", "desc")) {
+                for (String page : List.of("0", "1", "4")) {
+                    Map<String, String> request = Map.of("minPrice", "0", "sort", sort, "direction", direction,
+                            "size", "7", "page", page);
+
+                    assertThat(ids(execute(FromMemory.class, request))).as("%s", request)
+                            .containsExactlyElementsOf(ids(execute(FromDatabase.class, request)));
+                }
+            }
+        }
+    }
+
+    @Test
+    void breaksTiesInIdOrder() {
+        QueryBindResult<Row> result = execute(FromMemory.class, Map.of("sort", "price", "minPrice", "7"));
+
+        assertThat(result.getContent()).extracting(Row::price).isSorted();
+        assertThat(ids(result)).containsExactly(8L, 18L, 28L, 38L, 9L, 19L, 29L, 39L);
+    }
+
+    @Test
+    void sortsNullsLastAscendingAndFirstDescending() {
+        List<Long> ascending = ids(execute(FromMemory.class, Map.of("sort", "price")));
+        List<Long> descending = ids(execute(FromMemory.class, Map.of("sort", "price", "direction", "desc")));
+
+        assertThat(ascending).hasSize(41).endsWith(41L);
+        assertThat(descending).startsWith(41L);
+    }
+
+    @Test
+    void neverMatchesNullsInComparisons() {
+        assertThat(ids(execute(FromMemory.class, Map.of("minPrice", "-1")))).hasSize(40).doesNotContain(41L);
+        assertThat(execute(FromMemory.class, Map.of()).getFacets().get("genre"))
+                .containsEntry(null, 1L)
+                .containsEntry(Book.Genre.POETRY, 14L);
+    }
+
+    @Test
+    void keepsIdOrderForUnknownSorts() {
+        Map<String, String> request = Map.of("sort", "nonsense", "size", "5", "page", "2");
+
+        assertThat(ids(execute(FromMemory.class, request))).containsExactly(11L, 12L, 13L, 14L, 15L);
+    }
+
+    @Test
+    void matchesPrefixesLikeTheDatabase() throws InterruptedException {
+        Book special = new Book("Éclair 50%_off", Book.Genre.ESSAY, BigDecimal.ONE, 2001, null, null, null);
+        inTransaction(em -> em.persist(special));
+        try {
+            assertThat(awaitTotal(Map.of("titleStarts", "ECLA"), 1)).isEqualTo(1);
+            Map<String, Long> prefixes = new LinkedHashMap<>();
+            prefixes.put("book 1", 11L);
+            prefixes.put("BOOK 1", 11L);
+            prefixes.put("b", 40L);
+            prefixes.put("bo%", 0L);
+            prefixes.put("book_1", 0L);
+            prefixes.put("Éclair 50%_", 1L);
+            prefixes.put("eclair 50%", 1L);
+            prefixes.put("eclair 50_", 0L);
+            prefixes.put("UNTÎTLED", 1L);
+
+            prefixes.forEach((prefix, expected) -> {
+                Map<String, String> request = Map.of("titleStarts", prefix);
+                QueryBindResult<Row> database = execute(FromDatabase.class, request);
+                QueryBindResult<Row> memory = execute(FromMemory.class, request);
+
+                assertThat(database.getTotalElements()).as("%s", prefix).isEqualTo(expected);
+                assertThat(ids(memory)).as("%s", prefix).containsExactlyInAnyOrderElementsOf(ids(database));
+                assertThat(memory.getTotalElements()).as("%s", prefix).isEqualTo(expected);
+            });
+        } finally {
+            inTransaction(em -> em.remove(em.find(Book.class, special.getId())));
+        }
+        assertThat(awaitTotal(Map.of("titleStarts", "ECLA"), 0)).isZero();
+    }
+
+    @Test
+    void reloadsAfterACommittedChange() throws InterruptedException {
+        Map<String, String> request = Map.of("title", "Extra");
+        assertThat(execute(FromMemory.class, request).getTotalElements()).isZero();
+
+        Book extra = new Book("Extra", Book.Genre.ESSAY, BigDecimal.ONE, 2001, null, null, null);
+        inTransaction(em -> em.persist(extra));
+        try {
+            assertThat(awaitTotal(request, 1)).isEqualTo(1);
+        } finally {
+            inTransaction(em -> em.remove(em.find(Book.class, extra.getId())));
+        }
+        assertThat(awaitTotal(request, 0)).isZero();
+    }
+
+    @Test
+    void reloadsOncePerCommitWhateverItChanged() throws InterruptedException {
+        Map<String, String> request = Map.of("title", "Batch");
+        assertThat(execute(WithPublisher.class, request).getTotalElements()).isZero();
+        Statistics statistics = emf.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        statistics.setStatisticsEnabled(true);
+
+        List<Book> batch = new ArrayList<>();
+        inTransaction(em -> {
+            Publisher publisher = em.find(Publisher.class, 2L);
+            publisher.name = "Globex Press";
+            for (int i = 0; i < 10; i++) {
+                Book book = new Book("Batch " + i, Book.Genre.ESSAY, BigDecimal.ONE, 2001, null, null, publisher);
+                em.persist(book);
+                batch.add(book);
+            }
+        });
+        try {
+            assertThat(awaitTotal(WithPublisher.class, request, 10)).isEqualTo(10);
+            QueryBindResult<Map<String, Object>> rows = execute(WithPublisher.class, request);
+            assertThat(rows.getContent()).allSatisfy(row -> assertThat(row).containsEntry("publisher.name",
+                    "Globex Press"));
+            Thread.sleep(200);
+            // One reload of each table reading Book, however many rows and types the commit changed
+            assertThat(statistics.getQueries()).isNotEmpty().allSatisfy(query ->
+                    assertThat(statistics.getQueryStatistics(query).getExecutionCount()).as(query).isOne());
+        } finally {
+            statistics.setStatisticsEnabled(false);
+            inTransaction(em -> {
+                em.find(Publisher.class, 2L).name = "Globex";
+                for (Book book : batch) {
+                    em.remove(em.find(Book.class, book.getId()));
+                }
+            });
+        }
+        assertThat(awaitTotal(WithPublisher.class, request, 0)).isZero();
+    }
+
+    /**
+     * The total of a request once the table was reloaded in the background to
+     * show the expected total, or the last total after five seconds.
+     */
+    private static long awaitTotal(Map<String, String> request, long expected) throws InterruptedException {
+        return awaitTotal(FromMemory.class, request, expected);
+    }
+
+    private static long awaitTotal(Class<?> pageClass, Map<String, String> request, long expected)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        long total = execute(pageClass, request).getTotalElements();
+        while (total != expected && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            total = execute(pageClass, request).getTotalElements();
+        }
+        return total;
+    }
+
+    /**
+     * Run a write the way applications do, so that the change is published
+     * after the commit.
+     */
+    private static void inTransaction(Consumer<EntityManager> work) {
+        EntityManager em = SharedEntityManagerCreator.createSharedEntityManager(emf);
+        new TransactionTemplate(new JpaTransactionManager(emf)).executeWithoutResult(status -> work.accept(em));
+    }
+
+    private static <T> QueryBindResult<T> execute(Class<?> pageClass, Map<String, String> parameters) {
+        TestRequests.get(parameters);
+        return service.execute(pageClass);
+    }
+
+    private static List<Long> ids(QueryBindResult<Row> result) {
+        List<Long> ids = new ArrayList<>();
+        for (Row row : result.getContent()) {
+            ids.add(row.id());
+        }
+        return ids;
+    }
+}
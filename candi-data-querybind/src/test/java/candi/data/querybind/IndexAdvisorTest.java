@@ -0,0 +1,130 @@
+package candi.data.querybind;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import jakarta.persistence.metamodel.Metamodel;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.Configuration;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * IndexAdvisor judges columns by the indexes the entities declare: ids, unique
+ * columns and the leading columns of indexes and unique constraints, in the
+ * table of the entity at the end of an association path.
+ */
+class IndexAdvisorTest {
+
+    private static final String LIKE_TITLE = "filter 'title' matches '%value%', which no index serves;"
+            + " use STARTS_WITH or a @SearchNormalized column";
+    private static final String UNINDEXED_STATUS = "filter 'status' (EQUALS) has no index on status";
+
+    private static SessionFactory sessionFactory;
+    private static Metamodel metamodel;
+
+    @Entity
+    @Table(name = "advised_writer", indexes = @Index(columnList = "last_name, first_name"))
+    static class Writer {
+        @Id
+        Long id;
+        String firstName;
+        String lastName;
+        @Column(unique = true)
+        String email;
+    }
+
+    @Entity
+    @Table(name = "advised_article",
+            indexes = {@Index(columnList = "published_on DESC, status"), @Index(columnList = "CAT_REF")},
+            uniqueConstraints = @UniqueConstraint(columnNames = {"slug", "status"}))
+    static class Article {
+        @Id
+        @Filterable
+        Long id;
+
+        @Column(unique = true)
+        @Filterable
+        String code;
+
+        @Filterable(op = FilterOp.LIKE)
+        String title;
+
+        @Filterable(param = "published", op = FilterOp.BETWEEN)
+        LocalDate publishedOn;
+
+        @Filterable
+        String status;
+
+        @Filterable
+        String slug;
+
+        @Column(name = "cat_ref")
+        @Filterable
+        Long category;
+
+        @ManyToOne
+        Writer writer;
+    }
+
+    @QueryBind(entity = Article.class, defaultSort = "writer.lastName")
+    static class Articles {}
+
+    @QueryBind(entity = Article.class, defaultSort = "writer.firstName", searchFields = "title")
+    static class ByFirstName {}
+
+    @QueryBind(entity = Article.class, defaultSort = "writer.email", searchFields = "title",
+            searchMode = SearchMode.INDEX)
+    static class ByEmail {}
+
+    @QueryBind(entity = Article.class, defaultSort = "status", columns = {"id", "title"},
+            source = QuerySource.IN_MEMORY)
+    static class InMemory {}
+
+    @BeforeAll
+    static void buildMetamodel() {
+        Configuration configuration = new Configuration();
+        configuration.addAnnotatedClass(Writer.class).addAnnotatedClass(Article.class);
+        configuration.setProperty("hibernate.connection.url", TestDatabase.url("advisor"));
+        configuration.setProperty("hibernate.connection.username", "sa");
+        sessionFactory = configuration.buildSessionFactory();
+        metamodel = sessionFactory.getMetamodel();
+    }
+
+    @AfterAll
+    static void closeFactory() {
+        sessionFactory.close();
+    }
+
+    @Test
+    void acceptsIdsUniqueColumnsAndLeadingIndexColumns() {
+        assertThat(advise(Articles.class)).containsExactly(LIKE_TITLE, UNINDEXED_STATUS);
+    }
+
+    @Test
+    void followsAssociationsToTheirOwnTable() {
+        assertThat(advise(ByFirstName.class)).containsExactly(LIKE_TITLE, UNINDEXED_STATUS,
+                "searchFields [title] match '%term%', which no index serves; use searchMode = INDEX",
+                "defaultSort 'writer.firstName' has no index, so every page sorts all matching rows");
+        assertThat(advise(ByEmail.class)).containsExactly(LIKE_TITLE, UNINDEXED_STATUS);
+    }
+
+    @Test
+    void leavesInMemoryBindingsAlone() {
+        assertThat(advise(InMemory.class)).isEmpty();
+    }
+
+    private static List<String> advise(Class<?> pageClass) {
+        return IndexAdvisor.advise(FilterPlan.compile(pageClass, "", metamodel), metamodel);
+    }
+}
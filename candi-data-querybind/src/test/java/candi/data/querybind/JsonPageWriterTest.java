@@ -0,0 +1,60 @@
+package candi.data.querybind;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JsonPageWriterTest {
+
+    private final JsonPageWriter writer = new JsonPageWriter(new ObjectMapper());
+
+    record Row(Long id, String title) {}
+
+    @Test
+    void writesAnOffsetPageWithItsFacets() throws IOException {
+        Map<Object, Long> genres = new LinkedHashMap<>();
+        genres.put("NOVEL", 3L);
+        genres.put(null, 1L);
+        QueryBindResult<Row> result = new QueryBindResult<>(List.of(new Row(1L, "Día \"1\""), new Row(2L, null)),
+                1, 2, 5, 3, "title", "asc", Map.of()).withFacets(Map.of("genre", genres));
+
+        assertThat(write(result)).isEqualTo("{\"content\":[{\"id\":1,\"title\":\"Día \\\"1\\\"\"},"
+                + "{\"id\":2,\"title\":null}],\"size\":2,\"hasNext\":true,\"hasPrevious\":true,"
+                + "\"nextCursor\":null,\"previousCursor\":null,\"totalElements\":5,\"totalPages\":3,"
+                + "\"totalKind\":\"EXACT\",\"sort\":\"title\",\"direction\":\"asc\",\"page\":1,"
+                + "\"facets\":{\"genre\":[{\"value\":\"NOVEL\",\"count\":3},{\"value\":null,\"count\":1}]}}");
+    }
+
+    @Test
+    void writesTheCursorsOfAKeysetPageWithoutAPageNumber() throws IOException {
+        QueryBindResult<Map<String, Object>> result = new QueryBindResult<>(List.of(Map.of("id", 7)), 1, -1, -1,
+                TotalKind.UNKNOWN, "updatedAt", "desc", Map.of(), "bmV4dA", null);
+
+        assertThat(write(result)).isEqualTo("{\"content\":[{\"id\":7}],\"size\":1,\"hasNext\":true,"
+                + "\"hasPrevious\":false,\"nextCursor\":\"bmV4dA\",\"previousCursor\":null,\"totalElements\":-1,"
+                + "\"totalPages\":-1,\"totalKind\":\"UNKNOWN\",\"sort\":\"updatedAt\",\"direction\":\"desc\"}");
+    }
+
+    @Test
+    void writesTheLastKeysetPage() throws IOException {
+        QueryBindResult<Row> result = new QueryBindResult<>(List.of(), 20, 0, 0, TotalKind.EXACT, "id", "asc",
+                Map.of(), null, "cHJldg");
+
+        assertThat(write(result)).contains("\"content\":[]", "\"hasNext\":false", "\"hasPrevious\":true",
+                "\"nextCursor\":null", "\"previousCursor\":\"cHJldg\"").doesNotContain("\"page\"", "\"facets\"");
+    }
+
+    private String write(QueryBindResult<?> result) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.write(result, out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+}
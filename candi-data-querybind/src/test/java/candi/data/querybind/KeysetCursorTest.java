@@ -0,0 +1,89 @@
+package candi.data.querybind;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class KeysetCursorTest {
+
+    @Test
+    void roundTripsThroughItsToken() {
+        KeysetCursor cursor = new KeysetCursor(false, "publishedOn", "desc", "2024-03-01", "42");
+
+        String token = cursor.encode();
+
+        assertThat(token).matches("[A-Za-z0-9_-]+");
+        assertThat(KeysetCursor.decode(token)).isEqualTo(cursor);
+    }
+
+    @Test
+    void keepsSeparatorsInsideValuesApart() {
+        KeysetCursor cursor = new KeysetCursor(true, "title", "asc", "a,b;c d", "");
+
+        assertThat(KeysetCursor.decode(cursor.encode())).isEqualTo(cursor);
+    }
+
+    @Test
+    void rejectsMalformedTokens() {
+        assertThat(KeysetCursor.decode("not base64!")).isNull();
+        assertThat(KeysetCursor.decode("")).isNull();
+        assertThat(KeysetCursor.decode(new KeysetCursor(true, "id", "asc", "1", "1").encode().substring(4))).isNull();
+    }
+
+    @Test
+    void matchesOnlyItsOwnSort() {
+        KeysetCursor cursor = new KeysetCursor(true, "price", "asc", "10", "3");
+
+        assertThat(cursor.matches("price", "ASC")).isTrue();
+        assertThat(cursor.matches("price", "desc")).isFalse();
+        assertThat(cursor.matches("title", "asc")).isFalse();
+    }
+
+    @Test
+    void sortKeysRoundTripThroughText() {
+        List<Object> keys = List.of(
+                42L, (short) 7, (byte) -3, 'x', new BigDecimal("12.50"), Book.Genre.POETRY, UUID.randomUUID(),
+                LocalDate.of(2024, 2, 29),
+                Instant.parse("2024-01-01T10:15:30.123456789Z"),
+                OffsetDateTime.of(2024, 1, 1, 10, 15, 30, 0, ZoneOffset.ofHours(2)),
+                ZonedDateTime.of(2024, 1, 1, 10, 15, 30, 0, ZoneId.of("Europe/Paris")),
+                new Date(1_700_000_000_123L),
+                Timestamp.from(Instant.parse("2024-01-01T10:15:30.123456789Z")),
+                java.sql.Date.valueOf("2024-02-29"),
+                Time.valueOf("10:15:30"));
+
+        for (Object key : keys) {
+            Object converted = FilterPlan.converterFor(key.getClass()).apply(FilterPlan.valueString(key));
+            assertThat(converted).as(key.getClass().getSimpleName()).isEqualTo(key);
+        }
+    }
+
+    @Test
+    void readsTemporalDatesBackAsJavaUtilDates() {
+        // Hibernate returns java.sql.Date and Time for @Temporal(DATE) and @Temporal(TIME) Date attributes
+        java.sql.Date leapDay = java.sql.Date.valueOf("2024-02-29");
+        assertThat(FilterPlan.converterFor(Date.class).apply(FilterPlan.valueString(leapDay))).isEqualTo(leapDay);
+        assertThat(FilterPlan.converterFor(Date.class).apply(FilterPlan.valueString(Time.valueOf("10:15:30"))))
+                .isEqualTo(Time.valueOf("10:15:30"));
+    }
+
+    @Test
+    void knowsWhichTypesDoNotConvert() {
+        assertThat(FilterPlan.convertible(OffsetDateTime.class)).isTrue();
+        assertThat(FilterPlan.convertible(Object.class)).isFalse();
+        assertThat(FilterPlan.convertible(byte[].class)).isFalse();
+    }
+}
@@ -0,0 +1,104 @@
+package candi.data.querybind;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class KeysetPaginationTest {
+
+    private static EntityManagerFactory emf;
+    private static QueryBindService service;
+
+    @QueryBind(entity = Book.class, columns = {"id", "title"}, pagination = Pagination.KEYSET,
+            defaultSort = "updatedAt", defaultDirection = "desc", defaultPageSize = 5,
+            countStrategy = CountStrategy.NONE)
+    static class Recent {}
+
+    @QueryBind(entity = Book.class, pagination = Pagination.KEYSET, defaultSort = "publisher")
+    static class ByPublisher {}
+
+    @BeforeAll
+    static void createDatabase() {
+        emf = TestDatabase.create("keyset");
+        TestDatabase.seed(emf, 23);
+        service = new QueryBindService(SharedEntityManagerCreator.createSharedEntityManager(emf),
+                new JpaTransactionManager(emf));
+    }
+
+    @AfterAll
+    static void closeDatabase() {
+        service.destroy();
+        emf.close();
+    }
+
+    @AfterEach
+    void clearRequest() {
+        TestRequests.clear();
+    }
+
+    @Test
+    void pagesThroughAnOffsetDateTimeSort() {
+        List<Object> ids = new ArrayList<>();
+        String cursor = null;
+        do {
+            QueryBindResult<Map<String, Object>> page = execute(cursor == null ? Map.of() : Map.of("cursor", cursor));
+            page.getContent().forEach(row -> ids.add(row.get("id")));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        List<Object> expected = new ArrayList<>();
+        for (long id = 23; id >= 1; id--) {
+            expected.add(id);
+        }
+        assertThat(ids).isEqualTo(expected);
+    }
+
+    @Test
+    void readsBackwardFromAPreviousCursor() {
+        QueryBindResult<Map<String, Object>> first = execute(Map.of());
+        QueryBindResult<Map<String, Object>> second = execute(Map.of("cursor", first.getNextCursor()));
+
+        QueryBindResult<Map<String, Object>> back = execute(Map.of("cursor", second.getPreviousCursor()));
+
+        assertThat(back.getContent()).isEqualTo(first.getContent());
+    }
+
+    @Test
+    void startsOverOnACursorWhoseKeyDoesNotConvert() {
+        String cursor = new KeysetCursor(true, "updatedAt", "desc", "yesterday", "7").encode();
+
+        QueryBindResult<Map<String, Object>> page = execute(Map.of("cursor", cursor));
+
+        assertThat(page.getContent()).extracting(row -> row.get("id")).containsExactly(23L, 22L, 21L, 20L, 19L);
+    }
+
+    @Test
+    void startsOverOnAMalformedCursor() {
+        QueryBindResult<Map<String, Object>> page = execute(Map.of("cursor", "garbage"));
+
+        assertThat(page.getContent()).extracting(row -> row.get("id")).containsExactly(23L, 22L, 21L, 20L, 19L);
+    }
+
+    @Test
+    void refusesASortThatCursorsCannotCarry() {
+        assertThatThrownBy(() -> FilterPlan.compile(ByPublisher.class, "", emf.getMetamodel()))
+                .isInstanceOf(QueryBindException.class)
+                .hasMessageContaining("cannot sort by publisher");
+    }
+
+    private static QueryBindResult<Map<String, Object>> execute(Map<String, String> parameters) {
+        TestRequests.get(parameters);
+        return service.execute(Recent.class);
+    }
+}
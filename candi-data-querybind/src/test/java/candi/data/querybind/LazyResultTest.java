@@ -0,0 +1,136 @@
+package candi.data.querybind;
+
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Tuple;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @QueryBind(lazy = true): nothing runs until a getter needs it, each getter runs
+ * only the query it depends on, and once. Queries are counted by {@link QueryStub}.
+ */
+class LazyResultTest {
+
+    private static EntityManagerFactory emf;
+    private final QueryStub stub = new QueryStub();
+    private QueryBindService service;
+
+    @QueryBind(entity = Book.class, lazy = true, facets = "genre", defaultPageSize = 5)
+    static class Lazy {}
+
+    @QueryBind(entity = Book.class, lazy = true, countStrategy = CountStrategy.CAPPED, countCap = 5,
+            defaultPageSize = 5)
+    static class Capped {}
+
+    @QueryBind(entity = Book.class, lazy = true, countStrategy = CountStrategy.NONE, defaultPageSize = 5)
+    static class Uncounted {}
+
+    @BeforeAll
+    static void createDatabase() {
+        emf = TestDatabase.create("lazy");
+        TestDatabase.seed(emf, 30);
+    }
+
+    @AfterAll
+    static void closeDatabase() {
+        emf.close();
+    }
+
+    @BeforeEach
+    void createService() {
+        service = new QueryBindService(stub.wrap(SharedEntityManagerCreator.createSharedEntityManager(emf)),
+                new JpaTransactionManager(emf));
+    }
+
+    @AfterEach
+    void destroyService() {
+        service.destroy();
+        TestRequests.clear();
+    }
+
+    @Test
+    void runsNothingUntilAGetterNeedsIt() {
+        QueryBindResult<Book> result = execute(Lazy.class, Map.of("genre", "NOVEL", "page", "1", "sort", "title"));
+
+        assertThat(result.getPage()).isEqualTo(1);
+        assertThat(result.getSize()).isEqualTo(5);
+        assertThat(result.getSort()).isEqualTo("title");
+        assertThat(result.getActiveFilters()).containsEntry("genre", "NOVEL");
+        assertThat(stub.executed()).isEmpty();
+    }
+
+    @Test
+    void runsEachQueryOnceWhenFirstNeeded() {
+        QueryBindResult<Book> result = execute(Lazy.class, Map.of("genre", "NOVEL"));
+
+        assertThat(result.getContent()).hasSize(5);
+        assertThat(stub.executed()).containsExactly(Tuple.class);
+
+        assertThat(result.getTotalElements()).isEqualTo(10);
+        assertThat(result.getTotalPages()).isEqualTo(2);
+        assertThat(result.hasNext()).isTrue();
+        assertThat(stub.executed()).containsExactly(Tuple.class, Long.class);
+
+        assertThat(result.getFacets().get("genre")).containsEntry(Book.Genre.POETRY, 10L);
+        assertThat(stub.executed()).containsExactly(Tuple.class, Long.class, Tuple.class);
+
+        result.getContent();
+        result.getTotalElements();
+        result.getFacets();
+        assertThat(stub.executed()).hasSize(3);
+    }
+
+    @Test
+    void countsWithoutTheDataQuery() {
+        QueryBindResult<Book> result = execute(Lazy.class, Map.of("genre", "NOVEL"));
+
+        assertThat(result.getTotalElements()).isEqualTo(10);
+        assertThat(result.hasNext()).isTrue();
+        assertThat(stub.executed()).containsExactly(Long.class);
+    }
+
+    @Test
+    void needsBothQueriesForACappedTotal() {
+        QueryBindResult<Book> result = execute(Capped.class, Map.of("genre", "NOVEL"));
+
+        assertThat(result.getTotalKind()).isEqualTo(TotalKind.CAPPED);
+        assertThat(stub.executed()).containsExactly(Long.class, Tuple.class);
+
+        assertThat(result.getTotalElements()).isEqualTo(5);
+        assertThat(result.hasNext()).isTrue();
+        assertThat(result.getContent()).hasSize(5);
+        assertThat(stub.executed()).hasSize(2);
+    }
+
+    @Test
+    void needsTheDataQueryForAnUncountedTotal() {
+        QueryBindResult<Book> first = execute(Uncounted.class, Map.of("genre", "NOVEL"));
+
+        assertThat(first.getTotalKind()).isEqualTo(TotalKind.UNKNOWN);
+        assertThat(first.hasNext()).isTrue();
+        assertThat(stub.executed()).containsExactly(Tuple.class);
+
+        // The last page tells the total without a count
+        stub.reset();
+        QueryBindResult<Book> last = execute(Uncounted.class, Map.of("genre", "NOVEL", "page", "1"));
+
+        assertThat(last.getTotalElements()).isEqualTo(10);
+        assertThat(last.getTotalKind()).isEqualTo(TotalKind.EXACT);
+        assertThat(last.hasNext()).isFalse();
+        assertThat(stub.executed()).containsExactly(Tuple.class);
+    }
+
+    private QueryBindResult<Book> execute(Class<?> pageClass, Map<String, String> parameters) {
+        TestRequests.get(parameters);
+        return service.execute(pageClass);
+    }
+}
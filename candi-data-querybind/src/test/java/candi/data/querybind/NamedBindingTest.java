@@ -0,0 +1,90 @@
+package candi.data.querybind;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Several @QueryBind on one page: each binding reads only the URL parameters
+ * prefixed with its name, and executeAll runs them together in one request.
+ */
+class NamedBindingTest {
+
+    private static EntityManagerFactory emf;
+    private static QueryBindService service;
+
+    @QueryBind(entity = Book.class, defaultPageSize = 5)
+    @QueryBind(entity = Book.class, name = "books", defaultPageSize = 5)
+    @QueryBind(entity = Publisher.class, name = "publishers", defaultSort = "name")
+    static class Catalog {}
+
+    @BeforeAll
+    static void createDatabase() {
+        emf = TestDatabase.create("bindings");
+        TestDatabase.seed(emf, 30);
+        service = new QueryBindService(SharedEntityManagerCreator.createSharedEntityManager(emf),
+                new JpaTransactionManager(emf));
+    }
+
+    @AfterAll
+    static void closeDatabase() {
+        service.destroy();
+        emf.close();
+    }
+
+    @AfterEach
+    void clearRequest() {
+        TestRequests.clear();
+    }
+
+    @Test
+    void executesEveryBindingOfTheRequestInTheGivenOrder() {
+        TestRequests.get(Map.of("books.genre", "NOVEL", "books.size", "2", "books.page", "1",
+                "publishers.direction", "desc"));
+
+        Map<String, QueryBindResult<?>> results = service.executeAll(Catalog.class, List.of("publishers", "books"));
+
+        assertThat(results.keySet()).containsExactly("publishers", "books");
+
+        QueryBindResult<?> publishers = results.get("publishers");
+        assertThat(publishers.getTotalElements()).isEqualTo(2);
+        assertThat(publishers.getContent()).extracting(publisher -> ((Publisher) publisher).getName())
+                .containsExactly("Globex", "Acme");
+
+        QueryBindResult<?> books = results.get("books");
+        assertThat(books.getTotalElements()).isEqualTo(10);
+        assertThat(books.getPage()).isEqualTo(1);
+        assertThat(books.getSize()).isEqualTo(2);
+        assertThat(books.getContent()).hasSize(2)
+                .allSatisfy(book -> assertThat(((Book) book).genre).isEqualTo(Book.Genre.NOVEL));
+    }
+
+    @Test
+    void readsOnlyTheParametersPrefixedWithTheBindingName() {
+        TestRequests.get(Map.of("genre", "POETRY", "size", "3", "books.years", "2001"));
+
+        QueryBindResult<Book> books = service.execute(Catalog.class, "books");
+        QueryBindResult<Book> unnamed = service.execute(Catalog.class);
+        QueryBindResult<Publisher> publishers = service.execute(Catalog.class, "publishers");
+
+        assertThat(books.getTotalElements()).isEqualTo(6);
+        assertThat(books.getSize()).isEqualTo(5);
+        assertThat(books.getContent()).allSatisfy(book -> assertThat(book.releaseYear).isEqualTo(2001));
+
+        assertThat(unnamed.getTotalElements()).isEqualTo(10);
+        assertThat(unnamed.getSize()).isEqualTo(3);
+        assertThat(unnamed.getContent()).allSatisfy(book -> assertThat(book.genre).isEqualTo(Book.Genre.POETRY));
+
+        assertThat(publishers.getTotalElements()).isEqualTo(2);
+        assertThat(publishers.getSize()).isEqualTo(20);
+    }
+}
@@ -0,0 +1,142 @@
+package candi.data.querybind;
+
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceException;
+import jakarta.persistence.Tuple;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * @QueryBind(parallel = true): count, data and facet queries run at the same time,
+ * a failure cancels the others, and the deadline leaves a slow count UNKNOWN.
+ * Slow and failing queries are simulated by {@link QueryStub}.
+ */
+class ParallelTest {
+
+    private static EntityManagerFactory emf;
+    private final QueryStub stub = new QueryStub();
+    private QueryBindService service;
+
+    @QueryBind(entity = Book.class, parallel = true, facets = "genre", defaultPageSize = 5)
+    static class Faceted {}
+
+    @QueryBind(entity = Book.class, parallel = true, defaultPageSize = 5, timeoutMs = 300)
+    static class Limited {}
+
+    @BeforeAll
+    static void createDatabase() {
+        emf = TestDatabase.create("parallel");
+        TestDatabase.seed(emf, 30);
+    }
+
+    @AfterAll
+    static void closeDatabase() {
+        emf.close();
+    }
+
+    @BeforeEach
+    void createService() {
+        service = new QueryBindService(stub.wrap(SharedEntityManagerCreator.createSharedEntityManager(emf)),
+                new JpaTransactionManager(emf));
+    }
+
+    @AfterEach
+    void destroyService() {
+        service.destroy();
+        TestRequests.clear();
+    }
+
+    @Test
+    void joinsTheCountTheDataAndTheFacets() {
+        // Each query waits until all three have started, so none runs after another
+        CountDownLatch started = new CountDownLatch(3);
+        stub.before = resultType -> {
+            started.countDown();
+            assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        };
+
+        QueryBindResult<Book> result = execute(Faceted.class, Map.of("minPrice", "4"));
+
+        assertThat(started.getCount()).isZero();
+        assertThat(result.getTotalKind()).isEqualTo(TotalKind.EXACT);
+        assertThat(result.getTotalElements()).isEqualTo(15);
+        assertThat(result.getContent()).hasSize(5).allMatch(book -> book.price.intValue() > 4);
+        assertThat(result.getFacets().get("genre")).containsOnlyKeys(Book.Genre.values())
+                .containsEntry(Book.Genre.NOVEL, 5L);
+        assertThat(stub.executed()).containsExactlyInAnyOrder(Long.class, Tuple.class, Tuple.class);
+    }
+
+    @Test
+    void cancelsTheOtherQueriesWhenOneFails() throws InterruptedException {
+        CountDownLatch interrupted = new CountDownLatch(1);
+        stub.before = resultType -> {
+            if (resultType == Tuple.class) {
+                throw new PersistenceException("Data query failed (stub)");
+            }
+            try {
+                Thread.sleep(10_000);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                throw e;
+            }
+        };
+
+        long start = System.nanoTime();
+        assertThatThrownBy(() -> execute(Limited.class, Map.of()))
+                .isInstanceOf(QueryBindException.class)
+                .isNotInstanceOf(QueryBindTimeoutException.class)
+                .hasMessage("QueryBind for Book failed")
+                .hasCauseInstanceOf(PersistenceException.class);
+
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(300);
+        assertThat(interrupted.await(5, TimeUnit.SECONDS)).as("count interrupted").isTrue();
+    }
+
+    @Test
+    void leavesTheTotalUnknownWhenTheCountMissesTheDeadline() {
+        stub.before = resultType -> {
+            if (resultType == Long.class) {
+                Thread.sleep(2_000);
+            }
+        };
+
+        long start = System.nanoTime();
+        QueryBindResult<Book> result = execute(Limited.class, Map.of("genre", "NOVEL"));
+
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(1_500);
+        assertThat(result.getContent()).hasSize(5);
+        assertThat(result.getTotalKind()).isEqualTo(TotalKind.UNKNOWN);
+        assertThat(result.getTotalElements()).isEqualTo(-1);
+        assertThat(result.hasNext()).isTrue();
+    }
+
+    @Test
+    void failsThePageWhenTheDataMissesTheDeadline() {
+        stub.before = resultType -> {
+            if (resultType == Tuple.class) {
+                Thread.sleep(2_000);
+            }
+        };
+
+        assertThatThrownBy(() -> execute(Limited.class, Map.of()))
+                .isInstanceOf(QueryBindTimeoutException.class)
+                .hasMessage("QueryBind for Book timed out after 300 ms");
+    }
+
+    private QueryBindResult<Book> execute(Class<?> pageClass, Map<String, String> parameters) {
+        TestRequests.get(parameters);
+        return service.execute(pageClass);
+    }
+}
@@ -0,0 +1,88 @@
+package candi.data.querybind;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PrefetchCacheTest {
+
+    private final PrefetchCache cache = new PrefetchCache(2, 2, 60_000);
+
+    @Test
+    void handsEachPageOutOnce() {
+        CompletableFuture<QueryBindResult<?>> page = new CompletableFuture<>();
+
+        assertThat(cache.start("ada", key(Book.class, 1), page)).isTrue();
+
+        assertThat(cache.take("bob", key(Book.class, 1))).isNull();
+        assertThat(cache.take("ada", key(Book.class, 2))).isNull();
+        assertThat(cache.take("ada", key(Book.class, 1))).isSameAs(page);
+        assertThat(cache.take("ada", key(Book.class, 1))).isNull();
+    }
+
+    @Test
+    void keepsTheRunningPageWhenStartedTwice() {
+        CompletableFuture<QueryBindResult<?>> first = new CompletableFuture<>();
+
+        assertThat(cache.start("ada", key(Book.class, 1), first)).isTrue();
+        assertThat(cache.start("ada", key(Book.class, 1), new CompletableFuture<>())).isFalse();
+
+        assertThat(cache.take("ada", key(Book.class, 1))).isSameAs(first);
+    }
+
+    @Test
+    void pushesOutAUsersOldestPage() {
+        cache.start("ada", key(Book.class, 1), new CompletableFuture<>());
+        cache.start("ada", key(Book.class, 2), new CompletableFuture<>());
+        cache.start("ada", key(Book.class, 3), new CompletableFuture<>());
+
+        assertThat(cache.take("ada", key(Book.class, 1))).isNull();
+        assertThat(cache.take("ada", key(Book.class, 2))).isNotNull();
+        assertThat(cache.take("ada", key(Book.class, 3))).isNotNull();
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsedUser() {
+        cache.start("ada", key(Book.class, 1), new CompletableFuture<>());
+        cache.start("bob", key(Book.class, 1), new CompletableFuture<>());
+        cache.start("ada", key(Book.class, 2), new CompletableFuture<>());
+        cache.start("eve", key(Book.class, 1), new CompletableFuture<>());
+
+        assertThat(cache.take("bob", key(Book.class, 1))).isNull();
+        assertThat(cache.take("ada", key(Book.class, 1))).isNotNull();
+        assertThat(cache.take("eve", key(Book.class, 1))).isNotNull();
+    }
+
+    @Test
+    void expiresPages() throws InterruptedException {
+        PrefetchCache shortLived = new PrefetchCache(2, 2, 1);
+        shortLived.start("ada", key(Book.class, 1), new CompletableFuture<>());
+        Thread.sleep(5);
+
+        assertThat(shortLived.take("ada", key(Book.class, 1))).isNull();
+        assertThat(shortLived.start("ada", key(Book.class, 1), new CompletableFuture<>())).isTrue();
+    }
+
+    @Test
+    void discardsPagesStartedBeforeAChangeToTheirEntity() {
+        cache.start("ada", key(Book.class, 1), new CompletableFuture<>());
+        cache.start("bob", key(Publisher.class, 1), new CompletableFuture<>());
+        cache.start("bob", key(Object.class, 1), new CompletableFuture<>());
+
+        cache.invalidate(Book.class);
+
+        assertThat(cache.take("ada", key(Book.class, 1))).isNull();
+        assertThat(cache.take("bob", key(Publisher.class, 1))).isNotNull();
+        assertThat(cache.take("bob", key(Object.class, 1))).isNull();
+
+        cache.start("ada", key(Book.class, 1), new CompletableFuture<>());
+        assertThat(cache.take("ada", key(Book.class, 1))).isNotNull();
+    }
+
+    private static QueryCacheKey key(Class<?> entity, int page) {
+        return new QueryCacheKey(PrefetchCacheTest.class, "", entity, Map.of(), "id", "asc", page, 20, null);
+    }
+}
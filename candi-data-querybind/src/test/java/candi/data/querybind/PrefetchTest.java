@@ -0,0 +1,141 @@
+package candi.data.querybind;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PrefetchTest {
+
+    private static EntityManagerFactory emf;
+    private static EntityManager entityManager;
+    private static TransactionTemplate transaction;
+    private static QueryBindService service;
+    private static final List<QueryBindMetrics.Prefetch> events = Collections.synchronizedList(new ArrayList<>());
+
+    @QueryBind(entity = Book.class, defaultPageSize = 5, prefetch = true)
+    static class Prefetched {}
+
+    @QueryBind(entity = Book.class, defaultPageSize = 5)
+    static class Plain {}
+
+    @BeforeAll
+    static void createDatabase() {
+        emf = TestDatabase.create("prefetch");
+        TestDatabase.seed(emf, 12);
+        entityManager = SharedEntityManagerCreator.createSharedEntityManager(emf);
+        JpaTransactionManager transactionManager = new JpaTransactionManager(emf);
+        transaction = new TransactionTemplate(transactionManager);
+        service = new QueryBindService(entityManager, transactionManager);
+        service.setMetrics(new QueryBindMetrics() {
+            @Override
+            public void prefetch(FilterPlan plan, Prefetch event) {
+                events.add(event);
+            }
+        });
+    }
+
+    @AfterAll
+    static void closeDatabase() {
+        service.destroy();
+        emf.close();
+    }
+
+    @BeforeEach
+    void clearEvents() {
+        events.clear();
+    }
+
+    @AfterEach
+    void clearRequest() {
+        TestRequests.clear();
+    }
+
+    @Test
+    void servesTheNextPageFromThePrefetch() {
+        assertThat(ids(execute("s1", Prefetched.class, "0"))).containsExactly(1L, 2L, 3L, 4L, 5L);
+        QueryBindResult<Book> second = execute("s1", Prefetched.class, "1");
+
+        assertThat(ids(second)).isEqualTo(ids(execute("s1", Plain.class, "1")));
+        assertThat(events).containsExactly(QueryBindMetrics.Prefetch.MISS, QueryBindMetrics.Prefetch.STARTED,
+                QueryBindMetrics.Prefetch.HIT, QueryBindMetrics.Prefetch.STARTED);
+    }
+
+    @Test
+    void keepsPagesPerUser() {
+        execute("s2", Prefetched.class, "0");
+        events.clear();
+
+        execute("s3", Prefetched.class, "1");
+
+        assertThat(events).containsExactly(QueryBindMetrics.Prefetch.MISS, QueryBindMetrics.Prefetch.STARTED);
+    }
+
+    @Test
+    void stopsAtTheLastPage() {
+        execute("s4", Prefetched.class, "2");
+
+        assertThat(events).containsExactly(QueryBindMetrics.Prefetch.MISS);
+    }
+
+    @Test
+    void neverPrefetchesForAnonymousRequests() {
+        execute(null, Prefetched.class, "0");
+        execute(null, Prefetched.class, "1");
+
+        assertThat(events).isEmpty();
+    }
+
+    @Test
+    void discardsThePrefetchAfterAWrite() {
+        execute("s5", Prefetched.class, "0");
+        Book added = new Book("Added", Book.Genre.ESSAY, BigDecimal.ONE, 2001, null, null, null);
+        transaction.executeWithoutResult(status -> entityManager.persist(added));
+        try {
+            events.clear();
+            QueryBindResult<Book> second = execute("s5", Prefetched.class, "1");
+
+            assertThat(events).startsWith(QueryBindMetrics.Prefetch.MISS);
+            assertThat(second.getTotalElements()).isEqualTo(13);
+        } finally {
+            transaction.executeWithoutResult(status ->
+                    entityManager.remove(entityManager.find(Book.class, added.getId())));
+        }
+    }
+
+    private static QueryBindResult<Book> execute(String session, Class<?> pageClass, String page) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/books");
+        request.addParameter("page", page);
+        if (session != null) {
+            request.setSession(new MockHttpSession(null, session));
+        }
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+        return service.execute(pageClass);
+    }
+
+    private static List<Long> ids(QueryBindResult<Book> result) {
+        List<Long> ids = new ArrayList<>();
+        for (Book book : result.getContent()) {
+            ids.add(book.getId());
+        }
+        return ids;
+    }
+}
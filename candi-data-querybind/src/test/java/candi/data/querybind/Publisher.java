@@ -0,0 +1,27 @@
+package candi.data.querybind;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+
+@Entity
+public class Publisher {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    Long id;
+
+    String name;
+
+    protected Publisher() {
+    }
+
+    Publisher(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+}
@@ -0,0 +1,151 @@
+package candi.data.querybind;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class QueryBindEntityListenerTest {
+
+    private static EntityManagerFactory emf;
+    private static EntityManager entityManager;
+    private static TransactionTemplate transaction;
+
+    private final List<List<QueryBindEntityListener.Change>> published =
+            Collections.synchronizedList(new ArrayList<>());
+    private final QueryBindEntityListener.Subscriber subscriber = published::add;
+
+    @BeforeAll
+    static void createDatabase() {
+        emf = TestDatabase.create("listener");
+        entityManager = SharedEntityManagerCreator.createSharedEntityManager(emf);
+        transaction = new TransactionTemplate(new JpaTransactionManager(emf));
+    }
+
+    @AfterAll
+    static void closeDatabase() {
+        emf.close();
+    }
+
+    @BeforeEach
+    void subscribe() {
+        QueryBindEntityListener.subscribe(subscriber);
+    }
+
+    @AfterEach
+    void unsubscribe() {
+        QueryBindEntityListener.unsubscribe(subscriber);
+    }
+
+    @Test
+    void publishesEveryChangeOfATransactionTogetherAfterTheCommit() {
+        List<Book> books = new ArrayList<>();
+        transaction.executeWithoutResult(status -> {
+            for (int i = 0; i < 50; i++) {
+                Book book = book("Bulk " + i);
+                entityManager.persist(book);
+                books.add(book);
+            }
+            entityManager.flush();
+            books.get(0).title = "Bulk renamed";
+            entityManager.remove(books.get(1));
+            entityManager.flush();
+            assertThat(published).isEmpty();
+        });
+
+        assertThat(published).hasSize(1);
+        List<QueryBindEntityListener.Change> changes = published.get(0);
+        assertThat(changes).hasSize(52);
+        assertThat(changes).extracting(QueryBindEntityListener.Change::type)
+                .containsOnly(QueryBindEntityListener.ChangeType.PERSIST, QueryBindEntityListener.ChangeType.UPDATE,
+                        QueryBindEntityListener.ChangeType.REMOVE);
+        assertThat(changes.subList(50, 52)).extracting(QueryBindEntityListener.Change::entity)
+                .containsExactlyInAnyOrder(books.get(0), books.get(1));
+    }
+
+    @Test
+    void publishesNothingOnRollback() {
+        transaction.executeWithoutResult(status -> {
+            entityManager.persist(book("Rolled back"));
+            entityManager.flush();
+            status.setRollbackOnly();
+        });
+
+        assertThat(published).isEmpty();
+    }
+
+    @Test
+    void publishesANestedTransactionOnItsOwnCommit() {
+        TransactionTemplate nested = new TransactionTemplate(new JpaTransactionManager(emf));
+        nested.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        transaction.executeWithoutResult(status -> {
+            entityManager.persist(book("Outer"));
+            entityManager.flush();
+            nested.executeWithoutResult(inner -> entityManager.persist(book("Inner")));
+            assertThat(published).hasSize(1);
+            assertThat(published.get(0)).extracting(change -> ((Book) change.entity()).getTitle())
+                    .containsExactly("Inner");
+        });
+
+        assertThat(published).hasSize(2);
+        assertThat(published.get(1)).extracting(change -> ((Book) change.entity()).getTitle())
+                .containsExactly("Outer");
+    }
+
+    @Test
+    void publishesEachChangeAtOnceOutsideATransaction() {
+        EntityManager em = emf.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            em.persist(book("First"));
+            em.persist(book("Second"));
+            em.flush();
+            assertThat(published).hasSize(2).allSatisfy(changes -> assertThat(changes).hasSize(1));
+            em.getTransaction().commit();
+        } finally {
+            em.close();
+        }
+    }
+
+    @Test
+    void foldsSearchNormalizedFieldsOnPersistAndUpdate() {
+        Book book = book("Éclair AU Café");
+        transaction.executeWithoutResult(status -> entityManager.persist(book));
+
+        assertThat(book.titleNormalized).isEqualTo("eclair au cafe");
+        assertThat(storedTitleNormalized(book.getId())).isEqualTo("eclair au cafe");
+
+        transaction.executeWithoutResult(status ->
+                entityManager.find(Book.class, book.getId()).title = "Crème BRÛLÉE");
+
+        assertThat(storedTitleNormalized(book.getId())).isEqualTo("creme brulee");
+    }
+
+    private static String storedTitleNormalized(Long id) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            return em.find(Book.class, id).titleNormalized;
+        } finally {
+            em.close();
+        }
+    }
+
+    private static Book book(String title) {
+        return new Book(title, Book.Genre.ESSAY, BigDecimal.ONE, 2000, null, null, null);
+    }
+}
@@ -0,0 +1,40 @@
+package candi.data.querybind;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class QueryBindInterceptorTest {
+
+    @Test
+    void prefersJsonOnlyWhenNamedExplicitly() {
+        assertThat(QueryBindInterceptor.prefersJson("application/json")).isTrue();
+        assertThat(QueryBindInterceptor.prefersJson("application/json, text/plain, */*")).isTrue();
+        assertThat(QueryBindInterceptor.prefersJson("text/html, application/json")).isTrue();
+
+        assertThat(QueryBindInterceptor.prefersJson(null)).isFalse();
+        assertThat(QueryBindInterceptor.prefersJson("*/*")).isFalse();
+        assertThat(QueryBindInterceptor.prefersJson("application/*")).isFalse();
+        assertThat(QueryBindInterceptor.prefersJson(
+                "text/html,application/xhtml+xml,application/xml;q=0.9,*/*;q=0.8")).isFalse();
+    }
+
+    @Test
+    void prefersHtmlWhenRankedHigher() {
+        assertThat(QueryBindInterceptor.prefersJson("text/html, application/json;q=0.9")).isFalse();
+        assertThat(QueryBindInterceptor.prefersJson("text/html;q=0.5, application/json;q=0.9")).isTrue();
+        assertThat(QueryBindInterceptor.prefersJson("application/json;q=0")).isFalse();
+    }
+
+    @Test
+    void ignoresMalformedAcceptHeaders() {
+        assertThat(QueryBindInterceptor.prefersJson("application/json;q=x")).isFalse();
+        assertThat(QueryBindInterceptor.prefersJson("json")).isFalse();
+    }
+
+    @Test
+    void tagsJsonSeparatelyFromHtml() {
+        assertThat(QueryBindInterceptor.jsonEtag("W/\"3fa9\"")).isEqualTo("W/\"3fa9-json\"");
+        assertThat(QueryBindInterceptor.jsonEtag("\"3fa9\"")).isEqualTo("\"3fa9-json\"");
+    }
+}
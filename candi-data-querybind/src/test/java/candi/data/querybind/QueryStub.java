@@ -0,0 +1,89 @@
+package candi.data.querybind;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaQuery;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Watches and steers the criteria queries QueryBindService runs: wraps an
+ * EntityManager so that every execution is recorded with the result type of its
+ * criteria (Long for counts, Tuple for data and facet queries, the entity for
+ * two-phase loads) and its hints, and passes through {@link #before} first,
+ * which may delay or fail it.
+ */
+final class QueryStub {
+
+    /** Runs before a query executes; may sleep, or throw instead of running it. */
+    @FunctionalInterface
+    interface Before {
+        void execute(Class<?> resultType) throws Exception;
+    }
+
+    record Execution(Class<?> resultType, Map<String, Object> hints) {}
+
+    final List<Execution> executions = Collections.synchronizedList(new ArrayList<>());
+    volatile Before before = resultType -> {};
+
+    /**
+     * The given EntityManager, with its criteria queries watched by this stub.
+     */
+    EntityManager wrap(EntityManager entityManager) {
+        return (EntityManager) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{EntityManager.class}, (proxy, method, args) -> {
+                    Object result = invoke(entityManager, method, args);
+                    if (method.getName().equals("createQuery") && args[0] instanceof CriteriaQuery<?> criteria) {
+                        return watch((TypedQuery<?>) result, criteria.getResultType());
+                    }
+                    return result;
+                });
+    }
+
+    /**
+     * Result types of the queries executed so far, in order.
+     */
+    List<Class<?>> executed() {
+        synchronized (executions) {
+            return executions.stream().<Class<?>>map(Execution::resultType).toList();
+        }
+    }
+
+    void reset() {
+        executions.clear();
+        before = resultType -> {};
+    }
+
+    private Object watch(TypedQuery<?> query, Class<?> resultType) {
+        Map<String, Object> hints = new HashMap<>();
+        return Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{TypedQuery.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "setHint" -> hints.put((String) args[0], args[1]);
+                        case "getResultList", "getSingleResult", "getResultStream" -> {
+                            executions.add(new Execution(resultType, Map.copyOf(hints)));
+                            before.execute(resultType);
+                        }
+                        default -> {
+                        }
+                    }
+                    Object result = invoke(query, method, args);
+                    return result == query ? proxy : result;
+                });
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package candi.data.querybind;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Reads and writes through a QueryBindRoutingDataSource over two H2 databases:
+ * the primary holds 10 books and the replica 3, so every total shows which one
+ * a query read.
+ */
+class ReplicaRoutingTest {
+
+    private static final long PRIMARY_BOOKS = 10;
+    private static final long REPLICA_BOOKS = 3;
+
+    private static EntityManagerFactory primaryDatabase;
+    private static EntityManagerFactory replicaDatabase;
+    private static EntityManagerFactory emf;
+    private static EntityManager entityManager;
+    private static TransactionTemplate transaction;
+    private static QueryBindService service;
+
+    @QueryBind(entity = Book.class)
+    static class Books {}
+
+    @BeforeAll
+    static void createDatabases() {
+        primaryDatabase = TestDatabase.create("routing-primary");
+        TestDatabase.seed(primaryDatabase, (int) PRIMARY_BOOKS);
+        replicaDatabase = TestDatabase.create("routing-replica");
+        TestDatabase.seed(replicaDatabase, (int) REPLICA_BOOKS);
+
+        emf = TestDatabase.create(new QueryBindRoutingDataSource(
+                new DriverManagerDataSource(TestDatabase.url("routing-primary"), "sa", ""),
+                new DriverManagerDataSource(TestDatabase.url("routing-replica"), "sa", "")));
+        entityManager = SharedEntityManagerCreator.createSharedEntityManager(emf);
+        JpaTransactionManager transactionManager = new JpaTransactionManager(emf);
+        transaction = new TransactionTemplate(transactionManager);
+        service = new QueryBindService(entityManager, transactionManager);
+        service.setReplicaReads(true);
+    }
+
+    @AfterAll
+    static void closeDatabases() {
+        service.destroy();
+        emf.close();
+        replicaDatabase.close();
+        primaryDatabase.close();
+    }
+
+    @AfterEach
+    void clearRequest() {
+        TestRequests.clear();
+    }
+
+    @Test
+    void readsOutsideATransactionFromTheReplica() {
+        TestRequests.get(Map.of());
+
+        assertThat(service.execute(Books.class).getTotalElements()).isEqualTo(REPLICA_BOOKS);
+    }
+
+    @Test
+    void readsInsideATransactionFromThePrimary() {
+        TestRequests.get(Map.of());
+
+        QueryBindResult<?> result = transaction.execute(status -> service.execute(Books.class));
+
+        assertThat(result.getTotalElements()).isEqualTo(PRIMARY_BOOKS);
+    }
+
+    @Test
+    void writesToThePrimaryAndPinsTheClient() {
+        MockHttpServletResponse response = request(new MockHttpServletRequest("GET", "/books"));
+        Book book = new Book("New", Book.Genre.ESSAY, BigDecimal.ONE, 2001, null, null, null);
+
+        transaction.executeWithoutResult(status -> entityManager.persist(book));
+        try {
+            assertThat(service.execute(Books.class).getTotalElements()).isEqualTo(PRIMARY_BOOKS + 1);
+            assertThat(response.getCookies()).hasSize(1);
+            assertThat(count(primaryDatabase)).isEqualTo(PRIMARY_BOOKS + 1);
+            assertThat(count(replicaDatabase)).isEqualTo(REPLICA_BOOKS);
+        } finally {
+            transaction.executeWithoutResult(status ->
+                    entityManager.remove(entityManager.find(Book.class, book.getId())));
+        }
+    }
+
+    @Test
+    void readsPinnedRequestsFromThePrimary() {
+        MockHttpServletResponse response = request(new MockHttpServletRequest("GET", "/books"));
+        service.pinToPrimary();
+
+        assertThat(service.execute(Books.class).getTotalElements()).isEqualTo(PRIMARY_BOOKS);
+        Cookie pin = response.getCookies()[0];
+        assertThat(pin.getMaxAge()).isEqualTo(5);
+
+        MockHttpServletRequest next = new MockHttpServletRequest("GET", "/books");
+        next.setCookies(pin);
+        request(next);
+        assertThat(service.execute(Books.class).getTotalElements()).isEqualTo(PRIMARY_BOOKS);
+
+        request(new MockHttpServletRequest("GET", "/books"));
+        assertThat(service.execute(Books.class).getTotalElements()).isEqualTo(REPLICA_BOOKS);
+    }
+
+    @Test
+    void restoresTheOpenInViewEntityManager() {
+        TestRequests.get(Map.of());
+        EntityManager requestEntityManager = emf.createEntityManager();
+        EntityManagerHolder holder = new EntityManagerHolder(requestEntityManager);
+        TransactionSynchronizationManager.bindResource(emf, holder);
+        try {
+            QueryBindResult<?> result = service.execute(Books.class);
+
+            assertThat(result.getTotalElements()).isEqualTo(REPLICA_BOOKS);
+            assertThat(TransactionSynchronizationManager.getResource(emf)).isSameAs(holder);
+            assertThat(requestEntityManager.contains(result.getContent().get(0))).isFalse();
+            assertThat(entityManager.createQuery("select count(b) from Book b", Long.class).getSingleResult())
+                    .isEqualTo(PRIMARY_BOOKS);
+        } finally {
+            TransactionSynchronizationManager.unbindResource(emf);
+            requestEntityManager.close();
+        }
+    }
+
+    private static MockHttpServletResponse request(MockHttpServletRequest request) {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request, response));
+        return response;
+    }
+
+    private static long count(EntityManagerFactory database) {
+        EntityManager em = database.createEntityManager();
+        try {
+            return em.createQuery("select count(b) from Book b", Long.class).getSingleResult();
+        } finally {
+            em.close();
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package candi.data.querybind;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ResultCacheTest {
+
+    private static EntityManagerFactory emf;
+    private static QueryBindService service;
+    private static InMemoryQueryResultCache cache;
+
+    record Row(Long id, String title) {}
+
+    @QueryBind(entity = Book.class, projection = Row.class, cacheSeconds = 60)
+    static class Cached {}
+
+    @QueryBind(entity = Book.class, projection = Row.class)
+    static class Uncached {}
+
+    @BeforeAll
+    static void createDatabase() {
+        emf = TestDatabase.create("result-cache");
+        TestDatabase.seed(emf, 12);
+        service = new QueryBindService(SharedEntityManagerCreator.createSharedEntityManager(emf),
+                new JpaTransactionManager(emf));
+        cache = new InMemoryQueryResultCache(100);
+        service.setResultCache(cache);
+    }
+
+    @AfterAll
+    static void closeDatabase() {
+        service.destroy();
+        emf.close();
+    }
+
+    @AfterEach
+    void clearRequest() {
+        TestRequests.clear();
+        service.invalidate(Book.class);
+    }
+
+    @Test
+    void servesRepeatedRequestsFromTheCache() {
+        QueryBindResult<Row> first = execute(Cached.class, Map.of("genre", "NOVEL", "minPrice", "1"));
+        QueryBindResult<Row> second = execute(Cached.class, Map.of("minPrice", "1", "genre", "NOVEL"));
+
+        assertThat(second).isSameAs(first);
+        assertThat(cache.getHitCount()).isPositive();
+    }
+
+    @Test
+    void leavesBindingsWithoutCacheSecondsAlone() {
+        QueryBindResult<Row> first = execute(Uncached.class, Map.of());
+        QueryBindResult<Row> second = execute(Uncached.class, Map.of());
+
+        assertThat(second).isNotSameAs(first);
+        assertThat(second.getContent()).isEqualTo(first.getContent());
+    }
+
+    @Test
+    void dropsCachedResultsWhenTheEntityChanges() {
+        QueryBindResult<Row> before = execute(Cached.class, Map.of("genre", "ESSAY"));
+
+        EntityManager em = emf.createEntityManager();
+        em.getTransaction().begin();
+        em.persist(new Book("Book 13", Book.Genre.ESSAY, BigDecimal.ONE, 2001, LocalDate.of(2024, 6, 1),
+                OffsetDateTime.now(), null));
+        em.getTransaction().commit();
+        em.close();
+
+        QueryBindResult<Row> after = execute(Cached.class, Map.of("genre", "ESSAY"));
+        assertThat(after).isNotSameAs(before);
+        assertThat(after.getTotalElements()).isEqualTo(before.getTotalElements() + 1);
+    }
+
+    @Test
+    void invalidatesOnlyTheChangedEntityType() {
+        QueryCacheKey key = new QueryCacheKey(Cached.class, "", Book.class, Map.of(), "id", "asc", 0, 20, null);
+        cache.put(key, execute(Uncached.class, Map.of()), Duration.ofMinutes(1));
+
+        cache.invalidate(Publisher.class);
+        assertThat(cache.get(key)).isNotNull();
+        cache.invalidate(Book.class);
+        assertThat(cache.get(key)).isNull();
+    }
+
+    private static QueryBindResult<Row> execute(Class<?> pageClass, Map<String, String> parameters) {
+        TestRequests.get(parameters);
+        return service.execute(pageClass);
+    }
+}
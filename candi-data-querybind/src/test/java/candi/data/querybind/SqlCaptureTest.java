@@ -0,0 +1,80 @@
+package candi.data.querybind;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SqlCaptureTest {
+
+    private static final String KEY = CandiQueryBindAutoConfiguration.SlowQueryConfiguration.STATEMENT_INSPECTOR;
+
+    /** Tags every statement, standing in for an application's inspector. */
+    public static class Tagging implements StatementInspector {
+        @Override
+        public String inspect(String sql) {
+            return "/* app */ " + sql;
+        }
+    }
+
+    @AfterEach
+    void closeCapture() {
+        SqlCapture.close();
+    }
+
+    @Test
+    void capturesStatementsWhileOpen() {
+        SqlCapture.INSTANCE.inspect("select 0");
+        SqlCapture.open();
+
+        assertThat(SqlCapture.INSTANCE.inspect("select 1")).isEqualTo("select 1");
+        SqlCapture.INSTANCE.inspect("select 2");
+
+        assertThat(SqlCapture.close()).isEqualTo("select 1;\nselect 2");
+        assertThat(SqlCapture.close()).isNull();
+    }
+
+    @Test
+    void recordsWhatTheApplicationsInspectorReturns() {
+        SqlCapture capture = new SqlCapture(new Tagging());
+        SqlCapture.open();
+
+        assertThat(capture.inspect("select 1")).isEqualTo("/* app */ select 1");
+        assertThat(SqlCapture.close()).isEqualTo("/* app */ select 1");
+    }
+
+    @Test
+    void registersNothingWhileTheLogIsOff() {
+        assertThat(customize(Duration.ZERO, Map.of())).doesNotContainKey(KEY);
+        assertThat(customize(null, Map.of())).doesNotContainKey(KEY);
+        assertThat(customize(Duration.ofMillis(500), Map.of())).containsEntry(KEY, SqlCapture.INSTANCE);
+    }
+
+    @Test
+    void chainsToTheApplicationsInspector() {
+        for (Object setting : new Object[]{new Tagging(), Tagging.class, Tagging.class.getName()}) {
+            Object inspector = customize(Duration.ofMillis(500), Map.of(KEY, setting)).get(KEY);
+
+            assertThat(inspector).isInstanceOf(SqlCapture.class).isNotSameAs(SqlCapture.INSTANCE);
+            assertThat(((StatementInspector) inspector).inspect("select 1")).isEqualTo("/* app */ select 1");
+        }
+        assertThatThrownBy(() -> customize(Duration.ofMillis(500), Map.of(KEY, "com.example.Missing")))
+                .isInstanceOf(QueryBindException.class)
+                .hasMessageContaining("com.example.Missing");
+    }
+
+    private static Map<String, Object> customize(Duration threshold, Map<String, Object> configured) {
+        QueryBindProperties properties = new QueryBindProperties();
+        properties.setSlowQueryThreshold(threshold);
+        Map<String, Object> hibernateProperties = new HashMap<>(configured);
+        new CandiQueryBindAutoConfiguration.SlowQueryConfiguration().queryBindSqlCapture(properties)
+                .customize(hibernateProperties);
+        return hibernateProperties;
+    }
+}
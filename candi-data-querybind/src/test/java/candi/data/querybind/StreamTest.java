@@ -0,0 +1,153 @@
+package candi.data.querybind;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * stream() and export() read every matching row in a transaction of their own,
+ * leaving the caller's persistence context alone.
+ */
+class StreamTest {
+
+    private static EntityManagerFactory emf;
+    private static EntityManager entityManager;
+    private static TransactionTemplate transaction;
+    private static QueryBindService service;
+
+    record Row(Long id, String title) {}
+
+    @QueryBind(entity = Book.class, defaultSort = "title", defaultPageSize = 2)
+    static class Books {}
+
+    @QueryBind(entity = Book.class, projection = Row.class, columns = {"id", "title"}, defaultPageSize = 2)
+    static class Rows {}
+
+    @BeforeAll
+    static void createDatabase() {
+        emf = TestDatabase.create("streams");
+        TestDatabase.seed(emf, 12);
+        entityManager = SharedEntityManagerCreator.createSharedEntityManager(emf);
+        JpaTransactionManager transactionManager = new JpaTransactionManager(emf);
+        transaction = new TransactionTemplate(transactionManager);
+        service = new QueryBindService(entityManager, transactionManager);
+    }
+
+    @AfterAll
+    static void closeDatabase() {
+        service.destroy();
+        emf.close();
+    }
+
+    @AfterEach
+    void clearRequest() {
+        TestRequests.clear();
+    }
+
+    @Test
+    void streamsEveryMatchingRowInOrderIgnoringThePage() {
+        TestRequests.get(Map.of("genre", "NOVEL", "page", "1", "size", "1"));
+        List<String> titles = new ArrayList<>();
+
+        long count = service.stream(Books.class, (Book book) -> titles.add(book.getTitle()));
+
+        assertThat(count).isEqualTo(4);
+        assertThat(titles).containsExactly("Book 12", "Book 3", "Book 6", "Book 9");
+    }
+
+    @Test
+    void streamsProjections() {
+        TestRequests.get(Map.of("years", "2001", "sort", "id", "direction", "desc"));
+        List<Row> rows = new ArrayList<>();
+
+        service.stream(Rows.class, (Row row) -> rows.add(row));
+
+        assertThat(rows).containsExactly(new Row(11L, "Book 11"), new Row(6L, "Book 6"), new Row(1L, "Book 1"));
+    }
+
+    @Test
+    void exportsTheSelectedColumns() {
+        TestRequests.get(Map.of("years", "2001", "sort", "id"));
+        StringWriter csv = new StringWriter();
+        StringWriter ndjson = new StringWriter();
+
+        long written = service.export(Rows.class, ExportFormat.CSV, csv);
+        service.export(Rows.class, ExportFormat.NDJSON, ndjson);
+
+        assertThat(written).isEqualTo(3);
+        assertThat(csv).hasToString("id,title\r\n1,Book 1\r\n6,Book 6\r\n11,Book 11\r\n");
+        assertThat(ndjson.toString().lines()).containsExactly("{\"id\":1,\"title\":\"Book 1\"}",
+                "{\"id\":6,\"title\":\"Book 6\"}", "{\"id\":11,\"title\":\"Book 11\"}");
+    }
+
+    @Test
+    void keepsTheCallersPendingChanges() {
+        TestRequests.get(Map.of());
+
+        transaction.executeWithoutResult(status -> {
+            Publisher publisher = entityManager.find(Publisher.class, 1L);
+            publisher.name = "Renamed";
+            Book book = entityManager.find(Book.class, 1L);
+
+            service.stream(Books.class, row -> {});
+            service.export(Books.class, ExportFormat.CSV, new StringWriter());
+
+            assertThat(entityManager.contains(publisher)).isTrue();
+            assertThat(entityManager.contains(book)).isTrue();
+        });
+
+        try {
+            assertThat(publisherName(1L)).isEqualTo("Renamed");
+        } finally {
+            transaction.executeWithoutResult(status -> entityManager.find(Publisher.class, 1L).name = "Acme");
+        }
+    }
+
+    @Test
+    void leavesTheOpenInViewEntityManagerAlone() {
+        TestRequests.get(Map.of());
+        EntityManager requestEntityManager = emf.createEntityManager();
+        TransactionSynchronizationManager.bindResource(emf, new EntityManagerHolder(requestEntityManager));
+        try {
+            Book book = entityManager.find(Book.class, 2L);
+            List<Book> streamed = new ArrayList<>();
+
+            service.stream(Books.class, (Book row) -> streamed.add(row));
+
+            assertThat(streamed).hasSize(12).doesNotContain(book);
+            assertThat(requestEntityManager.contains(book)).isTrue();
+            assertThat(streamed).noneMatch(requestEntityManager::contains);
+            assertThat(TransactionSynchronizationManager.getResource(emf))
+                    .isInstanceOf(EntityManagerHolder.class)
+                    .extracting(holder -> ((EntityManagerHolder) holder).getEntityManager())
+                    .isSameAs(requestEntityManager);
+        } finally {
+            TransactionSynchronizationManager.unbindResource(emf);
+            requestEntityManager.close();
+        }
+    }
+
+    private static String publisherName(Long id) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            return em.find(Publisher.class, id).getName();
+        } finally {
+            em.close();
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package candi.data.querybind;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.cfg.Configuration;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * In-memory H2 databases of {@link Book}s and {@link Publisher}s for tests.
+ */
+final class TestDatabase {
+
+    private TestDatabase() {
+    }
+
+    /**
+     * A fresh, empty database under the given name, shared by every connection
+     * that uses the name until the factory is closed.
+     */
+    static EntityManagerFactory create(String name) {
+        return create(name, "create-drop");
+    }
+
+    static EntityManagerFactory create(String name, String schemaAction) {
+        Configuration configuration = new Configuration();
+        configuration.addAnnotatedClass(Book.class).addAnnotatedClass(Publisher.class);
+        configuration.setProperty("hibernate.connection.url", url(name));
+        configuration.setProperty("hibernate.connection.username", "sa");
+        configuration.setProperty("hibernate.hbm2ddl.auto", schemaAction);
+        return configuration.buildSessionFactory();
+    }
+
+    /**
+     * A factory over databases whose schema already exists, e.g. ones made by
+     * {@link #create(String)}, reached through the given DataSource.
+     */
+    static EntityManagerFactory create(DataSource dataSource) {
+        Configuration configuration = new Configuration();
+        configuration.addAnnotatedClass(Book.class).addAnnotatedClass(Publisher.class);
+        configuration.getProperties().put(AvailableSettings.DATASOURCE, dataSource);
+        configuration.setProperty(AvailableSettings.HBM2DDL_AUTO, "none");
+        return configuration.buildSessionFactory();
+    }
+
+    static String url(String name) {
+        return "jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1";
+    }
+
+    /**
+     * Insert books 1..count. Book i is titled "Book i", has genre i % 3, price
+     * i % 10, release year 2000 + i % 5, was published i days after 2024-01-01 and
+     * updated i hours after 2024-01-01T00:00Z; publishers alternate between two.
+     */
+    static void seed(EntityManagerFactory emf, int count) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            Publisher[] publishers = {new Publisher("Acme"), new Publisher("Globex")};
+            for (Publisher publisher : publishers) {
+                em.persist(publisher);
+            }
+            OffsetDateTime start = OffsetDateTime.of(2024, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+            for (int i = 1; i <= count; i++) {
+                em.persist(new Book("Book " + i, Book.Genre.values()[i % 3], BigDecimal.valueOf(i % 10),
+                        2000 + i % 5, LocalDate.of(2024, 1, 1).plusDays(i), start.plusHours(i),
+                        publishers[i % 2]));
+            }
+            em.getTransaction().commit();
+        } finally {
+            em.close();
+        }
+    }
+}
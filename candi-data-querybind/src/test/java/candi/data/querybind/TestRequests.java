@@ -0,0 +1,30 @@
+package candi.data.querybind;
+
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.Map;
+
+/**
+ * GET requests bound to the current thread, as QueryBindService reads them.
+ */
+final class TestRequests {
+
+    private TestRequests() {
+    }
+
+    /**
+     * Make a GET request with the given parameters the current request.
+     */
+    static MockHttpServletRequest get(Map<String, String> parameters) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/books");
+        parameters.forEach(request::addParameter);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+        return request;
+    }
+
+    static void clear() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+}
@@ -0,0 +1,181 @@
+package candi.data.querybind;
+
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.QueryTimeoutException;
+import jakarta.persistence.Tuple;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * @QueryBind.timeoutMs: the statement timeout hint, counts that time out, and
+ * the circuit that refuses a query shape after repeated timeouts. Timeouts are
+ * simulated by {@link QueryStub}.
+ */
+class TimeoutTest {
+
+    private static final String TIMEOUT_HINT = "jakarta.persistence.query.timeout";
+
+    private static EntityManagerFactory emf;
+    private final QueryStub stub = new QueryStub();
+    private QueryBindService service;
+
+    @QueryBind(entity = Book.class, defaultPageSize = 5, timeoutMs = 1500)
+    static class Limited {}
+
+    @QueryBind(entity = Book.class, defaultPageSize = 5)
+    static class Unlimited {}
+
+    @BeforeAll
+    static void createDatabase() {
+        emf = TestDatabase.create("timeouts");
+        TestDatabase.seed(emf, 30);
+    }
+
+    @AfterAll
+    static void closeDatabase() {
+        emf.close();
+    }
+
+    @BeforeEach
+    void createService() {
+        service = new QueryBindService(stub.wrap(SharedEntityManagerCreator.createSharedEntityManager(emf)),
+                new JpaTransactionManager(emf));
+    }
+
+    @AfterEach
+    void destroyService() {
+        service.destroy();
+        TestRequests.clear();
+    }
+
+    @Test
+    void limitsEveryQueryInWholeSeconds() {
+        execute(Limited.class, Map.of());
+        assertThat(stub.executions).hasSize(2)
+                .allSatisfy(execution -> assertThat(execution.hints()).containsEntry(TIMEOUT_HINT, 2000));
+
+        stub.reset();
+        execute(Unlimited.class, Map.of());
+        assertThat(stub.executions).hasSize(2)
+                .allSatisfy(execution -> assertThat(execution.hints()).doesNotContainKey(TIMEOUT_HINT));
+    }
+
+    @Test
+    void leavesTheTotalUnknownWhenTheCountTimesOut() {
+        timeOut(Long.class);
+
+        QueryBindResult<Book> result = execute(Limited.class, Map.of("genre", "NOVEL"));
+
+        assertThat(result.getContent()).hasSize(5);
+        assertThat(result.getTotalKind()).isEqualTo(TotalKind.UNKNOWN);
+        assertThat(result.getTotalElements()).isEqualTo(-1);
+        assertThat(result.hasNext()).isTrue();
+        assertThat(result.getTotalPages()).isEqualTo(2);
+    }
+
+    @Test
+    void failsThePageWhenTheDataQueryTimesOut() {
+        timeOut(Tuple.class);
+
+        assertThatThrownBy(() -> execute(Limited.class, Map.of()))
+                .isInstanceOf(QueryBindTimeoutException.class)
+                .hasMessageContaining("timed out after 1500 ms")
+                .hasCauseInstanceOf(QueryTimeoutException.class);
+    }
+
+    @Test
+    void refusesAShapeForEveryoneAfterThreeTimeoutsInARow() {
+        timeOut(Long.class);
+        for (String genre : new String[]{"NOVEL", "ESSAY", "NOVEL"}) {
+            execute(Limited.class, Map.of("genre", genre));
+        }
+        assertThat(counts()).isEqualTo(3);
+
+        // Same filters with other values: refused without asking the database
+        QueryBindResult<Book> refused = execute(Limited.class, Map.of("genre", "POETRY"));
+        assertThat(counts()).isEqualTo(3);
+        assertThat(refused.getTotalKind()).isEqualTo(TotalKind.UNKNOWN);
+        assertThat(refused.getContent()).hasSize(5);
+
+        // Other filters are another shape, and so is the unfiltered page
+        stub.before = resultType -> {};
+        assertThat(execute(Limited.class, Map.of("years", "2001")).getTotalElements()).isEqualTo(6);
+        assertThat(execute(Limited.class, Map.of()).getTotalElements()).isEqualTo(30);
+        assertThat(execute(Limited.class, Map.of("genre", "POETRY")).getTotalKind()).isEqualTo(TotalKind.UNKNOWN);
+        assertThat(counts()).isEqualTo(5);
+    }
+
+    @Test
+    void countsOnlyTimeoutsInARow() {
+        timeOut(Long.class);
+        execute(Limited.class, Map.of("genre", "NOVEL"));
+        execute(Limited.class, Map.of("genre", "NOVEL"));
+        stub.before = resultType -> {};
+        assertThat(execute(Limited.class, Map.of("genre", "NOVEL")).getTotalElements()).isEqualTo(10);
+        timeOut(Long.class);
+        execute(Limited.class, Map.of("genre", "NOVEL"));
+        execute(Limited.class, Map.of("genre", "NOVEL"));
+
+        stub.before = resultType -> {};
+        assertThat(execute(Limited.class, Map.of("genre", "NOVEL")).getTotalElements()).isEqualTo(10);
+        assertThat(counts()).isEqualTo(6);
+    }
+
+    @Test
+    void closesTheCircuitOnceNoTimeoutFollowedForAWhile() throws InterruptedException {
+        service.setCircuitOpenTime(Duration.ofMillis(200));
+        timeOut(Long.class);
+        for (int i = 0; i < 3; i++) {
+            execute(Limited.class, Map.of("genre", "NOVEL"));
+        }
+        stub.before = resultType -> {};
+        assertThat(execute(Limited.class, Map.of("genre", "NOVEL")).getTotalKind()).isEqualTo(TotalKind.UNKNOWN);
+        assertThat(counts()).isEqualTo(3);
+
+        Thread.sleep(300);
+
+        QueryBindResult<Book> result = execute(Limited.class, Map.of("genre", "NOVEL"));
+        assertThat(result.getTotalKind()).isEqualTo(TotalKind.EXACT);
+        assertThat(result.getTotalElements()).isEqualTo(10);
+        assertThat(counts()).isEqualTo(4);
+    }
+
+    @Test
+    void neverOpensTheCircuitWithoutATimeout() {
+        timeOut(Long.class);
+        for (int i = 0; i < 4; i++) {
+            execute(Unlimited.class, Map.of("genre", "NOVEL"));
+        }
+
+        assertThat(counts()).isEqualTo(4);
+    }
+
+    private void timeOut(Class<?> resultType) {
+        stub.before = type -> {
+            if (type == resultType) {
+                throw new QueryTimeoutException("Statement timed out (stub)");
+            }
+        };
+    }
+
+    private int counts() {
+        return Collections.frequency(stub.executed(), Long.class);
+    }
+
+    private QueryBindResult<Book> execute(Class<?> pageClass, Map<String, String> parameters) {
+        TestRequests.get(parameters);
+        return service.execute(pageClass);
+    }
+}
@@ -9,9 +9,12 @@ import software.amazon.awssdk.services.s3.presigner.S3Presigner;
 import software.amazon.awssdk.services.s3.presigner.model.GetObjectPresignRequest;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
 
 /**
@@ -22,6 +25,9 @@ public class StorageService {
 
     private static final Logger log = LoggerFactory.getLogger(StorageService.class);
 
+    /** Part size for streams of unknown length; S3 requires at least 5 MB for all but the last part. */
+    private static final int PART_SIZE = 8 * 1024 * 1024;
+
     private final S3Client s3Client;
     private final S3Presigner s3Presigner;
     private final StorageProperties properties;
@@ -40,6 +46,7 @@ public class StorageService {
      * @return result containing the key, URL, bucket, size, and content type
      */
     public StorageResult upload(MultipartFile file, UploadOptions options) {
+        checkOptions(options);
         validateFile(file, options);
 
         String originalFilename = file.getOriginalFilename();
@@ -48,15 +55,18 @@ public class StorageService {
             contentType = "application/octet-stream";
         }
 
-        try {
-            return upload(file.getInputStream(), originalFilename, contentType, file.getSize(), options);
+        try (InputStream input = file.getInputStream()) {
+            return upload(input, originalFilename, contentType, file.getSize(), options);
         } catch (IOException e) {
             throw new StorageException("Failed to read uploaded file: " + originalFilename, e);
         }
     }
 
     /**
-     * Upload from an InputStream using the given options.
+     * Upload from an InputStream using the given options. The stream is read in
+     * parts of at most 8 MB, so memory use does not grow with the file size, and
+     * fails as soon as more than maxSize bytes have been read. The caller closes
+     * the stream.
      *
      * @param input       the input stream
      * @param filename    the original filename
@@ -65,6 +75,7 @@ public class StorageService {
      * @return result containing the key, URL, bucket, size, and content type
      */
     public StorageResult upload(InputStream input, String filename, String contentType, UploadOptions options) {
+        checkOptions(options);
         return upload(input, filename, contentType, -1, options);
     }
 
@@ -74,9 +85,6 @@ public class StorageService {
         String bucket = options.bucket();
 
         try {
-            byte[] bytes = input.readAllBytes();
-            long size = bytes.length;
-
             var putBuilder = PutObjectRequest.builder()
                     .bucket(bucket)
                     .key(key)
@@ -86,7 +94,24 @@ public class StorageService {
                 putBuilder.acl(ObjectCannedACL.PUBLIC_READ);
             }
 
-            s3Client.putObject(putBuilder.build(), RequestBody.fromBytes(bytes));
+            long size;
+            if (knownSize >= 0) {
+                // Length known up front (and already checked against maxSize): stream straight through
+                s3Client.putObject(putBuilder.build(), RequestBody.fromInputStream(input, knownSize));
+                size = knownSize;
+            } else {
+                // One byte past maxSize is enough to tell that a small stream is too large
+                byte[] buffer = new byte[(int) Math.min(PART_SIZE - 1, options.maxSize()) + 1];
+                int length = input.readNBytes(buffer, 0, buffer.length);
+                checkMaxSize(length, options);
+                if (length < buffer.length) {
+                    s3Client.putObject(putBuilder.build(), RequestBody.fromInputStream(
+                            new ByteArrayInputStream(buffer, 0, length), length));
+                    size = length;
+                } else {
+                    size = uploadParts(input, buffer, bucket, key, contentType, options);
+                }
+            }
 
             String url = resolveUrl(bucket, key);
             log.info("Uploaded '{}' to {}/{} ({} bytes)", filename, bucket, key, size);
@@ -99,6 +124,66 @@ public class StorageService {
         }
     }
 
+    /**
+     * Upload a stream of unknown length as an S3 multipart upload, one buffer-sized
+     * part at a time. The buffer already holds the first part. The upload is aborted
+     * if reading, maxSize or S3 fails, so no partial object or orphaned parts remain.
+     */
+    private long uploadParts(InputStream input, byte[] buffer, String bucket, String key, String contentType,
+                             UploadOptions options) throws IOException {
+        var createBuilder = CreateMultipartUploadRequest.builder()
+                .bucket(bucket)
+                .key(key)
+                .contentType(contentType);
+
+        if (options.publicRead()) {
+            createBuilder.acl(ObjectCannedACL.PUBLIC_READ);
+        }
+
+        String uploadId = s3Client.createMultipartUpload(createBuilder.build()).uploadId();
+        try {
+            List<CompletedPart> parts = new ArrayList<>();
+            long size = 0;
+            int length = buffer.length;
+            while (length > 0) {
+                int partNumber = parts.size() + 1;
+                UploadPartResponse response = s3Client.uploadPart(UploadPartRequest.builder()
+                                .bucket(bucket)
+                                .key(key)
+                                .uploadId(uploadId)
+                                .partNumber(partNumber)
+                                .contentLength((long) length)
+                                .build(),
+                        RequestBody.fromInputStream(new ByteArrayInputStream(buffer, 0, length), length));
+                parts.add(CompletedPart.builder().partNumber(partNumber).eTag(response.eTag()).build());
+                size += length;
+
+                length = input.readNBytes(buffer, 0, buffer.length);
+                checkMaxSize(size + length, options);
+            }
+
+            s3Client.completeMultipartUpload(CompleteMultipartUploadRequest.builder()
+                    .bucket(bucket)
+                    .key(key)
+                    .uploadId(uploadId)
+                    .multipartUpload(CompletedMultipartUpload.builder().parts(parts).build())
+                    .build());
+            return size;
+        } catch (IOException | RuntimeException e) {
+            try {
+                s3Client.abortMultipartUpload(AbortMultipartUploadRequest.builder()
+                        .bucket(bucket)
+                        .key(key)
+                        .uploadId(uploadId)
+                        .build());
+            } catch (S3Exception abortFailure) {
+                log.warn("Could not abort multipart upload {} for {}/{}: {}",
+                        uploadId, bucket, key, abortFailure.getMessage());
+            }
+            throw e;
+        }
+    }
+
     /**
      * Download a file by its key from the default bucket.
      *
@@ -251,6 +336,20 @@ public class StorageService {
         }
     }
 
+    private void checkOptions(UploadOptions options) {
+        if (options.maxSize() <= 0) {
+            throw new StorageException(String.format(
+                    "Maximum upload size must be positive, was %d bytes", options.maxSize()));
+        }
+    }
+
+    private void checkMaxSize(long bytesRead, UploadOptions options) {
+        if (bytesRead > options.maxSize()) {
+            throw new StorageException(String.format(
+                    "File size exceeds maximum allowed %d bytes", options.maxSize()));
+        }
+    }
+
     private String generateKey(String filename, String pathPrefix) {
         String extension = "";
         if (filename != null && filename.contains(".")) {
@@ -28,7 +28,7 @@ public @interface Upload {
     String path() default "";
 
     /**
-     * Maximum file size in bytes. Default: 10MB.
+     * Maximum file size in bytes; must be positive. Default: 10MB.
      */
     long maxSize() default 10485760;
 
@@ -0,0 +1,204 @@
+package candi.saas.storage;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.mock.web.MockMultipartFile;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class StorageServiceTest {
+
+    private static final int MB = 1024 * 1024;
+
+    private S3Client s3Client;
+    private StorageService storage;
+
+    @BeforeEach
+    void createService() {
+        s3Client = mock(S3Client.class);
+        when(s3Client.createMultipartUpload(any(CreateMultipartUploadRequest.class)))
+                .thenReturn(CreateMultipartUploadResponse.builder().uploadId("upload-1").build());
+        when(s3Client.uploadPart(any(UploadPartRequest.class), any(RequestBody.class)))
+                .thenAnswer(invocation -> UploadPartResponse.builder()
+                        .eTag("etag-" + invocation.getArgument(0, UploadPartRequest.class).partNumber())
+                        .build());
+        storage = new StorageService(s3Client, null, new StorageProperties());
+    }
+
+    @Test
+    void putsSmallStreamsInOneRequest() throws IOException {
+        StorageResult result = storage.upload(stream(1000), "notes.txt", "text/plain", options(10 * MB));
+
+        ArgumentCaptor<PutObjectRequest> request = ArgumentCaptor.forClass(PutObjectRequest.class);
+        ArgumentCaptor<RequestBody> body = ArgumentCaptor.forClass(RequestBody.class);
+        verify(s3Client).putObject(request.capture(), body.capture());
+        assertThat(request.getValue().bucket()).isEqualTo("uploads");
+        assertThat(request.getValue().key()).startsWith("docs/").endsWith(".txt");
+        assertThat(body.getValue().optionalContentLength()).hasValue(1000L);
+        assertThat(body.getValue().contentStreamProvider().newStream().readAllBytes()).hasSize(1000);
+        assertThat(result.size()).isEqualTo(1000);
+        verify(s3Client, never()).createMultipartUpload(any(CreateMultipartUploadRequest.class));
+    }
+
+    @Test
+    void uploadsLargeStreamsInParts() {
+        StorageResult result = storage.upload(stream(20 * MB), "video.mp4", "video/mp4", options(100 * MB));
+
+        ArgumentCaptor<UploadPartRequest> parts = ArgumentCaptor.forClass(UploadPartRequest.class);
+        verify(s3Client, times(3)).uploadPart(parts.capture(), any(RequestBody.class));
+        assertThat(parts.getAllValues()).extracting(UploadPartRequest::contentLength)
+                .containsExactly(8L * MB, 8L * MB, 4L * MB);
+        assertThat(parts.getAllValues()).extracting(UploadPartRequest::uploadId).containsOnly("upload-1");
+
+        ArgumentCaptor<CompleteMultipartUploadRequest> complete =
+                ArgumentCaptor.forClass(CompleteMultipartUploadRequest.class);
+        verify(s3Client).completeMultipartUpload(complete.capture());
+        assertThat(complete.getValue().multipartUpload().parts()).extracting(CompletedPart::eTag)
+                .containsExactly("etag-1", "etag-2", "etag-3");
+        assertThat(result.size()).isEqualTo(20L * MB);
+        verify(s3Client, never()).putObject(any(PutObjectRequest.class), any(RequestBody.class));
+    }
+
+    @Test
+    void acceptsStreamsOfExactlyMaxSize() {
+        assertThat(storage.upload(stream(10), "a.bin", "application/octet-stream", options(10)).size())
+                .isEqualTo(10);
+        assertThat(storage.upload(stream(5 * MB), "b.bin", "application/octet-stream", options(5 * MB)).size())
+                .isEqualTo(5L * MB);
+        verify(s3Client, never()).createMultipartUpload(any(CreateMultipartUploadRequest.class));
+    }
+
+    @Test
+    void refusesSmallStreamsOverMaxSizeBeforeUploading() {
+        assertThatThrownBy(() -> storage.upload(stream(11), "a.bin", "application/octet-stream", options(10)))
+                .isInstanceOf(StorageException.class)
+                .hasMessageContaining("maximum allowed 10 bytes");
+
+        verifyNoInteractions(s3Client);
+    }
+
+    @Test
+    void abortsMultipartUploadsThatGrowOverMaxSize() {
+        assertThatThrownBy(() -> storage.upload(stream(20 * MB), "a.bin", "application/octet-stream",
+                options(12 * MB)))
+                .isInstanceOf(StorageException.class)
+                .hasMessageContaining("maximum allowed");
+
+        verify(s3Client, times(1)).uploadPart(any(UploadPartRequest.class), any(RequestBody.class));
+        verify(s3Client).abortMultipartUpload(any(AbortMultipartUploadRequest.class));
+        verify(s3Client, never()).completeMultipartUpload(any(CompleteMultipartUploadRequest.class));
+    }
+
+    @Test
+    void abortsMultipartUploadsWhenAPartFails() {
+        when(s3Client.uploadPart(any(UploadPartRequest.class), any(RequestBody.class)))
+                .thenThrow(S3Exception.builder().message("slow down").build());
+
+        assertThatThrownBy(() -> storage.upload(stream(20 * MB), "a.bin", "application/octet-stream",
+                options(100 * MB)))
+                .isInstanceOf(StorageException.class)
+                .hasMessageContaining("S3 upload failed");
+
+        verify(s3Client).abortMultipartUpload(any(AbortMultipartUploadRequest.class));
+    }
+
+    @Test
+    void abortsMultipartUploadsWhenReadingFails() {
+        InputStream failing = new InputStream() {
+            private int remaining = 10 * MB;
+
+            @Override
+            public int read() throws IOException {
+                byte[] one = new byte[1];
+                return read(one, 0, 1) < 0 ? -1 : one[0];
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int length) throws IOException {
+                if (remaining == 0) {
+                    throw new IOException("connection reset");
+                }
+                int read = Math.min(length, remaining);
+                remaining -= read;
+                return read;
+            }
+        };
+
+        assertThatThrownBy(() -> storage.upload(failing, "a.bin", "application/octet-stream", options(100 * MB)))
+                .isInstanceOf(StorageException.class)
+                .hasMessageContaining("Failed to read input stream");
+
+        verify(s3Client).abortMultipartUpload(any(AbortMultipartUploadRequest.class));
+    }
+
+    @Test
+    void allowsAnUnlimitedMaxSize() {
+        assertThat(storage.upload(stream(1000), "a.bin", "application/octet-stream", options(Long.MAX_VALUE))
+                .size()).isEqualTo(1000);
+
+        ArgumentCaptor<RequestBody> body = ArgumentCaptor.forClass(RequestBody.class);
+        verify(s3Client).putObject(any(PutObjectRequest.class), body.capture());
+        assertThat(body.getValue().optionalContentLength()).hasValue(1000L);
+    }
+
+    @Test
+    void refusesNonPositiveMaxSizes() {
+        for (long maxSize : new long[]{0, -1, Long.MIN_VALUE}) {
+            assertThatThrownBy(() -> storage.upload(stream(1), "a.bin", "application/octet-stream",
+                    options(maxSize)))
+                    .isInstanceOf(StorageException.class)
+                    .hasMessageContaining("must be positive");
+            assertThatThrownBy(() -> storage.upload(new MockMultipartFile("file", new byte[1]), options(maxSize)))
+                    .isInstanceOf(StorageException.class)
+                    .hasMessageContaining("must be positive");
+        }
+        verifyNoInteractions(s3Client);
+    }
+
+    @Test
+    void streamsMultipartFilesOfKnownSize() {
+        MockMultipartFile file = new MockMultipartFile("file", "photo.png", "image/png", new byte[3000]);
+
+        assertThat(storage.upload(file, options(10 * MB)).size()).isEqualTo(3000);
+
+        ArgumentCaptor<RequestBody> body = ArgumentCaptor.forClass(RequestBody.class);
+        verify(s3Client).putObject(any(PutObjectRequest.class), body.capture());
+        assertThat(body.getValue().optionalContentLength()).hasValue(3000L);
+        assertThatThrownBy(() -> storage.upload(file, options(2999)))
+                .isInstanceOf(StorageException.class)
+                .hasMessageContaining("exceeds maximum allowed 2999 bytes");
+    }
+
+    private static UploadOptions options(long maxSize) {
+        return new UploadOptions("uploads", "docs/", maxSize, Set.of(), false);
+    }
+
+    private static InputStream stream(int size) {
+        return new ByteArrayInputStream(new byte[size]);
+    }
+}
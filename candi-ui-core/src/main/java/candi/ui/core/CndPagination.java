@@ -12,6 +12,9 @@ import java.util.Map;
  * Pagination widget that renders prev/next and numbered page links.
  *
  * <p>Usage: {{ widget "cnd-pagination" currentPage=page totalPages=total baseUrl="/items" }}
+ *
+ * <p>Pass totalKnown=false when totalPages only covers the pages known to exist
+ * (e.g. a capped or skipped count); an ellipsis is rendered after the last page link.
  */
 @Component("cnd-pagination__Widget")
 @Scope(ConfigurableBeanFactory.SCOPE_PROTOTYPE)
@@ -21,6 +24,7 @@ public class CndPagination implements CandiComponent {
     private int totalPages;
     private String baseUrl;
     private String paramName;
+    private boolean totalKnown;
 
     @Override
     public void setParams(Map<String, Object> params) {
@@ -28,6 +32,7 @@ public class CndPagination implements CandiComponent {
         this.totalPages = asInt(params.get("totalPages"), 1);
         this.baseUrl = asString(params.get("baseUrl"), "");
         this.paramName = asString(params.get("paramName"), "page");
+        this.totalKnown = asBoolean(params.get("totalKnown"), true);
     }
 
     @Override
@@ -69,6 +74,12 @@ public class CndPagination implements CandiComponent {
             }
         }
 
+        if (!totalKnown) {
+            out.append("<li class=\"cnd-pagination__item cnd-pagination__item--disabled\">");
+            out.append("<span>&hellip;</span>");
+            out.append("</li>");
+        }
+
         // Next
         if (currentPage < totalPages) {
             out.append("<li class=\"cnd-pagination__item\">");
@@ -103,6 +114,12 @@ public class CndPagination implements CandiComponent {
         return defaultValue;
     }
 
+    private boolean asBoolean(Object value, boolean defaultValue) {
+        if (value instanceof Boolean b) return b;
+        if (value instanceof String s) return Boolean.parseBoolean(s);
+        return defaultValue;
+    }
+
     private String asString(Object value, String defaultValue) {
         if (value instanceof String s) return s;
         return defaultValue;